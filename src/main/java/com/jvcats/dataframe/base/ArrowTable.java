@@ -0,0 +1,580 @@
+package com.jvcats.dataframe.base;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class writes and reads DataFrames in the Apache Arrow IPC stream and file formats (metadata version V5).
+ * A "dbl" column maps to Float64, an "int" column to Int32 and a "str" column to Utf8.
+ * NaN doubles, null strings and the rows marked missing in the validity bitmap of a column are written as nulls.
+ * Nulls are read back as NaN doubles, null strings, and for an Int32 column as missing rows of its validity bitmap.
+ * Dictionary-encoded and compressed batches and other Arrow types are not supported.
+ * The flatbuffers of the metadata are built and read by hand, following the Arrow format specification.
+ *
+ * @author henry
+ */
+final class ArrowTable {
+    private static final byte[] FILE_MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+    private static final int CONTINUATION = 0xFFFFFFFF;
+    private static final int BATCH_ROWS = 1 << 20;
+    private static final short METADATA_V5 = 4;
+    private static final byte HEADER_SCHEMA = 1;
+    private static final byte HEADER_DICTIONARY_BATCH = 2;
+    private static final byte HEADER_RECORD_BATCH = 3;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_FLOATING_POINT = 3;
+    private static final byte TYPE_UTF8 = 5;
+    private static final short PRECISION_DOUBLE = 2;
+
+    private ArrowTable() {}
+
+    static void writeFile(DataFrame df, Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BinaryTable.Output out = new BinaryTable.Output(ch);
+            out.put(FILE_MAGIC, 0, FILE_MAGIC.length).pad();
+            ByteBuffer blocks = write(df, out);
+            long footerPos = out.position();
+            byte[] footer = new FlatBuilder().finish(new FlatTable()
+                    .scalar(0, 2, METADATA_V5)
+                    .child(1, schema(df))
+                    .child(2, new Structs(new byte[0], 0, 24))
+                    .child(3, new Structs(Arrays.copyOf(blocks.array(), blocks.position()), blocks.position() / 24, 24)));
+            out.put(footer, 0, footer.length);
+            out.putInt((int) (out.position() - footerPos));
+            out.put(FILE_MAGIC, 0, FILE_MAGIC.length);
+            out.flush();
+        }
+    }
+
+    static void writeStream(DataFrame df, OutputStream stream) throws IOException {
+        BinaryTable.Output out = new BinaryTable.Output(Channels.newChannel(stream));
+        write(df, out);
+        out.flush();
+        stream.flush();
+    }
+
+    /**
+     * Write the schema, the record batches and the end-of-stream marker.
+     * Return the file blocks (offset, metadata length and body length) of the record batches.
+     */
+    private static ByteBuffer write(DataFrame df, BinaryTable.Output out) throws IOException {
+        BinaryTable.checkTypes(df, "Arrow");
+        int nrow = df.nrow();
+        int ncol = df.ncol();
+        writeMessage(out, HEADER_SCHEMA, schema(df), 0);
+        int nbatch = (nrow + BATCH_ROWS - 1) / BATCH_ROWS;
+        ByteBuffer blocks = ByteBuffer.allocate(24 * nbatch).order(ByteOrder.LITTLE_ENDIAN);
+        for (int from = 0; from < nrow; from += BATCH_ROWS) {
+            int to = Math.min(nrow, from + BATCH_ROWS);
+            int n = to - from;
+            ByteBuffer nodes = ByteBuffer.allocate(16 * ncol).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer buffers = ByteBuffer.allocate(48 * ncol).order(ByteOrder.LITTLE_ENDIAN);
+            byte[][][] strs = new byte[ncol][][];
+            byte[][] validity = new byte[ncol][];
+            long body = 0;
+            for (int j = 0; j < ncol; j++) {
+                Column col = df.getCol(j);
+                validity[j] = validity(col, from, to);
+                int nulls = validity[j] == null ? 0 : n - countBits(validity[j], n);
+                nodes.putLong(n).putLong(nulls);
+                long length = validity[j] == null ? 0 : validity[j].length;
+                buffers.putLong(body).putLong(length);
+                body += align(length);
+                if (col.getType() == ColumnType.DBL) {
+                    buffers.putLong(body).putLong(8L * n);
+                    body += align(8L * n);
+                } else if (col.getType() == ColumnType.INT) {
+                    buffers.putLong(body).putLong(4L * n);
+                    body += align(4L * n);
+                } else {
+                    strs[j] = new byte[n][];
+                    long total = 0;
+                    for (int i = 0; i < n; i++) {
+                        String s = col.getStr(from + i);
+                        if (s != null) {
+                            strs[j][i] = s.getBytes(StandardCharsets.UTF_8);
+                            total += strs[j][i].length;
+                        }
+                    }
+                    if (total > Integer.MAX_VALUE) {
+                        throw new IOException("Column " + col.getHeader() + " holds too many bytes for an Arrow Utf8 array");
+                    }
+                    buffers.putLong(body).putLong(4L * (n + 1));
+                    body += align(4L * (n + 1));
+                    buffers.putLong(body).putLong(total);
+                    body += align(total);
+                }
+            }
+            FlatTable batch = new FlatTable()
+                    .scalar(0, 8, n)
+                    .child(1, new Structs(nodes.array(), ncol, 16))
+                    .child(2, new Structs(Arrays.copyOf(buffers.array(), buffers.position()), buffers.position() / 16, 16));
+            long offset = out.position();
+            int metaLength = writeMessage(out, HEADER_RECORD_BATCH, batch, body);
+            blocks.putLong(offset).putInt(metaLength).putInt(0).putLong(body);
+            for (int j = 0; j < ncol; j++) {
+                Column col = df.getCol(j);
+                if (validity[j] != null) out.put(validity[j], 0, validity[j].length);
+                out.pad();
+                if (col.getType() == ColumnType.DBL || col.getType() == ColumnType.INT) {
+                    out.putNumbers(col.data(), from, to);
+                } else {
+                    int pos = 0;
+                    out.putInt(0);
+                    for (byte[] v : strs[j]) {
+                        if (v != null) pos += v.length;
+                        out.putInt(pos);
+                    }
+                    out.pad();
+                    for (byte[] v : strs[j]) {
+                        if (v != null) out.put(v, 0, v.length);
+                    }
+                }
+                out.pad();
+            }
+        }
+        out.putInt(CONTINUATION).putInt(0);
+        return blocks;
+    }
+
+    /**
+     * Write an encapsulated message and return its metadata length, including the prefix and the padding.
+     */
+    private static int writeMessage(BinaryTable.Output out, byte headerType, FlatTable header, long bodyLength) throws IOException {
+        byte[] meta = new FlatBuilder().finish(new FlatTable()
+                .scalar(0, 2, METADATA_V5)
+                .scalar(1, 1, headerType)
+                .child(2, header)
+                .scalar(3, 8, bodyLength));
+        out.putInt(CONTINUATION).putInt(meta.length);
+        out.put(meta, 0, meta.length);
+        return 8 + meta.length;
+    }
+
+    private static FlatTable schema(DataFrame df) {
+        FlatTable[] fields = new FlatTable[df.ncol()];
+        for (int j = 0; j < df.ncol(); j++) {
+            FlatTable field = new FlatTable().child(0, df.getColname(j)).scalar(1, 1, 1);
+            ColumnType type = df.getCol(j).getType();
+            if (type == ColumnType.DBL) {
+                field.scalar(2, 1, TYPE_FLOATING_POINT).child(3, new FlatTable().scalar(0, 2, PRECISION_DOUBLE));
+            } else if (type == ColumnType.INT) {
+                field.scalar(2, 1, TYPE_INT).child(3, new FlatTable().scalar(0, 4, 32).scalar(1, 1, 1));
+            } else {
+                field.scalar(2, 1, TYPE_UTF8).child(3, new FlatTable());
+            }
+            fields[j] = field.child(5, new FlatTable[0]);
+        }
+        return new FlatTable().scalar(0, 2, 0).child(1, fields);
+    }
+
+    /**
+     * Build the validity bitmap of the rows [from, to) of a column, or return null if there are no missing values.
+     */
+    private static byte[] validity(Column col, int from, int to) {
+        if (col.getType() == ColumnType.INT && col.validity() == null) return null;
+        byte[] bits = new byte[(to - from + 7) / 8];
+        boolean missing = false;
+        for (int i = from; i < to; i++) {
+            if (!col.isNull(i)) {
+                bits[(i - from) >> 3] |= (byte) (1 << ((i - from) & 7));
+            } else {
+                missing = true;
+            }
+        }
+        return missing ? bits : null;
+    }
+
+    private static int countBits(byte[] bits, int n) {
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if ((bits[i >> 3] & (1 << (i & 7))) != 0) count++;
+        }
+        return count;
+    }
+
+    private static long align(long length) {
+        return (length + 7) & ~7L;
+    }
+
+    static Column[] readFile(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] magic = new byte[FILE_MAGIC.length];
+            if (ch.size() >= 8) BinaryTable.map(ch, 0, magic.length).get(magic);
+            long start = Arrays.equals(magic, FILE_MAGIC) ? 8 : 0;
+            return read(new Source() {
+                long pos = start;
+
+                @Override
+                public ByteBuffer take(long n) throws IOException {
+                    if (pos + n > ch.size()) return null;
+                    ByteBuffer buf = BinaryTable.map(ch, pos, n);
+                    pos += n;
+                    return buf;
+                }
+            });
+        }
+    }
+
+    static Column[] readStream(InputStream stream) throws IOException {
+        ReadableByteChannel ch = Channels.newChannel(stream);
+        return read(n -> {
+            if (n > Integer.MAX_VALUE) throw new IOException("Arrow message of " + n + " bytes is too large");
+            ByteBuffer buf = ByteBuffer.allocate((int) n).order(ByteOrder.LITTLE_ENDIAN);
+            while (buf.hasRemaining()) {
+                if (ch.read(buf) < 0) return null;
+            }
+            return buf.flip();
+        });
+    }
+
+    /**
+     * A source of consecutive byte ranges, returning null at the end of the input.
+     */
+    private interface Source {
+        ByteBuffer take(long n) throws IOException;
+    }
+
+    private static Column[] read(Source in) throws IOException {
+        String[] names = null;
+        ColumnType[] types = null;
+        ArrayList<Column[]> parts = new ArrayList<>();
+        while (true) {
+            ByteBuffer prefix = in.take(4);
+            if (prefix == null) break;
+            int metaLength = prefix.getInt();
+            if (metaLength == CONTINUATION) {
+                prefix = in.take(4);
+                if (prefix == null) break;
+                metaLength = prefix.getInt();
+            }
+            if (metaLength == 0) break;
+            ByteBuffer meta = in.take(metaLength);
+            if (meta == null) throw new IOException("Arrow stream ends within a message");
+            int message = deref(meta, 0);
+            byte headerType = getByte(meta, message, 1, (byte) 0);
+            int header = child(meta, message, 2);
+            long bodyLength = getLong(meta, message, 3, 0);
+            ByteBuffer body = in.take(bodyLength);
+            if (body == null) throw new IOException("Arrow stream ends within a message");
+            if (headerType == HEADER_SCHEMA) {
+                int fields = child(meta, header, 1);
+                int nfield = meta.getInt(fields);
+                names = new String[nfield];
+                types = new ColumnType[nfield];
+                for (int j = 0; j < nfield; j++) {
+                    int f = deref(meta, fields + 4 + 4 * j);
+                    names[j] = getString(meta, f, 0);
+                    types[j] = type(meta, f, names[j]);
+                }
+            } else if (headerType == HEADER_RECORD_BATCH) {
+                if (names == null) throw new IOException("Arrow record batch comes before the schema");
+                parts.add(readBatch(meta, header, body, names, types));
+            } else if (headerType == HEADER_DICTIONARY_BATCH) {
+                throw new IOException("Dictionary-encoded Arrow columns are not supported");
+            } else {
+                throw new IOException("Unknown Arrow message type " + headerType);
+            }
+        }
+        if (names == null) throw new IOException("Arrow stream has no schema");
+        return RowGroupTable.concat(parts, names, types);
+    }
+
+    private static ColumnType type(ByteBuffer meta, int field, String name) throws IOException {
+        if (field(meta, field, 4) != 0) {
+            throw new IOException("Dictionary-encoded Arrow column " + name + " is not supported");
+        }
+        byte typeType = getByte(meta, field, 2, (byte) 0);
+        int type = child(meta, field, 3);
+        if (typeType == TYPE_FLOATING_POINT && getShort(meta, type, 0, (short) 0) == PRECISION_DOUBLE) {
+            return ColumnType.DBL;
+        } else if (typeType == TYPE_INT && getInt(meta, type, 0, 0) == 32 && getByte(meta, type, 1, (byte) 0) != 0) {
+            return ColumnType.INT;
+        } else if (typeType == TYPE_UTF8) {
+            return ColumnType.STR;
+        }
+        throw new IOException("Arrow column " + name + " has an unsupported type");
+    }
+
+    private static Column[] readBatch(ByteBuffer meta, int batch, ByteBuffer body, String[] names, ColumnType[] types) throws IOException {
+        if (field(meta, batch, 3) != 0) {
+            throw new IOException("Compressed Arrow record batches are not supported");
+        }
+        int n = (int) getLong(meta, batch, 0, 0);
+        int nodes = child(meta, batch, 1) + 4;
+        int buffers = child(meta, batch, 2) + 4;
+        Column[] cols = new Column[names.length];
+        for (int j = 0; j < names.length; j++) {
+            long nulls = meta.getLong(nodes + 16 * j + 8);
+            ByteBuffer validity = nulls == 0 ? null : slice(meta, body, buffers);
+            ByteBuffer data = slice(meta, body, buffers + 16);
+            buffers += 32;
+            if (types[j] == ColumnType.DBL) {
+                double[] dbls = new double[n];
+                data.asDoubleBuffer().get(dbls);
+                for (int i = 0; validity != null && i < n; i++) {
+                    if (!valid(validity, i)) dbls[i] = Double.NaN;
+                }
+                cols[j] = new Column(names[j], dbls);
+            } else if (types[j] == ColumnType.INT) {
+                int[] ints = new int[n];
+                data.asIntBuffer().get(ints);
+                long[] words = null;
+                if (validity != null) {
+                    words = Bits.clear(n);
+                    for (int i = 0; i < n; i++) {
+                        if (valid(validity, i)) Bits.set(words, i);
+                    }
+                }
+                cols[j] = new Column(names[j], new ColumnData.Ints(ints), words);
+            } else {
+                ByteBuffer bytes = slice(meta, body, buffers);
+                buffers += 16;
+                int[] offsets = new int[n + 1];
+                data.asIntBuffer().get(offsets);
+                byte[] utf8 = new byte[bytes.remaining()];
+                bytes.get(utf8);
+                String[] strs = new String[n];
+                for (int i = 0; i < n; i++) {
+                    if (validity == null || valid(validity, i)) {
+                        strs[i] = new String(utf8, offsets[i] - offsets[0], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+                    }
+                }
+                cols[j] = new Column(names[j], strs);
+            }
+        }
+        return cols;
+    }
+
+    private static ByteBuffer slice(ByteBuffer meta, ByteBuffer body, int buffer) throws IOException {
+        long offset = meta.getLong(buffer);
+        long length = meta.getLong(buffer + 8);
+        if (offset < 0 || length < 0 || offset + length > body.limit()) {
+            throw new IOException("Arrow buffer lies outside its message body");
+        }
+        return body.slice((int) offset, (int) length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static boolean valid(ByteBuffer validity, int i) {
+        return (validity.get(i >> 3) & (1 << (i & 7))) != 0;
+    }
+
+    /**
+     * Return the position of a field of a flatbuffer table, or 0 if the field is absent.
+     */
+    private static int field(ByteBuffer buf, int table, int id) {
+        int vtable = table - buf.getInt(table);
+        int slot = 4 + 2 * id;
+        if (slot >= (buf.getShort(vtable) & 0xFFFF)) return 0;
+        int offset = buf.getShort(vtable + slot) & 0xFFFF;
+        return offset == 0 ? 0 : table + offset;
+    }
+
+    /**
+     * Follow the offset stored at a position of a flatbuffer.
+     */
+    private static int deref(ByteBuffer buf, int pos) {
+        return pos + buf.getInt(pos);
+    }
+
+    /**
+     * Return the position of the object referenced by a field of a flatbuffer table.
+     */
+    private static int child(ByteBuffer buf, int table, int id) throws IOException {
+        int pos = field(buf, table, id);
+        if (pos == 0) throw new IOException("Arrow metadata misses a required field");
+        return deref(buf, pos);
+    }
+
+    private static byte getByte(ByteBuffer buf, int table, int id, byte def) {
+        int pos = field(buf, table, id);
+        return pos == 0 ? def : buf.get(pos);
+    }
+
+    private static short getShort(ByteBuffer buf, int table, int id, short def) {
+        int pos = field(buf, table, id);
+        return pos == 0 ? def : buf.getShort(pos);
+    }
+
+    private static int getInt(ByteBuffer buf, int table, int id, int def) {
+        int pos = field(buf, table, id);
+        return pos == 0 ? def : buf.getInt(pos);
+    }
+
+    private static long getLong(ByteBuffer buf, int table, int id, long def) {
+        int pos = field(buf, table, id);
+        return pos == 0 ? def : buf.getLong(pos);
+    }
+
+    private static String getString(ByteBuffer buf, int table, int id) throws IOException {
+        int pos = field(buf, table, id);
+        if (pos == 0) return "";
+        int str = deref(buf, pos);
+        byte[] b = new byte[buf.getInt(str)];
+        buf.get(str + 4, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A flatbuffer table to be built, holding scalar fields and references to strings, tables, vectors of tables and vectors of structs.
+     */
+    private static final class FlatTable {
+        private final TreeMap<Integer, Object> fields = new TreeMap<>();
+
+        FlatTable scalar(int id, int size, long value) {
+            fields.put(id, new long[]{size, value});
+            return this;
+        }
+
+        FlatTable child(int id, Object child) {
+            fields.put(id, child);
+            return this;
+        }
+    }
+
+    /**
+     * A flatbuffer vector of structs, given as raw little-endian bytes.
+     */
+    private static final class Structs {
+        private final byte[] bytes;
+        private final int count;
+        private final int size;
+
+        Structs(byte[] bytes, int count, int size) {
+            this.bytes = bytes;
+            this.count = count;
+            this.size = size;
+        }
+    }
+
+    /**
+     * A flatbuffer builder working front to back, so that every referenced object is written after the reference to it.
+     * Tables start at 4 mod 8, so that their fields, sorted by size, are all naturally aligned.
+     */
+    private static final class FlatBuilder {
+        private byte[] buf = new byte[256];
+        private int pos;
+
+        byte[] finish(FlatTable root) {
+            pos = 4;
+            patch(0, writeTable(root));
+            align(8, 0);
+            return Arrays.copyOf(buf, pos);
+        }
+
+        private int writeTable(FlatTable table) {
+            int nslot = table.fields.isEmpty() ? 0 : table.fields.lastKey() + 1;
+            int[] offsets = new int[nslot];
+            int inline = 4;
+            for (int size = 8; size >= 1; size >>= 1) {
+                for (Map.Entry<Integer, Object> e : table.fields.entrySet()) {
+                    if (sizeOf(e.getValue()) == size) {
+                        offsets[e.getKey()] = inline;
+                        inline += size;
+                    }
+                }
+            }
+            align(2, 0);
+            int vtable = pos;
+            putShort(4 + 2 * nslot);
+            putShort(inline);
+            for (int offset : offsets) putShort(offset);
+            align(8, 4);
+            int start = pos;
+            putInt(start - vtable);
+            ensure(inline);
+            pos = start + inline;
+            for (Map.Entry<Integer, Object> e : table.fields.entrySet()) {
+                int at = start + offsets[e.getKey()];
+                if (e.getValue() instanceof long[] scalar) {
+                    for (int b = 0; b < scalar[0]; b++) buf[at + b] = (byte) (scalar[1] >>> (8 * b));
+                }
+            }
+            for (Map.Entry<Integer, Object> e : table.fields.entrySet()) {
+                if (!(e.getValue() instanceof long[])) {
+                    int at = start + offsets[e.getKey()];
+                    patch(at, writeObject(e.getValue()));
+                }
+            }
+            return start;
+        }
+
+        private int writeObject(Object o) {
+            if (o instanceof FlatTable table) {
+                return writeTable(table);
+            } else if (o instanceof String s) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                align(4, 0);
+                int start = pos;
+                putInt(b.length);
+                put(b);
+                put(new byte[1]);
+                return start;
+            } else if (o instanceof FlatTable[] tables) {
+                align(4, 0);
+                int start = pos;
+                putInt(tables.length);
+                int slots = pos;
+                ensure(4 * tables.length);
+                pos += 4 * tables.length;
+                for (int i = 0; i < tables.length; i++) {
+                    patch(slots + 4 * i, writeTable(tables[i]));
+                }
+                return start;
+            }
+            Structs structs = (Structs) o;
+            align(Math.min(structs.size, 8), 4);
+            int start = pos;
+            putInt(structs.count);
+            put(structs.bytes);
+            return start;
+        }
+
+        private static int sizeOf(Object o) {
+            return o instanceof long[] scalar ? (int) scalar[0] : 4;
+        }
+
+        private void patch(int at, int target) {
+            int offset = target - at;
+            for (int b = 0; b < 4; b++) buf[at + b] = (byte) (offset >>> (8 * b));
+        }
+
+        /**
+         * Pad with zeros until the position is the given remainder modulo the given alignment.
+         */
+        private void align(int alignment, int remainder) {
+            while (pos % alignment != remainder % alignment) put(new byte[1]);
+        }
+
+        private void putShort(int v) {
+            put(new byte[]{(byte) v, (byte) (v >>> 8)});
+        }
+
+        private void putInt(int v) {
+            put(new byte[]{(byte) v, (byte) (v >>> 8), (byte) (v >>> 16), (byte) (v >>> 24)});
+        }
+
+        private void put(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, buf, pos, b.length);
+            pos += b.length;
+        }
+
+        private void ensure(int n) {
+            if (pos + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+        }
+    }
+}
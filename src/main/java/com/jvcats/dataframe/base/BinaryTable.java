@@ -0,0 +1,322 @@
+package com.jvcats.dataframe.base;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class writes and reads DataFrames in a native binary columnar format.
+ * All numbers are little-endian and the file is laid out as follows:
+ * <pre>
+ * "DFBN", version (int), number of columns (int), number of rows (int)
+ * for each column: name length (int), name (UTF-8), type ("dbl", "int" or "str")
+ * padding to a multiple of 8 bytes
+ * for each column: block length in bytes (long), block, padding to a multiple of 8 bytes
+ * </pre>
+ * A block starts with the number of rows marked missing in the validity bitmap of the column (int) and 4 bytes of padding,
+ * followed by the bitmap, packed 64 rows to a long, if that number is not 0.
+ * The values follow: a "dbl" block holds the doubles and an "int" block holds the ints of the column, so that an int column
+ * with missing values stays an int column. A "str" block holds the byte length of every value (-1 for null)
+ * followed by all values in UTF-8.
+ * Reading maps the file and copies every block into its column in bulk, without any text parsing.
+ *
+ * @author henry
+ */
+final class BinaryTable {
+    private static final int MAGIC = 0x4E424644;
+    private static final int VERSION = 2;
+    static final int MAX_MAP = 1 << 30;
+
+    private BinaryTable() {}
+
+    /**
+     * Check that every column holds doubles, ints or strings, the types the binary formats store.
+     */
+    static void checkTypes(DataFrame df, String format) throws IOException {
+        for (int j = 0; j < df.ncol(); j++) {
+            ColumnType type = df.getCol(j).getType();
+            if (type != ColumnType.DBL && type != ColumnType.INT && type != ColumnType.STR) {
+                throw new IOException("Column " + df.getColname(j) + " of type " + df.colType(j) + " cannot be written to " + format);
+            }
+        }
+    }
+
+    static void write(DataFrame df, Path file) throws IOException {
+        checkTypes(df, "a binary DataFrame file");
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(ch);
+            int nrow = df.nrow();
+            out.putInt(MAGIC).putInt(VERSION).putInt(df.ncol()).putInt(nrow);
+            for (int j = 0; j < df.ncol(); j++) {
+                byte[] name = df.getColname(j).getBytes(StandardCharsets.UTF_8);
+                out.putInt(name.length).put(name, 0, name.length);
+                out.put(df.colType(j).getBytes(StandardCharsets.US_ASCII), 0, 3);
+            }
+            out.pad();
+            for (int j = 0; j < df.ncol(); j++) {
+                writeBlock(out, df.getCol(j), 0, nrow);
+            }
+            out.flush();
+        }
+    }
+
+    static Column[] read(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = map(ch, 0, Math.min(ch.size(), MAX_MAP));
+            if (head.getInt() != MAGIC) {
+                throw new IOException(file + " is not a binary DataFrame file");
+            }
+            int version = head.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary DataFrame version " + version);
+            }
+            int ncol = head.getInt();
+            int nrow = head.getInt();
+            String[] names = new String[ncol];
+            String[] types = new String[ncol];
+            for (int j = 0; j < ncol; j++) {
+                byte[] name = new byte[head.getInt()];
+                head.get(name);
+                names[j] = new String(name, StandardCharsets.UTF_8);
+                byte[] type = new byte[3];
+                head.get(type);
+                types[j] = new String(type, StandardCharsets.US_ASCII);
+            }
+            long pos = align(head.position());
+            Column[] cols = new Column[ncol];
+            for (int j = 0; j < ncol; j++) {
+                cols[j] = readBlock(ch, pos, names[j], types[j], nrow);
+                pos = align(pos + 8 + map(ch, pos, 8).getLong());
+            }
+            return cols;
+        }
+    }
+
+    /**
+     * Write the rows [from, to) of a column as a length-prefixed block, padded to a multiple of 8 bytes.
+     */
+    static void writeBlock(Output out, Column col, int from, int to) throws IOException {
+        int n = to - from;
+        long[] validity = col.validity() == null ? null : Bits.slice(col.validity(), from, to);
+        int nulls = validity == null ? 0 : n - Bits.count(validity);
+        long head = nulls == 0 ? 8 : 8 + 8L * validity.length;
+        if (col.getType() == ColumnType.DBL) {
+            out.putLong(head + 8L * n);
+            putValidity(out, nulls, validity);
+            out.putNumbers(col.data(), from, to);
+        } else if (col.getType() == ColumnType.INT) {
+            out.putLong(head + 4L * n);
+            putValidity(out, nulls, validity);
+            out.putNumbers(col.data(), from, to);
+        } else {
+            byte[][] values = new byte[n][];
+            long total = 4L * n;
+            for (int i = 0; i < n; i++) {
+                String s = col.getStr(from + i);
+                if (s != null) {
+                    values[i] = s.getBytes(StandardCharsets.UTF_8);
+                    total += values[i].length;
+                }
+            }
+            out.putLong(head + total);
+            putValidity(out, nulls, validity);
+            for (byte[] v : values) out.putInt(v == null ? -1 : v.length);
+            for (byte[] v : values) {
+                if (v != null) out.put(v, 0, v.length);
+            }
+        }
+        out.pad();
+    }
+
+    private static void putValidity(Output out, int nulls, long[] validity) throws IOException {
+        out.putInt(nulls).putInt(0);
+        if (nulls > 0) {
+            for (long word : validity) out.putLong(word);
+        }
+    }
+
+    /**
+     * Read a block written by writeBlock at the given position.
+     */
+    static Column readBlock(FileChannel ch, long pos, String name, String type, int nrow) throws IOException {
+        int nulls = map(ch, pos + 8, 4).getInt();
+        pos += 16;
+        long[] validity = null;
+        if (nulls > 0) {
+            validity = Bits.clear(nrow);
+            map(ch, pos, 8L * validity.length).asLongBuffer().get(validity);
+            pos += 8L * validity.length;
+        }
+        if (type.equals("dbl")) {
+            double[] dbls = new double[nrow];
+            for (int i = 0; i < nrow; ) {
+                int n = Math.min(nrow - i, MAX_MAP / 8);
+                map(ch, pos + 8L * i, 8L * n).asDoubleBuffer().get(dbls, i, n);
+                i += n;
+            }
+            return new Column(name, new ColumnData.Doubles(dbls), validity);
+        } else if (type.equals("int")) {
+            int[] ints = new int[nrow];
+            for (int i = 0; i < nrow; ) {
+                int n = Math.min(nrow - i, MAX_MAP / 4);
+                map(ch, pos + 4L * i, 4L * n).asIntBuffer().get(ints, i, n);
+                i += n;
+            }
+            return new Column(name, new ColumnData.Ints(ints), validity);
+        } else if (type.equals("str")) {
+            return new Column(name, new ColumnData.Strings(readStrs(ch, pos, nrow)), validity);
+        }
+        throw new IOException("Unknown column type " + type + " of column " + name);
+    }
+
+    private static String[] readStrs(FileChannel ch, long pos, int nrow) throws IOException {
+        int[] lengths = new int[nrow];
+        for (int i = 0; i < nrow; ) {
+            int n = Math.min(nrow - i, MAX_MAP / 4);
+            map(ch, pos + 4L * i, 4L * n).asIntBuffer().get(lengths, i, n);
+            i += n;
+        }
+        pos += 4L * nrow;
+        String[] strs = new String[nrow];
+        ByteBuffer buf = null;
+        long bufStart = pos;
+        byte[] tmp = new byte[256];
+        for (int i = 0; i < nrow; i++) {
+            int len = lengths[i];
+            if (len < 0) continue;
+            if (buf == null || pos + len > bufStart + buf.limit()) {
+                bufStart = pos;
+                buf = map(ch, pos, Math.min(Math.max(len, MAX_MAP), ch.size() - pos));
+            }
+            if (len > tmp.length) tmp = new byte[Math.max(len, tmp.length * 2)];
+            buf.get((int) (pos - bufStart), tmp, 0, len);
+            strs[i] = new String(tmp, 0, len, StandardCharsets.UTF_8);
+            pos += len;
+        }
+        return strs;
+    }
+
+    static ByteBuffer map(FileChannel ch, long pos, long length) throws IOException {
+        return ch.map(FileChannel.MapMode.READ_ONLY, pos, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static long align(long pos) {
+        return (pos + 7) & ~7L;
+    }
+
+    /**
+     * A little-endian buffered writer on a channel.
+     */
+    static final class Output {
+        private final WritableByteChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private long written;
+
+        Output(WritableByteChannel ch) {
+            this.ch = ch;
+        }
+
+        Output putInt(int v) throws IOException {
+            room(4).putInt(v);
+            return this;
+        }
+
+        Output putLong(long v) throws IOException {
+            room(8).putLong(v);
+            return this;
+        }
+
+        Output putDouble(double v) throws IOException {
+            room(8).putDouble(v);
+            return this;
+        }
+
+        Output putString(String s) throws IOException {
+            if (s == null) return putInt(-1);
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            return putInt(b.length).put(b, 0, b.length);
+        }
+
+        long position() {
+            return written + buf.position();
+        }
+
+        /**
+         * Put the values of the rows [from, to) of a double or int column, on the heap or off it.
+         */
+        void putNumbers(ColumnData data, int from, int to) throws IOException {
+            switch (data) {
+                case ColumnData.Doubles(double[] values) -> putDoubles(DoubleBuffer.wrap(values), from, to);
+                case ColumnData.OffHeapDoubles(DoubleBuffer values) -> putDoubles(values, from, to);
+                case ColumnData.Ints(int[] values) -> putInts(IntBuffer.wrap(values), from, to);
+                case ColumnData.OffHeapInts(IntBuffer values) -> putInts(values, from, to);
+                case ColumnData.EncodedInts ints -> putNumbers(ints.slice(from, to), 0, to - from);
+                case ColumnData.DictDoubles dict -> putNumbers(dict.slice(from, to), 0, to - from);
+                default -> throw new IllegalArgumentException("Only doubles and ints are written as numbers, got " + data.type().getName());
+            }
+        }
+
+        private void putDoubles(DoubleBuffer values, int from, int to) throws IOException {
+            for (int i = from; i < to; ) {
+                int n = Math.min(to - i, buf.remaining() / 8);
+                if (n == 0) {
+                    flush();
+                    continue;
+                }
+                buf.asDoubleBuffer().put(0, values, i, n);
+                buf.position(buf.position() + 8 * n);
+                i += n;
+            }
+        }
+
+        private void putInts(IntBuffer values, int from, int to) throws IOException {
+            for (int i = from; i < to; ) {
+                int n = Math.min(to - i, buf.remaining() / 4);
+                if (n == 0) {
+                    flush();
+                    continue;
+                }
+                buf.asIntBuffer().put(0, values, i, n);
+                buf.position(buf.position() + 4 * n);
+                i += n;
+            }
+        }
+
+        Output put(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, buf.capacity());
+                room(n).put(b, off, n);
+                off += n;
+                len -= n;
+            }
+            return this;
+        }
+
+        void pad() throws IOException {
+            long pos = position();
+            for (long i = pos; i < align(pos); i++) {
+                room(1).put((byte) 0);
+            }
+        }
+
+        private ByteBuffer room(int n) throws IOException {
+            if (buf.remaining() < n) flush();
+            return buf;
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                written += ch.write(buf);
+            }
+            buf.clear();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.jvcats.dataframe.base;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for bitmaps packed 64 rows to a long, the bit of row i being bit i % 64 of word i / 64.
+ * The bits after the last row are always clear, so that two bitmaps of the same rows can be compared word by word.
+ *
+ * @author henry
+ */
+final class Bits {
+    private Bits() {}
+
+    /**
+     * A bitmap of n rows with every bit clear.
+     */
+    static long[] clear(int n) {
+        return new long[(n + 63) >>> 6];
+    }
+
+    /**
+     * A bitmap of n rows with every bit set.
+     */
+    static long[] set(int n) {
+        long[] words = clear(n);
+        Arrays.fill(words, -1L);
+        if ((n & 63) != 0) words[words.length - 1] = (1L << n) - 1;
+        return words;
+    }
+
+    static boolean get(long[] words, int row) {
+        return (words[row >>> 6] & 1L << row) != 0;
+    }
+
+    static void set(long[] words, int row) {
+        words[row >>> 6] |= 1L << row;
+    }
+
+    static void clear(long[] words, int row) {
+        words[row >>> 6] &= ~(1L << row);
+    }
+
+    /**
+     * The number of set bits.
+     */
+    static int count(long[] words) {
+        int count = 0;
+        for (long word : words) count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * The bits of the given rows, in the given order.
+     */
+    static long[] gather(long[] words, int[] rows) {
+        long[] out = clear(rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            if (get(words, rows[i])) set(out, i);
+        }
+        return out;
+    }
+
+    /**
+     * The bits of the rows [from, to).
+     */
+    static long[] slice(long[] words, int from, int to) {
+        long[] out = clear(to - from);
+        for (int i = from; i < to; i++) {
+            if (get(words, i)) set(out, i - from);
+        }
+        return out;
+    }
+}
@@ -1,18 +1,45 @@
 package com.jvcats.dataframe.base;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.stream.IntStream;
 
 /**
  * A column of data in a DataFrame.
+ * The values are held by a ColumnData of the column type, so that operations over all rows dispatch once per column.
+ * Besides doubles, ints and strings, a column may hold longs, floats, shorts, bytes, booleans packed as bits,
+ * dates as days or timestamps as milliseconds.
+ * A string column may be categorical, storing a code for every row and the distinct values once as levels.
+ * A categorical column is read like any string column, and equality filters and grouping on it compare codes.
+ * Getting its string values as an array turns it into a plain string column, since the array may then be changed.
+ * A column may have a validity bitmap with one bit per row, a clear bit marking a missing value. Columns without
+ * missing values have no bitmap. Missing doubles may also be NaN and missing strings null, as isNull reports.
+ * Double, integer and long values may be moved off the heap with offHeap, and are then read and set in place by getDbl,
+ * setDbl and the like. Getting them as an array copies them back onto the heap, where the column then stays.
+ * Integer and double values may be compressed with compress, and string values stored as UTF-8 bytes.
+ * They are then read in place by getInt, getDbl and getStr,
+ * while getting them as an array or setting a value decodes them, and the column then stays decoded.
+ * Binding columns of the same type keeps the values of each as a chunk instead of copying them. The chunks are joined
+ * into one array by compact, which happens by itself the first time values are read by index. A view of a range of rows
+ * reads the values of the column it was taken from in place until it is compacted the same way, and so do the rows chosen
+ * by a filter or an order.
+ * A clone shares the values of the column it was cloned from, and either copies them before it is first changed,
+ * by a setter or by getting its values as an array.
  *
  * @author henry
  */
 public class Column {
     private String header;
-    private double[] dblObs;
-    private String[] strObs;
-    private int[] intObs;
+    private ColumnData data;
+    private long[] validity;
+    private boolean shared;
 
     public Column() {
 
@@ -26,7 +53,7 @@ public class Column {
      */
     public Column(String name, double... dbls) {
         this.header = name;
-        this.dblObs = dbls;
+        this.data = dbls == null ? null : new ColumnData.Doubles(dbls);
     }
 
     /**
@@ -37,7 +64,7 @@ public class Column {
      */
     public Column(String name, String... strs) {
         this.header = name;
-        this.strObs = strs;
+        this.data = strs == null ? null : new ColumnData.Strings(strs);
     }
 
     /**
@@ -48,59 +75,725 @@ public class Column {
      */
     public Column(String name, int... ints) {
         this.header = name;
-        this.intObs = ints;
+        this.data = ints == null ? null : new ColumnData.Ints(ints);
     }
 
     /**
-     * Convert the column to a DataFrame.
+     * Create a new column with a header and long values.
      *
-     * @return A new DataFrame with the column as the only column.
+     * @param name The header of the column.
+     * @param longs The long values of the column.
      */
-    public DataFrame asDataFrame() {
-        Column[] col = new Column[1];
-        if (this.getDbls() != null) col[0] = new Column(this.header, this.getDbls());
-        else if (this.strObs != null) {
-            col[0] = new Column(this.header, this.strObs);
-        } else if (this.intObs != null) {
-            col[0] = new Column(this.header, this.intObs);
+    public Column(String name, long... longs) {
+        this.header = name;
+        this.data = longs == null ? null : new ColumnData.Longs(longs);
+    }
+
+    /**
+     * Create a new column with a header and float values.
+     *
+     * @param name The header of the column.
+     * @param floats The float values of the column.
+     */
+    public Column(String name, float... floats) {
+        this.header = name;
+        this.data = floats == null ? null : new ColumnData.Floats(floats);
+    }
+
+    /**
+     * Create a new column with a header and short values.
+     *
+     * @param name The header of the column.
+     * @param shorts The short values of the column.
+     */
+    public Column(String name, short... shorts) {
+        this.header = name;
+        this.data = shorts == null ? null : new ColumnData.Shorts(shorts);
+    }
+
+    /**
+     * Create a new column with a header and byte values.
+     *
+     * @param name The header of the column.
+     * @param bytes The byte values of the column.
+     */
+    public Column(String name, byte... bytes) {
+        this.header = name;
+        this.data = bytes == null ? null : new ColumnData.Bytes(bytes);
+    }
+
+    /**
+     * Create a new column with a header and boolean values, which are stored as one bit each.
+     *
+     * @param name The header of the column.
+     * @param bools The boolean values of the column.
+     */
+    public Column(String name, boolean... bools) {
+        this.header = name;
+        this.data = bools == null ? null : ColumnData.Bools.of(bools);
+    }
+
+    Column(String name, ColumnData data) {
+        this.header = name;
+        this.data = data;
+    }
+
+    /**
+     * Create a new column with a validity bitmap, which is dropped if no row is missing.
+     */
+    Column(String name, ColumnData data, long[] validity) {
+        this.header = name;
+        this.data = data;
+        this.validity = validity == null || Bits.count(validity) == nrow() ? null : validity;
+    }
+
+    /**
+     * Create a new date column with a header and dates, which are stored as days since 1970-01-01.
+     *
+     * @param name The header of the column.
+     * @param dates The dates of the column.
+     * @return The date column.
+     */
+    public static Column dates(String name, LocalDate... dates) {
+        int[] days = new int[dates.length];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = Math.toIntExact(dates[i].toEpochDay());
         }
-        return (new DataFrame(col));
+        return new Column(name, new ColumnData.Dates(days));
     }
 
     /**
-     * Bind two columns together.
+     * Create a new timestamp column with a header and instants, which are stored as milliseconds since 1970-01-01T00:00:00Z.
      *
-     * @param col2 The second column to bind.
-     * @return A new column with the two columns bound together.
+     * @param name The header of the column.
+     * @param times The instants of the column.
+     * @return The timestamp column.
      */
-    public Column rbind(Column col2) {
-        if (this.getDbls() != null) {
-            double[] dbls = new double[this.nrow() + col2.nrow()];
-            for (int i = 0; i < this.nrow(); i++) {
-                dbls[i] = this.dblObs[i];
+    public static Column timestamps(String name, Instant... times) {
+        long[] millis = new long[times.length];
+        for (int i = 0; i < millis.length; i++) {
+            millis[i] = times[i].toEpochMilli();
+        }
+        return new Column(name, new ColumnData.Timestamps(millis));
+    }
+
+    /**
+     * Create a new categorical column with a header, the codes of the rows and the levels the codes refer to.
+     * A code of -1 is a missing (null) value.
+     *
+     * @param name The header of the column.
+     * @param codes The code of every row, an index into the levels or -1.
+     * @param levels The distinct values of the column.
+     * @return The categorical column.
+     */
+    public static Column categorical(String name, int[] codes, String[] levels) {
+        for (int code : codes) {
+            if (code < -1 || code >= levels.length) {
+                throw new IllegalArgumentException("Code " + code + " is not a level of column " + name);
             }
-            for (int i = this.nrow(); i < this.nrow() + col2.nrow(); i++) {
-                dbls[i] = col2.dblObs[i - this.nrow()];
+        }
+        return new Column(name, new ColumnData.Categorical(codes, levels));
+    }
+
+    /**
+     * Create a new categorical column with a header and string values, using the values in order of first appearance as levels.
+     *
+     * @param name The header of the column.
+     * @param strs The string values of the column.
+     * @return The categorical column.
+     */
+    public static Column categorical(String name, String... strs) {
+        return encode(name, strs, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Encode string values as a categorical column if they have at most maxLevels distinct values, or keep them as they are.
+     */
+    static Column encode(String name, String[] strs, int maxLevels) {
+        if (maxLevels <= 0) return new Column(name, strs);
+        HashMap<String, Integer> index = new HashMap<>();
+        ArrayList<String> levels = new ArrayList<>();
+        int[] codes = new int[strs.length];
+        for (int i = 0; i < strs.length; i++) {
+            if (strs[i] == null) {
+                codes[i] = -1;
+                continue;
             }
-            this.dblObs = dbls;
-        } else if (this.getStrs() != null) {
-            String[] strs = new String[this.nrow() + col2.nrow()];
-            for (int i = 0; i < this.nrow(); i++) {
-                strs[i] = this.strObs[i];
+            Integer code = index.get(strs[i]);
+            if (code == null) {
+                if (levels.size() == maxLevels) return new Column(name, strs);
+                code = levels.size();
+                index.put(strs[i], code);
+                levels.add(strs[i]);
             }
-            for (int i = this.nrow(); i < this.nrow() + col2.nrow(); i++) {
-                strs[i] = col2.strObs[i - this.nrow()];
+            codes[i] = code;
+        }
+        return new Column(name, new ColumnData.Categorical(codes, levels.toArray(new String[0])));
+    }
+
+    /**
+     * Join the parts of a column as values of the given type. Parts which all have the type are kept as chunks without copying.
+     * Otherwise the parts are joined with one allocation: int parts of a long column, and int or long parts of a double column,
+     * are widened, and categorical parts stay categorical with their levels merged when all parts are categorical.
+     */
+    static Column concat(String name, ColumnType type, Column[] parts) {
+        boolean same = parts.length > 0;
+        ColumnData[] data = new ColumnData[parts.length];
+        for (int k = 0; k < parts.length; k++) {
+            data[k] = parts[k].data;
+            same &= data[k] != null && data[k].type() == type && data[k].plain() == data[k];
+        }
+        if (same) {
+            Column joined = new Column(name, ColumnData.Chunks.of(data), validity(parts));
+            for (Column part : parts) part.shared = true;
+            joined.shared = !(joined.data instanceof ColumnData.Chunks);
+            return joined;
+        }
+        Column joined = concatOnHeap(name, type, parts);
+        if (parts.length > 0 && parts[0].isOffHeap()) joined.offHeap();
+        return joined;
+    }
+
+    /**
+     * The validity bitmap of the rows of all parts in order, or null if no part has missing values.
+     */
+    private static long[] validity(Column[] parts) {
+        int nrow = 0;
+        boolean missing = false;
+        for (Column part : parts) {
+            nrow += part.nrow();
+            missing |= part.validity != null;
+        }
+        if (!missing) return null;
+        long[] validity = Bits.clear(nrow);
+        int pos = 0;
+        for (Column part : parts) {
+            for (int i = 0; i < part.nrow(); i++, pos++) {
+                if (part.isValid(i)) Bits.set(validity, pos);
+            }
+        }
+        return validity;
+    }
+
+    private static Column concatOnHeap(String name, ColumnType type, Column[] parts) {
+        int nrow = 0;
+        ColumnData[] data = new ColumnData[parts.length];
+        for (int k = 0; k < parts.length; k++) {
+            nrow += parts[k].nrow();
+            data[k] = parts[k].data.compact().onHeap().plain();
+        }
+        long[] validity = validity(parts);
+        int pos = 0;
+        if (type == ColumnType.DBL) {
+            double[] dbls = new double[nrow];
+            for (ColumnData part : data) {
+                switch (part) {
+                    case ColumnData.Ints ints -> {
+                        for (int v : ints.values()) dbls[pos++] = v;
+                    }
+                    case ColumnData.Longs longs -> {
+                        for (long v : longs.values()) dbls[pos++] = v;
+                    }
+                    default -> {
+                        double[] src = ((ColumnData.Doubles) part).values();
+                        System.arraycopy(src, 0, dbls, pos, src.length);
+                        pos += src.length;
+                    }
+                }
             }
-            this.strObs = strs;
-        } else if (this.getInts() != null) {
-            int[] ints = new int[this.nrow() + col2.nrow()];
-            for (int i = 0; i < this.nrow(); i++) {
-                ints[i] = this.intObs[i];
+            return new Column(name, new ColumnData.Doubles(dbls), validity);
+        } else if (type == ColumnType.LONG) {
+            long[] longs = new long[nrow];
+            for (ColumnData part : data) {
+                if (part instanceof ColumnData.Ints ints) {
+                    for (int v : ints.values()) longs[pos++] = v;
+                } else {
+                    long[] src = ((ColumnData.Longs) part).values();
+                    System.arraycopy(src, 0, longs, pos, src.length);
+                    pos += src.length;
+                }
             }
-            for (int i = this.nrow(); i < this.nrow() + col2.nrow(); i++) {
-                ints[i] = col2.intObs[i - this.nrow()];
+            return new Column(name, new ColumnData.Longs(longs), validity);
+        } else if (parts.length == 0) {
+            return new Column(name, ColumnData.empty(type));
+        }
+        return new Column(name, data[0].concat(Arrays.copyOfRange(data, 1, data.length)), validity);
+    }
+
+    /**
+     * Check if the column is a categorical column.
+     *
+     * @return True if the column stores codes and levels.
+     */
+    public boolean isCategorical() {
+        return this.flat() instanceof ColumnData.Categorical;
+    }
+
+    /**
+     * Get the codes of a categorical column, each an index into the levels or -1 for a missing value.
+     *
+     * @return The codes of the column, or null if it is not categorical.
+     */
+    public int[] getCodes() {
+        this.own();
+        return this.codes();
+    }
+
+    /**
+     * The codes for reading, without copying values shared with a clone.
+     */
+    int[] codes() {
+        return this.flat() instanceof ColumnData.Categorical cat ? cat.codes() : null;
+    }
+
+    /**
+     * Get the levels of a categorical column.
+     *
+     * @return The distinct values of the column, or null if it is not categorical.
+     */
+    public String[] getLevels() {
+        this.own();
+        return this.levels();
+    }
+
+    /**
+     * The levels for reading, without copying values shared with a clone.
+     */
+    String[] levels() {
+        return this.flat() instanceof ColumnData.Categorical cat ? cat.levels() : null;
+    }
+
+    /**
+     * Get the code of a value in a categorical column.
+     *
+     * @param str The value.
+     * @return The code of the value, or -1 if it is not a level.
+     */
+    public int codeOf(String str) {
+        String[] levels = this.levels();
+        if (str != null) {
+            for (int i = 0; i < levels.length; i++) {
+                if (str.equals(levels[i])) return i;
             }
-            this.intObs = ints;
+        }
+        return -1;
+    }
+
+    /**
+     * Check if the value at a specific index is missing: a clear bit in the validity bitmap, a NaN double or a null string.
+     *
+     * @param where The index of the value.
+     * @return True if the value is missing.
+     */
+    public boolean isNull(int where) {
+        int row = rPos(where);
+        if (!isValid(row)) return true;
+        return switch (this.flat()) {
+            case ColumnData.Doubles dbls -> Double.isNaN(dbls.values()[row]);
+            case ColumnData.OffHeapDoubles dbls -> Double.isNaN(dbls.values().get(row));
+            case ColumnData.DictDoubles dict -> Double.isNaN(dict.get(row));
+            case ColumnData.Strings strs -> strs.values()[row] == null;
+            case ColumnData.Utf8 utf8 -> utf8.isNull(row);
+            case ColumnData.Categorical cat -> cat.codes()[row] < 0;
+            default -> false;
+        };
+    }
+
+    /**
+     * Mark the value at a specific index as missing. Setting a value there marks it as present again.
+     *
+     * @param where The index of the value.
+     */
+    public void setNull(int where) {
+        int row = rPos(where);
+        this.own();
+        if (this.validity == null) this.validity = Bits.set(nrow());
+        Bits.clear(this.validity, row);
+    }
+
+    /**
+     * Check the validity bitmap of a row, ignoring NaN doubles and null strings.
+     */
+    boolean isValid(int row) {
+        return this.validity == null || Bits.get(this.validity, row);
+    }
+
+    /**
+     * The validity bitmap, or null if no row has been marked missing.
+     */
+    long[] validity() {
+        return this.validity;
+    }
+
+    private void setValid(int row) {
+        if (this.validity != null) Bits.set(this.validity, row);
+    }
+
+    /**
+     * Compare the values of two rows, missing values first, reading chunks, views and selections in place.
+     */
+    int compare(int i, int j) {
+        if (this.validity != null) {
+            boolean a = Bits.get(this.validity, i);
+            boolean b = Bits.get(this.validity, j);
+            if (!a || !b) return Boolean.compare(a, b);
+        }
+        return this.data.compare(i, j);
+    }
+
+    /**
+     * Order rows as compare does. Chunked values are compared on one compacted copy taken for the whole sort,
+     * since two rows of different chunks can only be compared after gathering them, and the column stays chunked.
+     */
+    Comparator<Integer> rowOrder() {
+        if (!(this.data instanceof ColumnData.Chunks chunks)) return this::compare;
+        Column compacted = new Column(this.header, chunks.compact(), this.validity);
+        return compacted::compare;
+    }
+
+    /**
+     * Get the string value at a specific index, without changing a categorical column.
+     *
+     * @param where The index of the value.
+     * @return The string value.
+     */
+    public String getStr(int where) {
+        if (this.flat() instanceof ColumnData.Categorical cat) return cat.get(rPos(where));
+        if (this.flat() instanceof ColumnData.Utf8 utf8) return utf8.get(rPos(where));
+        return ((ColumnData.Strings) this.flat()).values()[rPos(where)];
+    }
+
+    /**
+     * Check if the column holds string values, either plain or categorical.
+     */
+    boolean hasStrs() {
+        return this.data != null && this.data.type() == ColumnType.STR;
+    }
+
+    /**
+     * The string values of the column, decoded into a new array for a categorical or UTF-8 column, which stays as it is.
+     */
+    String[] decode() {
+        if (this.flat() instanceof ColumnData.Categorical cat) return cat.decode();
+        if (this.flat() instanceof ColumnData.Utf8 utf8) return ((ColumnData.Strings) utf8.plain()).values();
+        return this.flat() instanceof ColumnData.Strings strs ? strs.values() : null;
+    }
+
+    /**
+     * Get the type of the column.
+     *
+     * @return The type of the values, or null if the column has no values.
+     */
+    public ColumnType getType() {
+        return this.data == null ? null : this.data.type();
+    }
+
+    /**
+     * The values of the column, compacted if they are chunked, a view or a selection.
+     */
+    ColumnData data() {
+        return this.flat();
+    }
+
+    /**
+     * The values of the column as they are stored, which may be chunks, a view or a selection, for reading row by row.
+     */
+    ColumnData layout() {
+        return this.data;
+    }
+
+    private ColumnData flat() {
+        if (this.data instanceof ColumnData.Chunks || this.data instanceof ColumnData.View
+                || this.data instanceof ColumnData.Selection) this.compact();
+        return this.data;
+    }
+
+    /**
+     * Join the chunks of a column built by binding columns into one array, so that values are read without finding their chunk,
+     * and copy the rows of a view into their own array, so that the column no longer keeps the values it was taken from alive.
+     *
+     * @return The column itself.
+     */
+    public Column compact() {
+        if (this.data != null) this.data = this.data.compact();
+        return this;
+    }
+
+    /**
+     * Check if the values of the column are in one layout of their own, rather than chunks, a view or a selection.
+     *
+     * @return True if the values are compact.
+     */
+    public boolean isCompact() {
+        return !(this.data instanceof ColumnData.Chunks || this.data instanceof ColumnData.View
+                || this.data instanceof ColumnData.Selection);
+    }
+
+    /**
+     * Compress integer or double values with the encoding which takes the fewest bytes, if any takes fewer than the values,
+     * and store plain string values as UTF-8 bytes. Values of other types stay as they are.
+     *
+     * @return The column itself.
+     */
+    public Column compress() {
+        this.encode(null);
+        return this;
+    }
+
+    /**
+     * Compress the values with the given encoding, DICTIONARY for a double column, UTF8 for a string column
+     * and any other for an integer column.
+     *
+     * @param encoding The encoding.
+     * @return The column itself.
+     * @throws IllegalArgumentException if the values cannot be stored with the encoding.
+     */
+    public Column compress(Encoding encoding) {
+        ColumnType type = this.getType();
+        ColumnType expected = switch (encoding) {
+            case null -> null;
+            case DICTIONARY -> ColumnType.DBL;
+            case UTF8 -> ColumnType.STR;
+            default -> ColumnType.INT;
+        };
+        if (type != expected) {
+            throw new IllegalArgumentException("The column " + this.header + " cannot be compressed with " + encoding);
+        }
+        this.encode(encoding);
+        return this;
+    }
+
+    private void encode(Encoding encoding) {
+        if (this.getType() == ColumnType.INT) {
+            this.data = ColumnData.EncodedInts.encode(this.ints(), encoding);
+        } else if (this.getType() == ColumnType.DBL) {
+            this.data = ColumnData.DictDoubles.encode(this.dbls(), encoding);
+        } else if (this.getType() == ColumnType.STR && (encoding != null || this.flat() instanceof ColumnData.Strings)) {
+            this.data = ColumnData.Utf8.of(this.strs());
+        }
+    }
+
+    /**
+     * Decode compressed values back into an array.
+     *
+     * @return The column itself.
+     */
+    public Column decompress() {
+        if (this.data != null) this.data = this.data.plain();
+        return this;
+    }
+
+    /**
+     * Check if the values of the column are compressed.
+     *
+     * @return True if the values are stored with one of the encodings.
+     */
+    public boolean isCompressed() {
+        return this.data instanceof ColumnData.EncodedInts || this.data instanceof ColumnData.DictDoubles
+                || this.data instanceof ColumnData.Utf8;
+    }
+
+    /**
+     * Mark the rows whose integer or long value is present and in [lo, hi), reading compressed values without decoding them.
+     */
+    boolean[] intsIn(long lo, long hi) {
+        boolean[] out = new boolean[this.nrow()];
+        if (this.flat() instanceof ColumnData.EncodedInts encoded) {
+            encoded.in(lo, hi, out);
+        } else if (this.getType() == ColumnType.LONG) {
+            for (int i = 0; i < out.length; i++) out[i] = this.getLong(i) >= lo && this.getLong(i) < hi;
+        } else {
+            int[] ints = this.ints();
+            if (ints == null) throw this.notIntegral();
+            for (int i = 0; i < out.length; i++) out[i] = ints[i] >= lo && ints[i] < hi;
+        }
+        if (this.validity != null) {
+            for (int i = 0; i < out.length; i++) out[i] &= Bits.get(this.validity, i);
+        }
+        return out;
+    }
+
+    /**
+     * Mark the rows whose double value is present and in [lo, hi), reading dictionary encoded values without decoding them.
+     */
+    boolean[] dblsIn(double lo, double hi) {
+        boolean[] out = new boolean[this.nrow()];
+        if (this.flat() instanceof ColumnData.DictDoubles dict) {
+            dict.in(lo, hi, out);
+        } else {
+            double[] dbls = this.dbls();
+            for (int i = 0; i < out.length; i++) out[i] = dbls[i] >= lo && dbls[i] < hi;
+        }
+        if (this.validity != null) {
+            for (int i = 0; i < out.length; i++) out[i] &= Bits.get(this.validity, i);
+        }
+        return out;
+    }
+
+    /**
+     * The distinct present integer values in order of first appearance, found once per run for run-length encoded values.
+     */
+    int[] intUnique() {
+        if (this.flat() instanceof ColumnData.EncodedInts encoded) return encoded.distinct(this.validity);
+        int[] ints = this.ints();
+        return IntStream.range(0, ints.length).filter(this::isValid).map(i -> ints[i]).distinct().toArray();
+    }
+
+    /**
+     * Mark the rows whose string value equals the given string, comparing UTF-8 bytes without creating strings.
+     */
+    boolean[] strsEq(String base) {
+        return base == null ? new boolean[this.nrow()] : this.strsIn(new String[]{base});
+    }
+
+    /**
+     * Mark the rows whose string value is one of the given strings, null included. UTF-8 values are matched
+     * against every string encoded once, without creating strings.
+     */
+    boolean[] strsIn(String[] bases) {
+        boolean[] out = new boolean[this.nrow()];
+        if (this.flat() instanceof ColumnData.Utf8 utf8) {
+            for (String base : bases) {
+                if (base != null) {
+                    utf8.eq(base.getBytes(StandardCharsets.UTF_8), out);
+                } else {
+                    for (int i = 0; i < out.length; i++) out[i] |= utf8.isNull(i);
+                }
+            }
+        } else {
+            HashSet<String> set = new HashSet<>(Arrays.asList(bases));
+            String[] strs = this.strs();
+            for (int i = 0; i < out.length; i++) out[i] = set.contains(strs[i]);
+        }
+        return out;
+    }
+
+    /**
+     * The distinct string values in order of first appearance, null included, hashed as UTF-8 bytes for UTF-8 values.
+     */
+    String[] strUnique() {
+        if (this.flat() instanceof ColumnData.Utf8 utf8) return utf8.distinct();
+        return Arrays.stream(this.strs()).distinct().toArray(String[]::new);
+    }
+
+    /**
+     * Move double, integer or long values into direct memory off the heap, where the garbage collector neither scans
+     * nor copies them. The memory is released once the column is no longer reachable.
+     * Values of other types stay on the heap.
+     *
+     * @return The column itself.
+     */
+    public Column offHeap() {
+        if (this.data != null) this.data = this.data.offHeap();
+        return this;
+    }
+
+    /**
+     * Move the values of an off-heap column back into an array on the heap.
+     *
+     * @return The column itself.
+     */
+    public Column onHeap() {
+        if (this.data != null) this.data = this.data.onHeap();
+        return this;
+    }
+
+    /**
+     * Check if the values of the column are stored off the heap.
+     *
+     * @return True if the values are in direct memory.
+     */
+    public boolean isOffHeap() {
+        ColumnData first = this.data instanceof ColumnData.Chunks chunks ? chunks.chunks()[0] : this.data;
+        if (first instanceof ColumnData.View view) first = view.parent();
+        if (first instanceof ColumnData.Selection sel) first = sel.parent();
+        return first instanceof ColumnData.OffHeapDoubles || first instanceof ColumnData.OffHeapInts
+                || first instanceof ColumnData.OffHeapLongs;
+    }
+
+    /**
+     * A new column with the values of the given rows, in the given order.
+     */
+    Column gather(int[] rows) {
+        if (this.data == null) return new Column(this.header, (ColumnData) null);
+        return new Column(this.header, this.data.gather(rows), this.validity == null ? null : Bits.gather(this.validity, rows));
+    }
+
+    /**
+     * A column of the given rows, in the given order, which reads the values of this column in place.
+     * Both columns then copy the values before they are first changed.
+     */
+    Column select(int[] rows) {
+        if (this.data == null) return new Column(this.header, (ColumnData) null);
+        Column sel = new Column(this.header, ColumnData.Selection.of(this.data, rows),
+                this.validity == null ? null : Bits.gather(this.validity, rows));
+        sel.shared = this.shared = true;
+        return sel;
+    }
+
+    /**
+     * Keep only the values of the given rows, in the given order.
+     */
+    void gatherInPlace(int[] rows) {
+        if (this.data == null) return;
+        this.data = this.data.gather(rows);
+        if (this.validity != null) this.validity = Bits.gather(this.validity, rows);
+    }
+
+    /**
+     * A column of the rows [from, to) which reads the values of this column in place.
+     * Both columns then copy the values before they are first changed.
+     */
+    Column view(int from, int to) {
+        if (this.data == null) return new Column(this.header, (ColumnData) null);
+        Column view = new Column(this.header, ColumnData.View.of(this.data, from, to),
+                this.validity == null ? null : Bits.slice(this.validity, from, to));
+        view.shared = this.shared = true;
+        return view;
+    }
+
+    /**
+     * Keep only the values of the rows [from, to).
+     */
+    void sliceInPlace(int from, int to) {
+        if (this.data == null) return;
+        this.data = this.data.slice(from, to);
+        if (this.validity != null) this.validity = Bits.slice(this.validity, from, to);
+    }
+
+    /**
+     * The value of a row as String.valueOf would write it, "null" for a missing value,
+     * or an empty string if the column has no values.
+     */
+    String format(int row) {
+        if (this.data == null) return "";
+        if (!isValid(row)) return "null";
+        StringBuilder sb = new StringBuilder();
+        this.data.format(sb, row);
+        return sb.toString();
+    }
+
+    /**
+     * Convert the column to a DataFrame.
+     *
+     * @return A new DataFrame with the column as the only column.
+     */
+    public DataFrame asDataFrame() {
+        return (new DataFrame(new Column(this.header, this.data, this.validity)));
+    }
+
+    /**
+     * Bind two columns together. When both have the same type the values of each are kept as a chunk without copying.
+     *
+     * @param col2 The second column to bind.
+     * @return A new column with the two columns bound together.
+     */
+    public Column rbind(Column col2) {
+        if (this.data != null) {
+            Column joined = concat(this.header, this.data.type(), new Column[]{this, col2});
+            this.data = joined.data;
+            this.validity = joined.validity;
+            this.shared = joined.shared;
         }
         return (this);
     }
@@ -129,7 +822,30 @@ public class Column {
      * @return The double values of the column.
      */
     public double[] getDbls() {
-        return (this.dblObs);
+        this.own();
+        return this.dbls();
+    }
+
+    /**
+     * The double values for reading, without copying values shared with a clone.
+     */
+    double[] dbls() {
+        if (this.flat() instanceof ColumnData.OffHeapDoubles) this.onHeap();
+        if (this.flat() instanceof ColumnData.DictDoubles) this.decompress();
+        return this.flat() instanceof ColumnData.Doubles dbls ? dbls.values() : null;
+    }
+
+    /**
+     * Get the double value at a specific index, without moving an off-heap column onto the heap.
+     *
+     * @param where The index of the value.
+     * @return The double value.
+     */
+    public double getDbl(int where) {
+        int row = rPos(where);
+        if (this.flat() instanceof ColumnData.OffHeapDoubles dbls) return dbls.values().get(row);
+        if (this.flat() instanceof ColumnData.DictDoubles dict) return dict.get(row);
+        return ((ColumnData.Doubles) this.flat()).values()[row];
     }
 
     /**
@@ -139,7 +855,14 @@ public class Column {
      * @param where The index to set the value at.
      */
     public void setDbl(double dbl, int where) {
-        this.getDbls()[rPos(where)] = dbl;
+        int row = rPos(where);
+        this.own();
+        if (this.flat() instanceof ColumnData.OffHeapDoubles dbls) {
+            dbls.values().put(row, dbl);
+        } else {
+            this.getDbls()[row] = dbl;
+        }
+        setValid(row);
     }
 
     /**
@@ -148,16 +871,34 @@ public class Column {
      * @param dbls The new double values of the column.
      */
     public void setDblObs(double[] dbls) {
-        this.dblObs = dbls;
+        if (dbls != null) {
+            this.data = new ColumnData.Doubles(dbls);
+            this.validity = null;
+        } else if (this.flat() instanceof ColumnData.Doubles) {
+            this.data = null;
+            this.validity = null;
+        }
     }
 
     /**
-     * Get the string values of the column.
+     * Get the string values of the column. A categorical column is decoded and becomes a plain string column.
      *
      * @return The string values of the column.
      */
     public String[] getStrs() {
-        return (this.strObs);
+        this.own();
+        return this.strs();
+    }
+
+    /**
+     * The string values for reading, without copying values shared with a clone. A categorical column is decoded.
+     */
+    String[] strs() {
+        if (this.flat() instanceof ColumnData.Categorical cat) {
+            this.data = new ColumnData.Strings(cat.decode());
+        }
+        if (this.flat() instanceof ColumnData.Utf8) this.decompress();
+        return this.flat() instanceof ColumnData.Strings strs ? strs.values() : null;
     }
 
     /**
@@ -167,7 +908,9 @@ public class Column {
      * @param where The index to set the value at.
      */
     public void setStr(String str, int where) {
-        this.strObs[rPos(where)] = str;
+        int row = rPos(where);
+        this.getStrs()[row] = str;
+        setValid(row);
     }
 
     /**
@@ -176,7 +919,13 @@ public class Column {
      * @param strs The new string values of the column.
      */
     public void setStrObs(String[] strs) {
-        this.strObs = strs;
+        if (strs != null) {
+            this.data = new ColumnData.Strings(strs);
+            this.validity = null;
+        } else if (this.hasStrs()) {
+            this.data = null;
+            this.validity = null;
+        }
     }
 
     /**
@@ -185,7 +934,30 @@ public class Column {
      * @return The integer values of the column.
      */
     public int[] getInts() {
-        return (this.intObs);
+        this.own();
+        return this.ints();
+    }
+
+    /**
+     * The integer values for reading, without copying values shared with a clone.
+     */
+    int[] ints() {
+        if (this.flat() instanceof ColumnData.OffHeapInts) this.onHeap();
+        if (this.flat() instanceof ColumnData.EncodedInts) this.decompress();
+        return this.flat() instanceof ColumnData.Ints ints ? ints.values() : null;
+    }
+
+    /**
+     * Get the integer value at a specific index, without moving an off-heap column onto the heap.
+     *
+     * @param where The index of the value.
+     * @return The integer value.
+     */
+    public int getInt(int where) {
+        int row = rPos(where);
+        if (this.flat() instanceof ColumnData.OffHeapInts ints) return ints.values().get(row);
+        if (this.flat() instanceof ColumnData.EncodedInts ints) return ints.get(row);
+        return ((ColumnData.Ints) this.flat()).values()[row];
     }
 
     /**
@@ -195,7 +967,14 @@ public class Column {
      * @param where The index to set the value at.
      */
     public void setInt(int anInt, int where) {
-        this.intObs[rPos(where)] = anInt;
+        int row = rPos(where);
+        this.own();
+        if (this.flat() instanceof ColumnData.OffHeapInts ints) {
+            ints.values().put(row, anInt);
+        } else {
+            this.getInts()[row] = anInt;
+        }
+        setValid(row);
     }
 
     /**
@@ -204,7 +983,127 @@ public class Column {
      * @param ints The new integer values of the column.
      */
     public void setIntObs(int[] ints) {
-        this.intObs = ints;
+        if (ints != null) {
+            this.data = new ColumnData.Ints(ints);
+            this.validity = null;
+        } else if (this.flat() instanceof ColumnData.Ints) {
+            this.data = null;
+            this.validity = null;
+        }
+    }
+
+    /**
+     * Get the long values of the column.
+     *
+     * @return The long values of the column, or null if it is not a long column.
+     */
+    public long[] getLongs() {
+        this.own();
+        return this.longs();
+    }
+
+    /**
+     * The long values for reading, without copying values shared with a clone.
+     */
+    long[] longs() {
+        if (this.flat() instanceof ColumnData.OffHeapLongs) this.onHeap();
+        return this.flat() instanceof ColumnData.Longs longs ? longs.values() : null;
+    }
+
+    /**
+     * Get the long value at a specific index, without moving an off-heap column onto the heap.
+     *
+     * @param where The index of the value.
+     * @return The long value.
+     */
+    public long getLong(int where) {
+        int row = rPos(where);
+        if (this.flat() instanceof ColumnData.OffHeapLongs longs) return longs.values().get(row);
+        return ((ColumnData.Longs) this.flat()).values()[row];
+    }
+
+    /**
+     * Get the value of an integer or long column at a specific index, widened to long, so that the integer filters
+     * work on both.
+     *
+     * @throws IllegalArgumentException if the column holds neither integers nor longs.
+     */
+    long getIntegral(int where) {
+        if (this.getType() == ColumnType.LONG) return this.getLong(where);
+        if (this.getType() == ColumnType.INT) return this.getInt(where);
+        throw this.notIntegral();
+    }
+
+    private IllegalArgumentException notIntegral() {
+        return new IllegalArgumentException("The column " + this.header + " holds "
+                + (this.getType() == null ? "no" : this.getType().getName()) + " values, not integers");
+    }
+
+    /**
+     * Get the float values of the column.
+     *
+     * @return The float values of the column, or null if it is not a float column.
+     */
+    public float[] getFloats() {
+        this.own();
+        return this.flat() instanceof ColumnData.Floats floats ? floats.values() : null;
+    }
+
+    /**
+     * Get the short values of the column.
+     *
+     * @return The short values of the column, or null if it is not a short column.
+     */
+    public short[] getShorts() {
+        this.own();
+        return this.flat() instanceof ColumnData.Shorts shorts ? shorts.values() : null;
+    }
+
+    /**
+     * Get the byte values of the column.
+     *
+     * @return The byte values of the column, or null if it is not a byte column.
+     */
+    public byte[] getBytes() {
+        this.own();
+        return this.flat() instanceof ColumnData.Bytes bytes ? bytes.values() : null;
+    }
+
+    /**
+     * Get the boolean values of the column, unpacked into a new array.
+     *
+     * @return The boolean values of the column, or null if it is not a boolean column.
+     */
+    public boolean[] getBools() {
+        return this.flat() instanceof ColumnData.Bools bools ? bools.unpack() : null;
+    }
+
+    /**
+     * Get the dates of the column.
+     *
+     * @return The dates of the column, or null if it is not a date column.
+     */
+    public LocalDate[] getDates() {
+        if (!(this.flat() instanceof ColumnData.Dates dates)) return null;
+        LocalDate[] out = new LocalDate[dates.values().length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = LocalDate.ofEpochDay(dates.values()[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Get the timestamps of the column.
+     *
+     * @return The instants of the column, or null if it is not a timestamp column.
+     */
+    public Instant[] getTimestamps() {
+        if (!(this.flat() instanceof ColumnData.Timestamps times)) return null;
+        Instant[] out = new Instant[times.values().length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = Instant.ofEpochMilli(times.values()[i]);
+        }
+        return out;
     }
 
     /**
@@ -213,11 +1112,7 @@ public class Column {
      * @return The number of rows in the column.
      */
     public int nrow() {
-        int rowNum = 0;
-        if (this.getDbls() != null) rowNum = this.getDbls().length;
-        else if (this.getStrs() != null) rowNum = this.getStrs().length;
-        else if (this.getInts() != null) rowNum = this.getInts().length;
-        return rowNum;
+        return this.data == null ? 0 : this.data.size();
     }
 
     /**
@@ -243,13 +1138,7 @@ public class Column {
             {
                 System.out.print("\u001B[36m" + (i + 1) + ":" + "\u001B[0m");
             }
-            if (this.getDbls() != null) {
-                System.out.print("\u001B[34m" + " / " + "\u001B[0m" + this.getDbls()[i]);
-            } else if (this.getStrs() != null) {
-                System.out.print("\u001B[34m" + " / " + "\u001B[0m" + this.getStrs()[i]);
-            } else if (this.getInts() != null) {
-                System.out.print("\u001B[34m" + " / " + "\u001B[0m" + this.getInts()[i]);
-            }
+            System.out.print("\u001B[34m" + " / " + "\u001B[0m" + this.format(i));
             System.out.println("");
         }
         if (showSize < this.nrow())
@@ -257,29 +1146,29 @@ public class Column {
     }
 
     /**
-     * Deep copy of the column.
+     * Copy a column. The values are shared with the old column until either is changed, so that cloning does not copy them.
      *
      * @param old The column to copy.
      * @return A new column with the same values as the old column.
      */
     public Column clone(Column old){
         this.header = old.header;
-        if(old.dblObs!=null){
-            this.dblObs = new double[old.dblObs.length];
-            System.arraycopy(old.dblObs, 0, this.dblObs, 0, old.dblObs.length);
-        }else if(old.strObs!=null){
-            this.strObs = new String[old.strObs.length];
-            for(int i=0; i<old.strObs.length; i++){
-                this.strObs[i] = old.strObs[i];
-            }
-        }else if(old.intObs!=null){
-            this.intObs = new int[old.intObs.length];
-            for(int i=0; i<old.intObs.length; i++){
-                this.intObs[i] = old.intObs[i];
-            }
-        }
+        this.data = old.data;
+        this.validity = old.validity;
+        this.shared = old.shared = true;
         return this;
     }
+
+    /**
+     * Copy the values and validity bitmap if they may be shared, before they are changed or handed out as an array.
+     * Either side of a clone copies them at most once, after which it owns its values.
+     */
+    private void own() {
+        if (!this.shared) return;
+        if (this.data != null) this.data = this.data.copy();
+        if (this.validity != null) this.validity = this.validity.clone();
+        this.shared = false;
+    }
     private int rPos(int i) {
         int ind = i < 0 ? this.nrow() + i : i;
         if(ind >= this.nrow()){
@@ -299,7 +1188,11 @@ public class Column {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Column column = (Column) o;
-        return Objects.equals(header, column.header) && Objects.deepEquals(dblObs, column.dblObs) && Objects.deepEquals(strObs, column.strObs) && Objects.deepEquals(intObs, column.intObs);
+        if (!Arrays.equals(validityOrNull(), column.validityOrNull())) return false;
+        if (hasStrs() && column.hasStrs()) {
+            return Objects.equals(header, column.header) && Arrays.equals(decode(), column.decode());
+        }
+        return Objects.equals(header, column.header) && Objects.equals(onHeapData(), column.onHeapData());
     }
 
     /**
@@ -309,6 +1202,17 @@ public class Column {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(header, Arrays.hashCode(dblObs), Arrays.hashCode(strObs), Arrays.hashCode(intObs));
+        return Objects.hash(header, hasStrs() ? Arrays.hashCode(decode()) : Objects.hashCode(onHeapData()), Arrays.hashCode(validityOrNull()));
+    }
+
+    private ColumnData onHeapData() {
+        return this.data == null ? null : this.data.compact().onHeap().plain();
+    }
+
+    /**
+     * The validity bitmap, or null if no row is missing, even after missing rows have been set again.
+     */
+    private long[] validityOrNull() {
+        return this.validity == null || Bits.count(this.validity) == nrow() ? null : this.validity;
     }
 }
@@ -0,0 +1,859 @@
+package com.jvcats.dataframe.base;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A growable buffer holding the values of one column while a table is being read.
+ * The column type is inferred on the fly with the same rules as the former string based inference:
+ * a column starts as "int", becomes "dbl" once a value has a decimal point and becomes "str" once a value is not a number.
+ * Values are parsed from their bytes into primitive arrays right away, and the text of a value is only kept when it could not be
+ * rebuilt from the stored number (e.g. "1.50" or "007"), so that a later change to "str" gives back the original text.
+ * A buffer may also start from a type inferred from sampled rows, or have its type fixed by the caller.
+ * An "int" column whose values do not all fit an int becomes "long" when they fit a long, and, when asked for by
+ * ReadOptions.inferBoolsAndDates, a "str" column whose values are all booleans, or all ISO dates, becomes "bool" or "date".
+ * An empty value in an int, long, boolean or date column is kept as an empty text and becomes a clear bit
+ * in the validity bitmap of the column; in a double column it is NaN and in a string column an empty string.
+ *
+ * @author henry
+ */
+class ColumnBuffer {
+    static final int INT = 0;
+    static final int DBL = 1;
+    static final int STR = 2;
+    static final int LONG = 3;
+    static final int BOOL = 4;
+    static final int DATE = 5;
+    /**
+     * The result of parseDate for a value which is not a date.
+     */
+    static final int NOT_DATE = Integer.MIN_VALUE;
+
+    static final byte C_OTHER = 0;
+    static final byte C_DIGIT = 1;
+    static final byte C_POINT = 2;
+    static final byte C_MINUS = 3;
+    /**
+     * The class of every byte value, so that a value is classified with one table lookup per byte.
+     */
+    static final byte[] CHAR_CLASS = new byte[256];
+
+    static {
+        for (int c = '0'; c <= '9'; c++) CHAR_CLASS[c] = C_DIGIT;
+        CHAR_CLASS['.'] = C_POINT;
+        CHAR_CLASS['-'] = C_MINUS;
+    }
+
+    private static final long NOT_CANONICAL = Long.MIN_VALUE;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private boolean fixed;
+    private ReadOptions.Escalation escalation;
+    private int type = INT;
+    private int size;
+    private boolean missing;
+    private boolean unfit;
+    private int[] ints;
+    private long[] longs;
+    private double[] dbls;
+    private String[] strs;
+    private BitSet intLike;
+    private int[] rawRows;
+    private String[] rawTexts;
+    private int rawCount;
+
+    ColumnBuffer(int capacity) {
+        this.ints = new int[Math.max(capacity, 16)];
+    }
+
+    /**
+     * Create a buffer for a column whose type is given instead of inferred.
+     * Values are then parsed like Integer.parseInt and Double.parseDouble would do, with NaN for unparsable doubles.
+     *
+     * @param capacity The initial capacity.
+     * @param fixedType INT, DBL, STR, LONG, BOOL or DATE.
+     */
+    ColumnBuffer(int capacity, int fixedType) {
+        this.fixed = true;
+        this.type = fixedType;
+        capacity = Math.max(capacity, 16);
+        if (holdsInts(fixedType)) {
+            this.ints = new int[capacity];
+        } else if (fixedType == LONG) {
+            this.longs = new long[capacity];
+        } else if (fixedType == DBL) {
+            this.dbls = new double[capacity];
+        } else {
+            this.strs = new String[capacity];
+        }
+    }
+
+    /**
+     * Create a buffer for a column whose type has been inferred from sampled rows.
+     * With WIDEN, the type keeps being inferred from the given type on; otherwise the type is fixed
+     * and a value which does not fit becomes missing (MISSING) or throws a NumberFormatException (FAIL).
+     * A long, boolean or date buffer keeps its type under WIDEN too, and keeps the text of a value which does not fit,
+     * so that toColumn can widen the column to "dbl" or "str". Empty values are missing under every escalation.
+     *
+     * @param capacity The initial capacity.
+     * @param type INT, DBL, STR, LONG, BOOL or DATE.
+     * @param escalation What to do with a value which does not fit the type.
+     */
+    ColumnBuffer(int capacity, int type, ReadOptions.Escalation escalation) {
+        this(capacity, type);
+        this.escalation = escalation;
+        if (escalation == ReadOptions.Escalation.WIDEN && type <= STR) {
+            this.fixed = false;
+            if (type == DBL) this.intLike = new BitSet(capacity);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int type() {
+        return type;
+    }
+
+    /**
+     * Append a value given as UTF-8 bytes. An empty value is a missing value.
+     * Plain numbers are parsed straight from the bytes; a String is only created for "str" values
+     * and for numbers whose text has to be kept.
+     *
+     * @param b The bytes.
+     * @param from The index of the first byte of the value.
+     * @param to The index after the last byte of the value.
+     */
+    void append(byte[] b, int from, int to) {
+        if (this.fixed) {
+            appendFixed(b, from, to);
+            return;
+        }
+        int tokenType = this.type == STR ? STR : classify(b, from, to);
+        if (tokenType > this.type) promote(tokenType);
+        if (this.type == STR) {
+            ensureCapacity();
+            this.strs[size++] = new String(b, from, to - from, StandardCharsets.UTF_8);
+            return;
+        }
+        if (from == to) {
+            this.missing = true;
+            appendRaw("", this.type == INT ? 0 : Double.NaN);
+            return;
+        }
+        if (tokenType == INT) {
+            long value = parseCanonicalInt(b, from, to);
+            if (value == NOT_CANONICAL) {
+                appendRaw(new String(b, from, to - from, StandardCharsets.UTF_8), this.type == INT ? 0 : Double.NaN);
+                return;
+            }
+            ensureCapacity();
+            if (this.type == INT) {
+                this.ints[size++] = (int) value;
+            } else {
+                this.intLike.set(size);
+                this.dbls[size++] = value;
+            }
+        } else {
+            double value = parseCanonicalDbl(b, from, to);
+            if (Double.isNaN(value)) {
+                String token = new String(b, from, to - from, StandardCharsets.UTF_8);
+                try {
+                    value = Double.parseDouble(token);
+                } catch (NumberFormatException e) {
+                    value = Double.NaN;
+                }
+                appendRaw(token, value);
+                return;
+            }
+            ensureCapacity();
+            this.dbls[size++] = value;
+        }
+    }
+
+    private void appendFixed(byte[] b, int from, int to) {
+        ensureCapacity();
+        if (from == to && this.type != STR && this.type != DBL) {
+            this.missing = true;
+            appendRaw("", 0);
+        } else if (this.type == STR) {
+            this.strs[size++] = new String(b, from, to - from, StandardCharsets.UTF_8);
+        } else if (this.type == LONG) {
+            long value = parsePlainLong(b, from, to);
+            if (value != NOT_CANONICAL) {
+                this.longs[size++] = value;
+                return;
+            }
+            String token = new String(b, from, to - from, StandardCharsets.UTF_8);
+            try {
+                this.longs[size] = Long.parseLong(token);
+                size++;
+            } catch (NumberFormatException e) {
+                misfit(token, e);
+            }
+        } else if (this.type == BOOL) {
+            if (matches(b, from, to, "true") || matches(b, from, to, "false")) {
+                this.ints[size++] = to - from == 4 ? 1 : 0;
+                return;
+            }
+            String token = new String(b, from, to - from, StandardCharsets.UTF_8);
+            if (token.equalsIgnoreCase("true") || token.equalsIgnoreCase("false")) {
+                this.ints[size] = token.length() == 4 ? 1 : 0;
+                appendRaw(token, 0);
+                return;
+            }
+            misfit(token, new NumberFormatException("For input string: \"" + token + "\""));
+        } else if (this.type == DATE) {
+            int day = parseDate(b, from, to);
+            if (day != NOT_DATE) {
+                this.ints[size++] = day;
+                return;
+            }
+            String token = new String(b, from, to - from, StandardCharsets.UTF_8);
+            misfit(token, new NumberFormatException("For input string: \"" + token + "\""));
+        } else if (this.type == INT) {
+            long value = parsePlainInt(b, from, to);
+            if (value != NOT_CANONICAL) {
+                this.ints[size++] = (int) value;
+                return;
+            }
+            String token = new String(b, from, to - from, StandardCharsets.UTF_8);
+            if (this.escalation == null) {
+                this.ints[size++] = Integer.parseInt(token);
+                return;
+            }
+            try {
+                this.ints[size] = Integer.parseInt(token);
+                size++;
+            } catch (NumberFormatException e) {
+                if (this.escalation == ReadOptions.Escalation.FAIL) throw e;
+                this.missing = true;
+                appendRaw("", 0);
+            }
+        } else {
+            double value = parsePlainDbl(b, from, to);
+            if (Double.isNaN(value)) {
+                try {
+                    value = Double.parseDouble(new String(b, from, to - from, StandardCharsets.UTF_8));
+                } catch (NumberFormatException e) {
+                    if (from != to && this.escalation == ReadOptions.Escalation.FAIL) throw e;
+                    value = Double.NaN;
+                }
+            }
+            this.dbls[size++] = value;
+        }
+    }
+
+    /**
+     * Handle a non-empty value which does not fit a long, boolean or date buffer: throw without an escalation or with FAIL,
+     * keep its text under WIDEN, and keep it as a missing value under MISSING.
+     */
+    private void misfit(String token, NumberFormatException e) {
+        if (this.escalation == null || this.escalation == ReadOptions.Escalation.FAIL) throw e;
+        if (this.escalation == ReadOptions.Escalation.WIDEN) {
+            this.unfit = true;
+            appendRaw(token, 0);
+        } else {
+            this.missing = true;
+            appendRaw("", 0);
+        }
+    }
+
+    /**
+     * Turn the buffer into a Column, parsing the kept texts into the final type.
+     * Strings with at most maxLevels distinct values, and at most one for every two rows, become a categorical column.
+     *
+     * @param header The header of the column.
+     * @param maxLevels The largest number of levels of a categorical column.
+     * @param boolsAndDates True to turn strings which are all booleans, or all ISO dates, into a bool or date column.
+     * @return The column.
+     */
+    Column toColumn(String header, int maxLevels, boolean boolsAndDates) {
+        if (this.type == INT && !rawsFitInt()) {
+            if (rawsFitLong()) {
+                promote(LONG);
+            } else {
+                System.out.println(
+                        "Warning: Integer column \"" + header + "\" has been changed into double type due to values beyond the long range"
+                );
+                promote(DBL);
+            }
+        } else if (this.type == LONG && this.unfit) {
+            if (rawsFitDbl()) {
+                System.out.println(
+                        "Warning: Long column \"" + header + "\" has been changed into double type due to values which are not longs"
+                );
+                promote(DBL);
+            } else {
+                promote(STR);
+            }
+        } else if ((this.type == BOOL || this.type == DATE) && this.unfit) {
+            System.out.println(
+                    "Warning: " + (this.type == BOOL ? "Boolean" : "Date") + " column \"" + header
+                            + "\" has been changed into string type due to unreadable values"
+            );
+            promote(STR);
+        }
+        if (this.type == STR && !this.fixed && boolsAndDates) narrowText();
+        if (this.type == STR) {
+            return Column.encode(header, trim(this.strs), Math.min(maxLevels, size / 2));
+        } else if (this.type == DBL) {
+            for (int k = 0; k < rawCount; k++) {
+                try {
+                    this.dbls[rawRows[k]] = Double.parseDouble(rawTexts[k]);
+                } catch (NumberFormatException e) {
+                    this.dbls[rawRows[k]] = Double.NaN;
+                }
+            }
+            return new Column(header, trim(this.dbls));
+        } else if (this.type == LONG) {
+            for (int k = 0; k < rawCount; k++) {
+                if (!rawTexts[k].isEmpty()) this.longs[rawRows[k]] = Long.parseLong(rawTexts[k]);
+            }
+            return new Column(header, new ColumnData.Longs(trim(this.longs)), validity());
+        } else if (this.type == BOOL) {
+            return new Column(header, ColumnData.Bools.of(bools(size)), validity());
+        } else if (this.type == DATE) {
+            return new Column(header, new ColumnData.Dates(trim(this.ints)), validity());
+        }
+        for (int k = 0; k < rawCount; k++) {
+            if (!rawTexts[k].isEmpty()) this.ints[rawRows[k]] = Integer.parseInt(rawTexts[k]);
+        }
+        return new Column(header, new ColumnData.Ints(trim(this.ints)), validity());
+    }
+
+    /**
+     * The validity bitmap of an int, long, boolean or date column, clear for the rows kept as empty texts,
+     * or null if there are none.
+     */
+    private long[] validity() {
+        if (!this.missing) return null;
+        long[] words = Bits.set(size);
+        for (int k = 0; k < rawCount; k++) {
+            if (rawTexts[k].isEmpty()) Bits.clear(words, rawRows[k]);
+        }
+        return words;
+    }
+
+    /**
+     * Turn the strings into booleans if they are all "true" or "false" in any case, or into dates if they are all ISO dates.
+     * Empty strings are then missing values.
+     */
+    private void narrowText() {
+        if (size == 0) return;
+        boolean bools = true;
+        boolean dates = true;
+        for (int i = 0; i < size && (bools || dates); i++) {
+            String str = this.strs[i];
+            if (str.isEmpty()) continue;
+            bools &= str.equalsIgnoreCase("true") || str.equalsIgnoreCase("false");
+            dates &= str.length() == 10 && parseDate(str.getBytes(StandardCharsets.ISO_8859_1), 0, 10) != NOT_DATE;
+        }
+        if (!bools && !dates) return;
+        this.ints = new int[this.strs.length];
+        for (int i = 0; i < size; i++) {
+            if (this.strs[i].isEmpty()) {
+                this.missing = true;
+                keepRaw(i, "");
+                continue;
+            }
+            this.ints[i] = bools ? (this.strs[i].length() == 4 ? 1 : 0)
+                    : parseDate(this.strs[i].getBytes(StandardCharsets.ISO_8859_1), 0, 10);
+        }
+        this.strs = null;
+        this.type = bools ? BOOL : DATE;
+    }
+
+    /**
+     * Append all values of a column of the type of this buffer, which must have a fixed type,
+     * growing the arrays to at least twice their size when they are full.
+     * Missing values of an int, long, boolean or date column are kept as empty texts.
+     *
+     * @param col The column, whose values are copied.
+     */
+    void appendAll(Column col) {
+        int n = col.nrow();
+        int need = size + n;
+        if (holdsInts(this.type)) {
+            if (need > this.ints.length) this.ints = Arrays.copyOf(this.ints, Math.max(need, 2 * this.ints.length));
+            switch (col.data()) {
+                case ColumnData.Bools bools -> {
+                    for (int i = 0; i < n; i++) this.ints[size + i] = bools.get(i) ? 1 : 0;
+                }
+                case ColumnData.Dates dates -> System.arraycopy(dates.values(), 0, this.ints, size, n);
+                default -> System.arraycopy(col.ints(), 0, this.ints, size, n);
+            }
+        } else if (this.type == LONG) {
+            if (need > this.longs.length) this.longs = Arrays.copyOf(this.longs, Math.max(need, 2 * this.longs.length));
+            System.arraycopy(col.longs(), 0, this.longs, size, n);
+        } else if (this.type == DBL) {
+            if (need > this.dbls.length) this.dbls = Arrays.copyOf(this.dbls, Math.max(need, 2 * this.dbls.length));
+            System.arraycopy(col.dbls(), 0, this.dbls, size, n);
+        } else {
+            if (need > this.strs.length) this.strs = Arrays.copyOf(this.strs, Math.max(need, 2 * this.strs.length));
+            System.arraycopy(col.decode(), 0, this.strs, size, n);
+        }
+        if (col.validity() != null && this.type != STR && this.type != DBL) {
+            this.missing = true;
+            for (int i = 0; i < n; i++) {
+                if (!col.isValid(i)) keepRaw(size + i, "");
+            }
+        }
+        size = need;
+    }
+
+    /**
+     * Copy the values into a Column, leaving the buffer as it is so that more values can be appended.
+     * Strings become a categorical column under the same rule as in toColumn.
+     *
+     * @param header The header of the column.
+     * @param maxLevels The largest number of levels of a categorical column.
+     * @return The column.
+     */
+    Column snapshot(String header, int maxLevels) {
+        if (this.type == STR) {
+            return Column.encode(header, Arrays.copyOf(this.strs, size), Math.min(maxLevels, size / 2));
+        } else if (this.type == DBL) {
+            return new Column(header, Arrays.copyOf(this.dbls, size));
+        } else if (this.type == LONG) {
+            return new Column(header, new ColumnData.Longs(Arrays.copyOf(this.longs, size)), validity());
+        } else if (this.type == BOOL) {
+            return new Column(header, ColumnData.Bools.of(bools(size)), validity());
+        } else if (this.type == DATE) {
+            return new Column(header, new ColumnData.Dates(Arrays.copyOf(this.ints, size)), validity());
+        }
+        return new Column(header, new ColumnData.Ints(Arrays.copyOf(this.ints, size)), validity());
+    }
+
+    /**
+     * Join buffers filled from consecutive parts of a file into one buffer, as if all values had been appended
+     * to a single buffer in order. The parts are brought to a common type first.
+     *
+     * @param parts The buffers in row order.
+     * @return The joined buffer.
+     */
+    static ColumnBuffer concat(ColumnBuffer[] parts) {
+        ColumnBuffer out = new ColumnBuffer(0);
+        int total = 0;
+        int raws = 0;
+        for (ColumnBuffer part : parts) {
+            out.fixed = part.fixed;
+            out.escalation = part.escalation;
+            out.type = Math.max(out.type, part.type);
+            out.missing |= part.missing;
+            out.unfit |= part.unfit;
+            total += part.size;
+            raws += part.rawCount;
+        }
+        for (ColumnBuffer part : parts) {
+            if (part.type < out.type) part.promote(out.type);
+        }
+        if (holdsInts(out.type)) {
+            out.ints = new int[Math.max(total, 16)];
+        } else if (out.type == LONG) {
+            out.ints = null;
+            out.longs = new long[Math.max(total, 16)];
+        } else if (out.type == DBL) {
+            out.ints = null;
+            out.dbls = new double[Math.max(total, 16)];
+            out.intLike = new BitSet(total);
+        } else {
+            out.ints = null;
+            out.strs = new String[Math.max(total, 16)];
+        }
+        if (out.type != STR && raws > 0) {
+            out.rawRows = new int[raws];
+            out.rawTexts = new String[raws];
+        }
+        for (ColumnBuffer part : parts) {
+            int offset = out.size;
+            if (holdsInts(out.type)) {
+                System.arraycopy(part.ints, 0, out.ints, offset, part.size);
+            } else if (out.type == LONG) {
+                System.arraycopy(part.longs, 0, out.longs, offset, part.size);
+            } else if (out.type == DBL) {
+                System.arraycopy(part.dbls, 0, out.dbls, offset, part.size);
+                if (part.intLike != null) {
+                    for (int i = part.intLike.nextSetBit(0); i >= 0; i = part.intLike.nextSetBit(i + 1)) {
+                        out.intLike.set(offset + i);
+                    }
+                }
+            } else {
+                System.arraycopy(part.strs, 0, out.strs, offset, part.size);
+            }
+            for (int k = 0; k < part.rawCount; k++) {
+                out.rawRows[out.rawCount] = offset + part.rawRows[k];
+                out.rawTexts[out.rawCount] = part.rawTexts[k];
+                out.rawCount++;
+            }
+            out.size += part.size;
+        }
+        return out;
+    }
+
+    /**
+     * Classify a value as INT (digits and at most one minus), DBL (the same with exactly one point) or STR.
+     */
+    static int classify(byte[] b, int from, int to) {
+        int points = 0;
+        int minus = 0;
+        for (int j = from; j < to; j++) {
+            switch (CHAR_CLASS[b[j] & 0xFF]) {
+                case C_DIGIT:
+                    break;
+                case C_POINT:
+                    if (++points >= 2) return STR;
+                    break;
+                case C_MINUS:
+                    if (++minus >= 2) return STR;
+                    break;
+                default:
+                    return STR;
+            }
+        }
+        return points == 1 ? DBL : INT;
+    }
+
+    /**
+     * Parse an int whose text is exactly what Integer.toString would give back, or return NOT_CANONICAL.
+     */
+    private static long parseCanonicalInt(byte[] b, int from, int to) {
+        boolean negative = b[from] == '-';
+        int start = negative ? from + 1 : from;
+        int digits = to - start;
+        if (digits == 0 || digits > 10) return NOT_CANONICAL;
+        if (b[start] == '0' && (digits > 1 || negative)) return NOT_CANONICAL;
+        long value = 0;
+        for (int j = start; j < to; j++) {
+            int d = b[j] - '0';
+            if (d < 0 || d > 9) return NOT_CANONICAL;
+            value = value * 10 + d;
+        }
+        value = negative ? -value : value;
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? value : NOT_CANONICAL;
+    }
+
+    /**
+     * Parse a double whose text is exactly what Double.toString would give back, or return NaN.
+     * This holds for plain decimals in the range [0.001, 10^7) with at most 15 significant digits and no redundant zeros.
+     * Such a value is m / 10^k with m below 2^53 and k at most 17, so one division gives the correctly rounded result.
+     */
+    private static double parseCanonicalDbl(byte[] b, int from, int to) {
+        boolean negative = b[from] == '-';
+        int start = negative ? from + 1 : from;
+        int point = -1;
+        for (int j = start; j < to; j++) {
+            if (b[j] == '.') {
+                point = j;
+                break;
+            }
+        }
+        if (point < 0) return Double.NaN;
+        int intDigits = point - start;
+        int fracDigits = to - point - 1;
+        if (intDigits < 1 || intDigits > 7 || fracDigits < 1) return Double.NaN;
+        if (b[start] == '0' && intDigits > 1) return Double.NaN;
+        if (fracDigits > 1 && b[to - 1] == '0') return Double.NaN;
+        if (b[start] == '0') {
+            int lead = point + 1;
+            while (lead < to && b[lead] == '0') lead++;
+            if (lead == to) {
+                if (fracDigits != 1) return Double.NaN;
+            } else if (lead - point - 1 > 2 || to - lead > 15) {
+                return Double.NaN;
+            }
+        } else if (intDigits + fracDigits > 15) {
+            return Double.NaN;
+        }
+        long m = 0;
+        for (int j = start; j < to; j++) {
+            if (j == point) continue;
+            int d = b[j] - '0';
+            if (d < 0 || d > 9) return Double.NaN;
+            m = m * 10 + d;
+        }
+        double value = m / POW10[fracDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse a double like Double.parseDouble, returning NaN for a value which is not a number.
+     */
+    static double parseDouble(byte[] b, int from, int to) {
+        double value = parsePlainDbl(b, from, to);
+        if (!Double.isNaN(value)) return value;
+        try {
+            return Double.parseDouble(new String(b, from, to - from, StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Parse an int of at most 9 digits with an optional minus sign, or return NOT_CANONICAL.
+     */
+    private static long parsePlainInt(byte[] b, int from, int to) {
+        boolean negative = from < to && b[from] == '-';
+        int start = negative ? from + 1 : from;
+        if (to - start < 1 || to - start > 9) return NOT_CANONICAL;
+        long value = 0;
+        for (int j = start; j < to; j++) {
+            int d = b[j] - '0';
+            if (d < 0 || d > 9) return NOT_CANONICAL;
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse a long of at most 18 digits with an optional minus sign, or return NOT_CANONICAL.
+     */
+    private static long parsePlainLong(byte[] b, int from, int to) {
+        boolean negative = from < to && b[from] == '-';
+        int start = negative ? from + 1 : from;
+        if (to - start < 1 || to - start > 18) return NOT_CANONICAL;
+        long value = 0;
+        for (int j = start; j < to; j++) {
+            int d = b[j] - '0';
+            if (d < 0 || d > 9) return NOT_CANONICAL;
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse an ISO date, yyyy-MM-dd, into days since 1970-01-01, or return NOT_DATE.
+     */
+    static int parseDate(byte[] b, int from, int to) {
+        if (to - from != 10 || b[from + 4] != '-' || b[from + 7] != '-') return NOT_DATE;
+        int year = 0;
+        for (int j = 0; j < 10; j++) {
+            if (j == 4 || j == 7) continue;
+            if (CHAR_CLASS[b[from + j] & 0xFF] != C_DIGIT) return NOT_DATE;
+            if (j < 4) year = year * 10 + (b[from + j] - '0');
+        }
+        int month = (b[from + 5] - '0') * 10 + (b[from + 6] - '0');
+        int day = (b[from + 8] - '0') * 10 + (b[from + 9] - '0');
+        if (month < 1 || month > 12 || day < 1 || day > YearMonth.of(year, month).lengthOfMonth()) return NOT_DATE;
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    private static boolean matches(byte[] b, int from, int to, String word) {
+        if (to - from != word.length()) return false;
+        for (int j = 0; j < word.length(); j++) {
+            if (b[from + j] != word.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parse a plain decimal of at most 15 digits with an optional minus sign, or return NaN.
+     * Other forms, e.g. exponents, "NaN" or "Infinity", are left to Double.parseDouble.
+     */
+    private static double parsePlainDbl(byte[] b, int from, int to) {
+        boolean negative = from < to && b[from] == '-';
+        int start = negative ? from + 1 : from;
+        int digits = 0;
+        int fracDigits = 0;
+        boolean point = false;
+        long m = 0;
+        for (int j = start; j < to; j++) {
+            byte c = b[j];
+            if (c >= '0' && c <= '9') {
+                if (++digits > 15) return Double.NaN;
+                m = m * 10 + (c - '0');
+                if (point) fracDigits++;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0) return Double.NaN;
+        double value = m / POW10[fracDigits];
+        return negative ? -value : value;
+    }
+
+    private boolean rawsFitLong() {
+        for (int k = 0; k < rawCount; k++) {
+            if (rawTexts[k].isEmpty()) continue;
+            try {
+                Long.parseLong(rawTexts[k]);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean rawsFitDbl() {
+        for (int k = 0; k < rawCount; k++) {
+            if (rawTexts[k].isEmpty()) continue;
+            try {
+                Double.parseDouble(rawTexts[k]);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean rawsFitInt() {
+        for (int k = 0; k < rawCount; k++) {
+            if (rawTexts[k].isEmpty()) continue;
+            try {
+                Integer.parseInt(rawTexts[k]);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void appendRaw(String token, double value) {
+        ensureCapacity();
+        if (this.type == INT) {
+            this.ints[size] = (int) value;
+        } else if (this.type == DBL) {
+            this.dbls[size] = value;
+        }
+        keepRaw(size, token);
+        size++;
+    }
+
+    private void keepRaw(int row, String token) {
+        if (rawRows == null) {
+            rawRows = new int[16];
+            rawTexts = new String[16];
+        } else if (rawCount == rawRows.length) {
+            rawRows = Arrays.copyOf(rawRows, rawCount * 2);
+            rawTexts = Arrays.copyOf(rawTexts, rawCount * 2);
+        }
+        rawRows[rawCount] = row;
+        rawTexts[rawCount] = token;
+        rawCount++;
+    }
+
+    private void promote(int newType) {
+        if (newType == LONG) {
+            this.longs = new long[this.ints.length];
+            for (int i = 0; i < size; i++) {
+                this.longs[i] = this.ints[i];
+            }
+            this.ints = null;
+        } else if (newType == DBL && this.type == LONG) {
+            this.dbls = new double[this.longs.length];
+            for (int i = 0; i < size; i++) {
+                this.dbls[i] = this.longs[i];
+            }
+            this.intLike = new BitSet();
+            this.longs = null;
+        } else if (newType == DBL) {
+            int capacity = this.ints.length;
+            this.dbls = new double[capacity];
+            for (int i = 0; i < size; i++) {
+                this.dbls[i] = this.ints[i];
+            }
+            this.intLike = new BitSet(capacity);
+            this.intLike.set(0, size);
+            this.ints = null;
+        } else if (newType == STR) {
+            int capacity = capacity();
+            this.strs = new String[capacity];
+            int k = 0;
+            for (int i = 0; i < size; i++) {
+                if (k < rawCount && rawRows[k] == i) {
+                    this.strs[i] = rawTexts[k++];
+                } else if (this.type == INT) {
+                    this.strs[i] = Integer.toString(this.ints[i]);
+                } else if (this.type == LONG) {
+                    this.strs[i] = Long.toString(this.longs[i]);
+                } else if (this.type == BOOL) {
+                    this.strs[i] = this.ints[i] != 0 ? "true" : "false";
+                } else if (this.type == DATE) {
+                    this.strs[i] = LocalDate.ofEpochDay(this.ints[i]).toString();
+                } else if (this.intLike.get(i)) {
+                    this.strs[i] = Integer.toString((int) this.dbls[i]);
+                } else {
+                    this.strs[i] = Double.toString(this.dbls[i]);
+                }
+            }
+            this.ints = null;
+            this.longs = null;
+            this.dbls = null;
+            this.intLike = null;
+            this.rawRows = null;
+            this.rawTexts = null;
+            this.rawCount = 0;
+        }
+        this.type = newType;
+    }
+
+    private void ensureCapacity() {
+        if (holdsInts(this.type)) {
+            if (size == this.ints.length) this.ints = Arrays.copyOf(this.ints, size * 2);
+        } else if (this.type == LONG) {
+            if (size == this.longs.length) this.longs = Arrays.copyOf(this.longs, size * 2);
+        } else if (this.type == DBL) {
+            if (size == this.dbls.length) this.dbls = Arrays.copyOf(this.dbls, size * 2);
+        } else if (size == this.strs.length) {
+            this.strs = Arrays.copyOf(this.strs, size * 2);
+        }
+    }
+
+    private int capacity() {
+        if (holdsInts(this.type)) return this.ints.length;
+        if (this.type == LONG) return this.longs.length;
+        return this.type == DBL ? this.dbls.length : this.strs.length;
+    }
+
+    /**
+     * Check if values of a type are held in the int array: ints, booleans as 0 or 1, and dates as days.
+     */
+    private static boolean holdsInts(int type) {
+        return type == INT || type == BOOL || type == DATE;
+    }
+
+    /**
+     * The buffer type holding the values of a column type.
+     */
+    static int typeOf(ColumnType type) {
+        return switch (type) {
+            case INT -> INT;
+            case DBL -> DBL;
+            case LONG -> LONG;
+            case BOOL -> BOOL;
+            case DATE -> DATE;
+            default -> STR;
+        };
+    }
+
+    private boolean[] bools(int n) {
+        boolean[] bools = new boolean[n];
+        for (int i = 0; i < n; i++) bools[i] = this.ints[i] != 0;
+        return bools;
+    }
+
+    private long[] trim(long[] arr) {
+        return arr.length == size ? arr : Arrays.copyOf(arr, size);
+    }
+
+    private int[] trim(int[] arr) {
+        return arr.length == size ? arr : Arrays.copyOf(arr, size);
+    }
+
+    private double[] trim(double[] arr) {
+        return arr.length == size ? arr : Arrays.copyOf(arr, size);
+    }
+
+    private String[] trim(String[] arr) {
+        return arr.length == size ? arr : Arrays.copyOf(arr, size);
+    }
+}
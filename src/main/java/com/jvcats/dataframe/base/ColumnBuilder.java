@@ -0,0 +1,377 @@
+package com.jvcats.dataframe.base;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * This class is used to build a column by appending values one at a time.
+ * The values are appended to a primitive array of the type of the column, which doubles its length when it is full,
+ * so that appending n values copies O(n) values in total. build hands the array over to the column, trimmed once if it is not full.
+ * A missing value is NaN in a double or float column, null in a string column, and a clear bit in the validity bitmap otherwise.
+ *
+ * @author henry
+ */
+public final class ColumnBuilder {
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private final String name;
+    private final ColumnType type;
+    private final int initialCapacity;
+    private int size;
+    private int[] ints;
+    private long[] longs;
+    private double[] dbls;
+    private float[] floats;
+    private short[] shorts;
+    private byte[] bytes;
+    private String[] strs;
+    private long[] words;
+    private long[] validity;
+
+    /**
+     * Create a builder for a column of the given type.
+     *
+     * @param name The header of the column.
+     * @param type The type of the column.
+     */
+    public ColumnBuilder(String name, ColumnType type) {
+        this(name, type, 16);
+    }
+
+    /**
+     * Create a builder for a column of the given type, with room for the given number of values before it grows.
+     *
+     * @param name The header of the column.
+     * @param type The type of the column.
+     * @param capacity The initial capacity.
+     */
+    public ColumnBuilder(String name, ColumnType type, int capacity) {
+        if (type == null) {
+            throw new IllegalArgumentException("The type of a column must not be null");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity must not be negative: " + capacity);
+        }
+        this.name = name;
+        this.type = type;
+        this.initialCapacity = Math.max(capacity, 16);
+        allocate(this.initialCapacity);
+    }
+
+    /**
+     * Get the header of the column being built.
+     *
+     * @return The header.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the type of the column being built.
+     *
+     * @return The type.
+     */
+    public ColumnType getType() {
+        return type;
+    }
+
+    /**
+     * Get the number of values appended since the builder was created or last built.
+     *
+     * @return The number of values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Append an integer value. It is widened for a long, double or float column, and checked to fit a short or byte column.
+     *
+     * @param value The value.
+     * @return The builder itself.
+     */
+    public ColumnBuilder appendInt(int value) {
+        switch (type) {
+            case INT -> {
+                grow();
+                ints[size] = value;
+            }
+            case SHORT -> {
+                if (value != (short) value) {
+                    throw new IllegalArgumentException("The value " + value + " does not fit the short column " + name);
+                }
+                grow();
+                shorts[size] = (short) value;
+            }
+            case BYTE -> {
+                if (value != (byte) value) {
+                    throw new IllegalArgumentException("The value " + value + " does not fit the byte column " + name);
+                }
+                grow();
+                bytes[size] = (byte) value;
+            }
+            case LONG -> {
+                return appendLong(value);
+            }
+            case DBL -> {
+                return appendDouble(value);
+            }
+            case FLOAT -> {
+                return appendFloat(value);
+            }
+            default -> throw mismatch("an int");
+        }
+        return added(true);
+    }
+
+    /**
+     * Append a long value. It is widened for a double column.
+     *
+     * @param value The value.
+     * @return The builder itself.
+     */
+    public ColumnBuilder appendLong(long value) {
+        if (type == ColumnType.DBL) return appendDouble(value);
+        if (type != ColumnType.LONG) throw mismatch("a long");
+        grow();
+        longs[size] = value;
+        return added(true);
+    }
+
+    /**
+     * Append a double value. NaN is a missing value.
+     *
+     * @param value The value.
+     * @return The builder itself.
+     */
+    public ColumnBuilder appendDouble(double value) {
+        if (type != ColumnType.DBL) throw mismatch("a double");
+        grow();
+        dbls[size] = value;
+        return added(true);
+    }
+
+    /**
+     * Append a float value. It is widened for a double column.
+     *
+     * @param value The value.
+     * @return The builder itself.
+     */
+    public ColumnBuilder appendFloat(float value) {
+        if (type == ColumnType.DBL) return appendDouble(value);
+        if (type != ColumnType.FLOAT) throw mismatch("a float");
+        grow();
+        floats[size] = value;
+        return added(true);
+    }
+
+    /**
+     * Append a string value. Null is a missing value.
+     *
+     * @param value The value.
+     * @return The builder itself.
+     */
+    public ColumnBuilder appendString(String value) {
+        if (type != ColumnType.STR) throw mismatch("a string");
+        grow();
+        strs[size] = value;
+        return added(true);
+    }
+
+    /**
+     * Append a boolean value.
+     *
+     * @param value The value.
+     * @return The builder itself.
+     */
+    public ColumnBuilder appendBool(boolean value) {
+        if (type != ColumnType.BOOL) throw mismatch("a boolean");
+        grow();
+        if (value) Bits.set(words, size);
+        return added(true);
+    }
+
+    /**
+     * Append a date value.
+     *
+     * @param value The date, not null.
+     * @return The builder itself.
+     */
+    public ColumnBuilder appendDate(LocalDate value) {
+        if (type != ColumnType.DATE) throw mismatch("a date");
+        grow();
+        ints[size] = Math.toIntExact(value.toEpochDay());
+        return added(true);
+    }
+
+    /**
+     * Append a timestamp value, kept to the millisecond.
+     *
+     * @param value The timestamp, not null.
+     * @return The builder itself.
+     */
+    public ColumnBuilder appendTimestamp(Instant value) {
+        if (type != ColumnType.TIMESTAMP) throw mismatch("a timestamp");
+        grow();
+        longs[size] = value.toEpochMilli();
+        return added(true);
+    }
+
+    /**
+     * Append a missing value.
+     *
+     * @return The builder itself.
+     */
+    public ColumnBuilder appendNull() {
+        switch (type) {
+            case DBL -> {
+                return appendDouble(Double.NaN);
+            }
+            case FLOAT -> {
+                return appendFloat(Float.NaN);
+            }
+            case STR -> {
+                return appendString(null);
+            }
+            default -> {
+                grow();
+                return added(false);
+            }
+        }
+    }
+
+    /**
+     * Append a value of any supported Java type: Integer, Long, Double, Float, Short, Byte, String, Boolean, LocalDate or Instant.
+     * Null is a missing value.
+     *
+     * @param value The value.
+     * @return The builder itself.
+     */
+    public ColumnBuilder append(Object value) {
+        return switch (value) {
+            case null -> appendNull();
+            case Integer i -> appendInt(i);
+            case Short s -> appendInt(s);
+            case Byte b -> appendInt(b);
+            case Long l -> appendLong(l);
+            case Double d -> appendDouble(d);
+            case Float f -> appendFloat(f);
+            case String s -> appendString(s);
+            case Boolean b -> appendBool(b);
+            case LocalDate d -> appendDate(d);
+            case Instant t -> appendTimestamp(t);
+            default -> throw new IllegalArgumentException("Cannot append a " + value.getClass().getSimpleName() + " to the column " + name);
+        };
+    }
+
+    /**
+     * Build the column from the appended values. The array of values is handed over to the column, and the builder
+     * starts again from an empty array, so that later appends do not change the column.
+     *
+     * @return The column.
+     */
+    public Column build() {
+        ColumnData data = switch (type) {
+            case INT -> new ColumnData.Ints(size == ints.length ? ints : Arrays.copyOf(ints, size));
+            case DATE -> new ColumnData.Dates(size == ints.length ? ints : Arrays.copyOf(ints, size));
+            case LONG -> new ColumnData.Longs(size == longs.length ? longs : Arrays.copyOf(longs, size));
+            case TIMESTAMP -> new ColumnData.Timestamps(size == longs.length ? longs : Arrays.copyOf(longs, size));
+            case DBL -> new ColumnData.Doubles(size == dbls.length ? dbls : Arrays.copyOf(dbls, size));
+            case FLOAT -> new ColumnData.Floats(size == floats.length ? floats : Arrays.copyOf(floats, size));
+            case SHORT -> new ColumnData.Shorts(size == shorts.length ? shorts : Arrays.copyOf(shorts, size));
+            case BYTE -> new ColumnData.Bytes(size == bytes.length ? bytes : Arrays.copyOf(bytes, size));
+            case STR -> new ColumnData.Strings(size == strs.length ? strs : Arrays.copyOf(strs, size));
+            case BOOL -> new ColumnData.Bools(trimBits(words), size);
+        };
+        Column col = new Column(name, data, validity == null ? null : trimBits(validity));
+        this.size = 0;
+        this.validity = null;
+        allocate(initialCapacity);
+        return col;
+    }
+
+    /**
+     * Drop the values after the first n, so that a row which could not be appended to every column is undone.
+     */
+    void truncate(int n) {
+        for (int i = n; i < size; i++) {
+            if (words != null) Bits.clear(words, i);
+            if (validity != null) Bits.clear(validity, i);
+        }
+        size = Math.min(size, n);
+    }
+
+    private void allocate(int capacity) {
+        switch (type) {
+            case INT, DATE -> ints = new int[capacity];
+            case LONG, TIMESTAMP -> longs = new long[capacity];
+            case DBL -> dbls = new double[capacity];
+            case FLOAT -> floats = new float[capacity];
+            case SHORT -> shorts = new short[capacity];
+            case BYTE -> bytes = new byte[capacity];
+            case STR -> strs = new String[capacity];
+            case BOOL -> words = Bits.clear(capacity);
+        }
+    }
+
+    private int capacity() {
+        return switch (type) {
+            case INT, DATE -> ints.length;
+            case LONG, TIMESTAMP -> longs.length;
+            case DBL -> dbls.length;
+            case FLOAT -> floats.length;
+            case SHORT -> shorts.length;
+            case BYTE -> bytes.length;
+            case STR -> strs.length;
+            case BOOL -> words.length << 6;
+        };
+    }
+
+    /**
+     * Double the capacity when the array is full.
+     */
+    private void grow() {
+        int capacity = capacity();
+        if (size < capacity) return;
+        if (size == MAX_CAPACITY) {
+            throw new IllegalArgumentException("The column " + name + " cannot hold more than " + MAX_CAPACITY + " values");
+        }
+        int newCapacity = (int) Math.min((long) capacity * 2, MAX_CAPACITY);
+        switch (type) {
+            case INT, DATE -> ints = Arrays.copyOf(ints, newCapacity);
+            case LONG, TIMESTAMP -> longs = Arrays.copyOf(longs, newCapacity);
+            case DBL -> dbls = Arrays.copyOf(dbls, newCapacity);
+            case FLOAT -> floats = Arrays.copyOf(floats, newCapacity);
+            case SHORT -> shorts = Arrays.copyOf(shorts, newCapacity);
+            case BYTE -> bytes = Arrays.copyOf(bytes, newCapacity);
+            case STR -> strs = Arrays.copyOf(strs, newCapacity);
+            case BOOL -> words = Arrays.copyOf(words, (newCapacity + 63) >>> 6);
+        }
+        if (validity != null) validity = Arrays.copyOf(validity, (newCapacity + 63) >>> 6);
+    }
+
+    /**
+     * Count the value just stored at the end. The validity bitmap is only created at the first missing value,
+     * with the bits of every earlier row set.
+     */
+    private ColumnBuilder added(boolean valid) {
+        if (!valid && validity == null) {
+            validity = Bits.clear(capacity());
+            for (int i = 0; i < size; i++) Bits.set(validity, i);
+        }
+        if (validity != null && valid) Bits.set(validity, size);
+        size++;
+        return this;
+    }
+
+    private IllegalArgumentException mismatch(String kind) {
+        return new IllegalArgumentException("Cannot append " + kind + " to the " + type.getName() + " column " + name);
+    }
+
+    private long[] trimBits(long[] bits) {
+        int n = (size + 63) >>> 6;
+        return bits.length == n ? bits : Arrays.copyOf(bits, n);
+    }
+}
@@ -0,0 +1,2120 @@
+package com.jvcats.dataframe.base;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.stream.IntStream;
+
+/**
+ * The values of a Column, stored in one of a closed set of layouts.
+ * Every operation which loops over the rows is implemented once per layout, so that callers dispatch once per column
+ * and the loop over the rows stays monomorphic.
+ * Doubles, ints and longs may also be stored off the heap in direct buffers, which the garbage collector does not scan or copy,
+ * Ints and doubles may be compressed with one of the encodings of Encoding, and strings stored as contiguous UTF-8 bytes.
+ * Values joined by concatenation may be kept as a list of chunks, a range of rows as a view over the values it was taken from,
+ * and chosen rows as a selection of row indices over them, all of which are only copied into one layout when compacted.
+ *
+ * @author henry
+ */
+sealed interface ColumnData {
+    ColumnType type();
+
+    int size();
+
+    /**
+     * The values of the given rows, in the given order.
+     */
+    ColumnData gather(int[] rows);
+
+    /**
+     * A copy of the values of the rows [from, to).
+     */
+    ColumnData slice(int from, int to);
+
+    ColumnData copy();
+
+    /**
+     * Compare the values of two rows, missing strings first.
+     */
+    int compare(int i, int j);
+
+    /**
+     * Append the value of a row as String.valueOf would write it, dates and timestamps in ISO-8601.
+     */
+    void format(StringBuilder sb, int row);
+
+    /**
+     * These values followed by the values of the given parts, which are of the same type.
+     */
+    ColumnData concat(ColumnData[] parts);
+
+    /**
+     * The values in arrays on the heap, or these values if they are on the heap already.
+     */
+    default ColumnData onHeap() {
+        return this;
+    }
+
+    /**
+     * The values in direct memory off the heap for doubles, ints and longs, or these values for other types.
+     */
+    default ColumnData offHeap() {
+        return this;
+    }
+
+    /**
+     * The values in a single layout, or these values if they are not chunked.
+     */
+    default ColumnData compact() {
+        return this;
+    }
+
+    /**
+     * The values in a plain array layout, decoding compressed values, or these values if they are not compressed.
+     */
+    default ColumnData plain() {
+        return this;
+    }
+
+    /**
+     * The values of a column of the given type without rows.
+     */
+    static ColumnData empty(ColumnType type) {
+        return switch (type) {
+            case DBL -> new Doubles(new double[0]);
+            case INT -> new Ints(new int[0]);
+            case STR -> new Strings(new String[0]);
+            case LONG -> new Longs(new long[0]);
+            case FLOAT -> new Floats(new float[0]);
+            case SHORT -> new Shorts(new short[0]);
+            case BYTE -> new Bytes(new byte[0]);
+            case BOOL -> new Bools(new long[0], 0);
+            case DATE -> new Dates(new int[0]);
+            case TIMESTAMP -> new Timestamps(new long[0]);
+        };
+    }
+
+    record Doubles(double[] values) implements ColumnData {
+        @Override
+        public ColumnType type() {
+            return ColumnType.DBL;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            double[] out = new double[rows.length];
+            for (int i = 0; i < rows.length; i++) out[i] = values[rows[i]];
+            return new Doubles(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return new Doubles(Arrays.copyOfRange(values, from, to));
+        }
+
+        @Override
+        public ColumnData copy() {
+            return new Doubles(values.clone());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Double.compare(values[i], values[j]);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(values[row]);
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            int n = values.length;
+            for (ColumnData part : parts) n += part.size();
+            double[] out = Arrays.copyOf(values, n);
+            int pos = values.length;
+            for (ColumnData part : parts) {
+                double[] src = ((Doubles) part).values;
+                System.arraycopy(src, 0, out, pos, src.length);
+                pos += src.length;
+            }
+            return new Doubles(out);
+        }
+
+        @Override
+        public ColumnData offHeap() {
+            return OffHeapDoubles.of(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Doubles other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+    record Ints(int[] values) implements ColumnData {
+        @Override
+        public ColumnType type() {
+            return ColumnType.INT;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            int[] out = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) out[i] = values[rows[i]];
+            return new Ints(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return new Ints(Arrays.copyOfRange(values, from, to));
+        }
+
+        @Override
+        public ColumnData copy() {
+            return new Ints(values.clone());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Integer.compare(values[i], values[j]);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(values[row]);
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            int n = values.length;
+            for (ColumnData part : parts) n += part.size();
+            int[] out = Arrays.copyOf(values, n);
+            int pos = values.length;
+            for (ColumnData part : parts) {
+                int[] src = ((Ints) part).values;
+                System.arraycopy(src, 0, out, pos, src.length);
+                pos += src.length;
+            }
+            return new Ints(out);
+        }
+
+        @Override
+        public ColumnData offHeap() {
+            return OffHeapInts.of(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Ints other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+    record Strings(String[] values) implements ColumnData {
+        @Override
+        public ColumnType type() {
+            return ColumnType.STR;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            String[] out = new String[rows.length];
+            for (int i = 0; i < rows.length; i++) out[i] = values[rows[i]];
+            return new Strings(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return new Strings(Arrays.copyOfRange(values, from, to));
+        }
+
+        @Override
+        public ColumnData copy() {
+            return new Strings(values.clone());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return compareStrings(values[i], values[j]);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(values[row]);
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            int n = values.length;
+            for (ColumnData part : parts) n += part.size();
+            String[] out = Arrays.copyOf(values, n);
+            int pos = values.length;
+            for (ColumnData part : parts) {
+                String[] src = part instanceof Categorical cat ? cat.decode() : ((Strings) part).values;
+                System.arraycopy(src, 0, out, pos, src.length);
+                pos += src.length;
+            }
+            return new Strings(out);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Strings other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+    /**
+     * Strings stored as their UTF-8 bytes one after another, the bytes of row i being [offsets[i], offsets[i + 1]),
+     * with a bitmap of the null rows, or null if there are none. A String is only created when a row is read.
+     */
+    record Utf8(byte[] bytes, int[] offsets, long[] nulls) implements ColumnData {
+        static Utf8 of(String[] values) {
+            int n = values.length;
+            byte[][] encoded = new byte[n][];
+            int[] offsets = new int[n + 1];
+            long[] nulls = null;
+            for (int i = 0; i < n; i++) {
+                if (values[i] == null) {
+                    if (nulls == null) nulls = Bits.clear(n);
+                    Bits.set(nulls, i);
+                    encoded[i] = new byte[0];
+                } else {
+                    encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+                }
+                offsets[i + 1] = Math.addExact(offsets[i], encoded[i].length);
+            }
+            byte[] bytes = new byte[offsets[n]];
+            for (int i = 0; i < n; i++) System.arraycopy(encoded[i], 0, bytes, offsets[i], encoded[i].length);
+            return new Utf8(bytes, offsets, nulls);
+        }
+
+        String get(int row) {
+            if (isNull(row)) return null;
+            return new String(bytes, offsets[row], offsets[row + 1] - offsets[row], StandardCharsets.UTF_8);
+        }
+
+        boolean isNull(int row) {
+            return nulls != null && Bits.get(nulls, row);
+        }
+
+        @Override
+        public ColumnType type() {
+            return ColumnType.STR;
+        }
+
+        @Override
+        public int size() {
+            return offsets.length - 1;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            int[] out = new int[rows.length + 1];
+            for (int i = 0; i < rows.length; i++) {
+                out[i + 1] = Math.addExact(out[i], offsets[rows[i] + 1] - offsets[rows[i]]);
+            }
+            byte[] outBytes = new byte[out[rows.length]];
+            for (int i = 0; i < rows.length; i++) {
+                System.arraycopy(bytes, offsets[rows[i]], outBytes, out[i], out[i + 1] - out[i]);
+            }
+            return new Utf8(outBytes, out, nulls == null ? null : Bits.gather(nulls, rows));
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            int[] out = new int[to - from + 1];
+            for (int i = from; i <= to; i++) out[i - from] = offsets[i] - offsets[from];
+            return new Utf8(Arrays.copyOfRange(bytes, offsets[from], offsets[to]), out,
+                    nulls == null ? null : Bits.slice(nulls, from, to));
+        }
+
+        @Override
+        public ColumnData copy() {
+            return this;
+        }
+
+        /**
+         * Compare the bytes, which orders UTF-8 as code points, except that String.compareTo puts the surrogates of a
+         * supplementary character, led by 0xF0 to 0xF4, before the characters U+E000 to U+FFFF, led by 0xEE or 0xEF.
+         */
+        @Override
+        public int compare(int i, int j) {
+            if (isNull(i) || isNull(j)) return isNull(i) ? (isNull(j) ? 0 : -1) : 1;
+            int a = offsets[i], b = offsets[j];
+            int k = Arrays.mismatch(bytes, a, offsets[i + 1], bytes, b, offsets[j + 1]);
+            if (k < 0) return 0;
+            if (k == offsets[i + 1] - a || k == offsets[j + 1] - b) {
+                return Integer.compare(offsets[i + 1] - a, offsets[j + 1] - b);
+            }
+            int x = bytes[a + k] & 0xFF, y = bytes[b + k] & 0xFF;
+            if (Math.min(x, y) >= 0xEE && Math.min(x, y) <= 0xEF && Math.max(x, y) >= 0xF0) return Integer.compare(y, x);
+            return Integer.compare(x, y);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(get(row));
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            return plain().concat(parts);
+        }
+
+        @Override
+        public ColumnData plain() {
+            String[] out = new String[size()];
+            for (int i = 0; i < out.length; i++) out[i] = get(i);
+            return new Strings(out);
+        }
+
+        /**
+         * Mark the rows whose bytes are the given UTF-8 bytes, scanning the bytes in order. Rows already marked stay marked.
+         */
+        void eq(byte[] key, boolean[] out) {
+            for (int i = 0; i < out.length; i++) {
+                out[i] |= offsets[i + 1] - offsets[i] == key.length && !isNull(i)
+                        && Arrays.equals(bytes, offsets[i], offsets[i + 1], key, 0, key.length);
+            }
+        }
+
+        /**
+         * The distinct values in order of first appearance, null included, hashing and comparing the bytes,
+         * so that a String is only created for every distinct value.
+         */
+        String[] distinct() {
+            int n = size();
+            int[] table = new int[Integer.highestOneBit(Math.max(n, 1)) << 2];
+            int mask = table.length - 1;
+            ArrayList<String> out = new ArrayList<>();
+            boolean sawNull = false;
+            for (int i = 0; i < n; i++) {
+                if (isNull(i)) {
+                    if (!sawNull) out.add(null);
+                    sawNull = true;
+                    continue;
+                }
+                int h = hash(i) & mask;
+                while (table[h] != 0 && !sameBytes(table[h] - 1, i)) h = (h + 1) & mask;
+                if (table[h] == 0) {
+                    table[h] = i + 1;
+                    out.add(get(i));
+                }
+            }
+            return out.toArray(new String[0]);
+        }
+
+        private int hash(int row) {
+            int h = 1;
+            for (int k = offsets[row]; k < offsets[row + 1]; k++) h = 31 * h + bytes[k];
+            return h ^ (h >>> 16);
+        }
+
+        private boolean sameBytes(int i, int j) {
+            return Arrays.equals(bytes, offsets[i], offsets[i + 1], bytes, offsets[j], offsets[j + 1]);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Utf8 other && plain().equals(other.plain());
+        }
+
+        @Override
+        public int hashCode() {
+            return plain().hashCode();
+        }
+    }
+
+    /**
+     * Strings stored as a code for every row, an index into the levels or -1 for a missing value.
+     */
+    record Categorical(int[] codes, String[] levels) implements ColumnData {
+        @Override
+        public ColumnType type() {
+            return ColumnType.STR;
+        }
+
+        @Override
+        public int size() {
+            return codes.length;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            int[] out = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) out[i] = codes[rows[i]];
+            return new Categorical(out, levels);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return new Categorical(Arrays.copyOfRange(codes, from, to), levels);
+        }
+
+        @Override
+        public ColumnData copy() {
+            return new Categorical(codes.clone(), levels.clone());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return codes[i] == codes[j] ? 0 : compareStrings(get(i), get(j));
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(get(row));
+        }
+
+        /**
+         * Merge the levels when all parts are categorical, or decode all parts otherwise.
+         */
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            int n = codes.length;
+            boolean categorical = true;
+            for (ColumnData part : parts) {
+                n += part.size();
+                categorical &= part instanceof Categorical;
+            }
+            if (!categorical) {
+                return new Strings(decode()).concat(parts);
+            }
+            HashMap<String, Integer> index = new HashMap<>();
+            ArrayList<String> merged = new ArrayList<>(Arrays.asList(levels));
+            for (int l = 0; l < levels.length; l++) index.put(levels[l], l);
+            int[] out = Arrays.copyOf(codes, n);
+            int pos = codes.length;
+            for (ColumnData part : parts) {
+                Categorical cat = (Categorical) part;
+                int[] map = new int[cat.levels.length];
+                for (int l = 0; l < map.length; l++) {
+                    Integer code = index.get(cat.levels[l]);
+                    if (code == null) {
+                        code = merged.size();
+                        index.put(cat.levels[l], code);
+                        merged.add(cat.levels[l]);
+                    }
+                    map[l] = code;
+                }
+                for (int code : cat.codes) out[pos++] = code < 0 ? -1 : map[code];
+            }
+            return new Categorical(out, merged.toArray(new String[0]));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Categorical other && Arrays.equals(codes, other.codes) && Arrays.equals(levels, other.levels);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(codes) + Arrays.hashCode(levels);
+        }
+
+        String get(int row) {
+            return codes[row] < 0 ? null : levels[codes[row]];
+        }
+
+        String[] decode() {
+            String[] strs = new String[codes.length];
+            for (int i = 0; i < strs.length; i++) strs[i] = get(i);
+            return strs;
+        }
+    }
+
+    record Longs(long[] values) implements ColumnData {
+        @Override
+        public ColumnType type() {
+            return ColumnType.LONG;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            long[] out = new long[rows.length];
+            for (int i = 0; i < rows.length; i++) out[i] = values[rows[i]];
+            return new Longs(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return new Longs(Arrays.copyOfRange(values, from, to));
+        }
+
+        @Override
+        public ColumnData copy() {
+            return new Longs(values.clone());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Long.compare(values[i], values[j]);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(values[row]);
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            int n = values.length;
+            for (ColumnData part : parts) n += part.size();
+            long[] out = Arrays.copyOf(values, n);
+            int pos = values.length;
+            for (ColumnData part : parts) {
+                long[] src = ((Longs) part).values;
+                System.arraycopy(src, 0, out, pos, src.length);
+                pos += src.length;
+            }
+            return new Longs(out);
+        }
+
+        @Override
+        public ColumnData offHeap() {
+            return OffHeapLongs.of(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Longs other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+    record Floats(float[] values) implements ColumnData {
+        @Override
+        public ColumnType type() {
+            return ColumnType.FLOAT;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            float[] out = new float[rows.length];
+            for (int i = 0; i < rows.length; i++) out[i] = values[rows[i]];
+            return new Floats(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return new Floats(Arrays.copyOfRange(values, from, to));
+        }
+
+        @Override
+        public ColumnData copy() {
+            return new Floats(values.clone());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Float.compare(values[i], values[j]);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(values[row]);
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            int n = values.length;
+            for (ColumnData part : parts) n += part.size();
+            float[] out = Arrays.copyOf(values, n);
+            int pos = values.length;
+            for (ColumnData part : parts) {
+                float[] src = ((Floats) part).values;
+                System.arraycopy(src, 0, out, pos, src.length);
+                pos += src.length;
+            }
+            return new Floats(out);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Floats other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+    record Shorts(short[] values) implements ColumnData {
+        @Override
+        public ColumnType type() {
+            return ColumnType.SHORT;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            short[] out = new short[rows.length];
+            for (int i = 0; i < rows.length; i++) out[i] = values[rows[i]];
+            return new Shorts(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return new Shorts(Arrays.copyOfRange(values, from, to));
+        }
+
+        @Override
+        public ColumnData copy() {
+            return new Shorts(values.clone());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Short.compare(values[i], values[j]);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(values[row]);
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            int n = values.length;
+            for (ColumnData part : parts) n += part.size();
+            short[] out = Arrays.copyOf(values, n);
+            int pos = values.length;
+            for (ColumnData part : parts) {
+                short[] src = ((Shorts) part).values;
+                System.arraycopy(src, 0, out, pos, src.length);
+                pos += src.length;
+            }
+            return new Shorts(out);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Shorts other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+    record Bytes(byte[] values) implements ColumnData {
+        @Override
+        public ColumnType type() {
+            return ColumnType.BYTE;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            byte[] out = new byte[rows.length];
+            for (int i = 0; i < rows.length; i++) out[i] = values[rows[i]];
+            return new Bytes(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return new Bytes(Arrays.copyOfRange(values, from, to));
+        }
+
+        @Override
+        public ColumnData copy() {
+            return new Bytes(values.clone());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Byte.compare(values[i], values[j]);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(values[row]);
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            int n = values.length;
+            for (ColumnData part : parts) n += part.size();
+            byte[] out = Arrays.copyOf(values, n);
+            int pos = values.length;
+            for (ColumnData part : parts) {
+                byte[] src = ((Bytes) part).values;
+                System.arraycopy(src, 0, out, pos, src.length);
+                pos += src.length;
+            }
+            return new Bytes(out);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Bytes other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+    /**
+     * Dates as days since 1970-01-01.
+     */
+    record Dates(int[] values) implements ColumnData {
+        @Override
+        public ColumnType type() {
+            return ColumnType.DATE;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            int[] out = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) out[i] = values[rows[i]];
+            return new Dates(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return new Dates(Arrays.copyOfRange(values, from, to));
+        }
+
+        @Override
+        public ColumnData copy() {
+            return new Dates(values.clone());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Integer.compare(values[i], values[j]);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(LocalDate.ofEpochDay(values[row]));
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            int n = values.length;
+            for (ColumnData part : parts) n += part.size();
+            int[] out = Arrays.copyOf(values, n);
+            int pos = values.length;
+            for (ColumnData part : parts) {
+                int[] src = ((Dates) part).values;
+                System.arraycopy(src, 0, out, pos, src.length);
+                pos += src.length;
+            }
+            return new Dates(out);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Dates other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+    /**
+     * Timestamps as milliseconds since 1970-01-01T00:00:00Z.
+     */
+    record Timestamps(long[] values) implements ColumnData {
+        @Override
+        public ColumnType type() {
+            return ColumnType.TIMESTAMP;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            long[] out = new long[rows.length];
+            for (int i = 0; i < rows.length; i++) out[i] = values[rows[i]];
+            return new Timestamps(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return new Timestamps(Arrays.copyOfRange(values, from, to));
+        }
+
+        @Override
+        public ColumnData copy() {
+            return new Timestamps(values.clone());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Long.compare(values[i], values[j]);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(Instant.ofEpochMilli(values[row]));
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            int n = values.length;
+            for (ColumnData part : parts) n += part.size();
+            long[] out = Arrays.copyOf(values, n);
+            int pos = values.length;
+            for (ColumnData part : parts) {
+                long[] src = ((Timestamps) part).values;
+                System.arraycopy(src, 0, out, pos, src.length);
+                pos += src.length;
+            }
+            return new Timestamps(out);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Timestamps other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+    /**
+     * Booleans packed 64 to a long, the bit of row i being bit i % 64 of word i / 64.
+     * The bits after the last row are always clear, so that equal values have equal words.
+     */
+    record Bools(long[] words, int size) implements ColumnData {
+        static Bools of(boolean[] values) {
+            long[] words = Bits.clear(values.length);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i]) Bits.set(words, i);
+            }
+            return new Bools(words, values.length);
+        }
+
+        @Override
+        public ColumnType type() {
+            return ColumnType.BOOL;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            return new Bools(Bits.gather(words, rows), rows.length);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return new Bools(Bits.slice(words, from, to), to - from);
+        }
+
+        @Override
+        public ColumnData copy() {
+            return new Bools(words.clone(), size);
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Boolean.compare(get(i), get(j));
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(get(row));
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            int n = size;
+            for (ColumnData part : parts) n += part.size();
+            long[] out = Arrays.copyOf(words, (n + 63) >>> 6);
+            int pos = size;
+            for (ColumnData part : parts) {
+                Bools bools = (Bools) part;
+                for (int i = 0; i < bools.size; i++, pos++) {
+                    if (bools.get(i)) Bits.set(out, pos);
+                }
+            }
+            return new Bools(out, n);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Bools other && size == other.size && Arrays.equals(words, other.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(words) + size;
+        }
+
+        boolean get(int row) {
+            return Bits.get(words, row);
+        }
+
+        boolean[] unpack() {
+            boolean[] values = new boolean[size];
+            for (int i = 0; i < size; i++) values[i] = get(i);
+            return values;
+        }
+    }
+
+    record OffHeapDoubles(DoubleBuffer values) implements ColumnData {
+        static OffHeapDoubles of(double[] src) {
+            DoubleBuffer values = direct(8L * src.length).asDoubleBuffer();
+            values.put(0, src);
+            return new OffHeapDoubles(values);
+        }
+
+        @Override
+        public ColumnType type() {
+            return ColumnType.DBL;
+        }
+
+        @Override
+        public int size() {
+            return values.capacity();
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            DoubleBuffer out = direct(8L * rows.length).asDoubleBuffer();
+            for (int i = 0; i < rows.length; i++) out.put(i, values.get(rows[i]));
+            return new OffHeapDoubles(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            DoubleBuffer out = direct(8L * (to - from)).asDoubleBuffer();
+            out.put(0, values, from, to - from);
+            return new OffHeapDoubles(out);
+        }
+
+        @Override
+        public ColumnData copy() {
+            return slice(0, size());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Double.compare(values.get(i), values.get(j));
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(values.get(row));
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            return onHeap().concat(ColumnData.onHeap(parts)).offHeap();
+        }
+
+        @Override
+        public ColumnData onHeap() {
+            double[] out = new double[size()];
+            values.get(0, out);
+            return new Doubles(out);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof OffHeapDoubles other && onHeap().equals(other.onHeap());
+        }
+
+        @Override
+        public int hashCode() {
+            return onHeap().hashCode();
+        }
+    }
+
+    record OffHeapInts(IntBuffer values) implements ColumnData {
+        static OffHeapInts of(int[] src) {
+            IntBuffer values = direct(4L * src.length).asIntBuffer();
+            values.put(0, src);
+            return new OffHeapInts(values);
+        }
+
+        @Override
+        public ColumnType type() {
+            return ColumnType.INT;
+        }
+
+        @Override
+        public int size() {
+            return values.capacity();
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            IntBuffer out = direct(4L * rows.length).asIntBuffer();
+            for (int i = 0; i < rows.length; i++) out.put(i, values.get(rows[i]));
+            return new OffHeapInts(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            IntBuffer out = direct(4L * (to - from)).asIntBuffer();
+            out.put(0, values, from, to - from);
+            return new OffHeapInts(out);
+        }
+
+        @Override
+        public ColumnData copy() {
+            return slice(0, size());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Integer.compare(values.get(i), values.get(j));
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(values.get(row));
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            return onHeap().concat(ColumnData.onHeap(parts)).offHeap();
+        }
+
+        @Override
+        public ColumnData onHeap() {
+            int[] out = new int[size()];
+            values.get(0, out);
+            return new Ints(out);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof OffHeapInts other && onHeap().equals(other.onHeap());
+        }
+
+        @Override
+        public int hashCode() {
+            return onHeap().hashCode();
+        }
+    }
+
+    record OffHeapLongs(LongBuffer values) implements ColumnData {
+        static OffHeapLongs of(long[] src) {
+            LongBuffer values = direct(8L * src.length).asLongBuffer();
+            values.put(0, src);
+            return new OffHeapLongs(values);
+        }
+
+        @Override
+        public ColumnType type() {
+            return ColumnType.LONG;
+        }
+
+        @Override
+        public int size() {
+            return values.capacity();
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            LongBuffer out = direct(8L * rows.length).asLongBuffer();
+            for (int i = 0; i < rows.length; i++) out.put(i, values.get(rows[i]));
+            return new OffHeapLongs(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            LongBuffer out = direct(8L * (to - from)).asLongBuffer();
+            out.put(0, values, from, to - from);
+            return new OffHeapLongs(out);
+        }
+
+        @Override
+        public ColumnData copy() {
+            return slice(0, size());
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Long.compare(values.get(i), values.get(j));
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(values.get(row));
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            return onHeap().concat(ColumnData.onHeap(parts)).offHeap();
+        }
+
+        @Override
+        public ColumnData onHeap() {
+            long[] out = new long[size()];
+            values.get(0, out);
+            return new Longs(out);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof OffHeapLongs other && onHeap().equals(other.onHeap());
+        }
+
+        @Override
+        public int hashCode() {
+            return onHeap().hashCode();
+        }
+    }
+
+    /**
+     * Values of one type kept as the list of chunks they were joined from, none of them chunked itself.
+     * Joining more values only appends their chunks, and the chunks are never changed, so that they can be shared.
+     * The first row of chunk k is starts[k], and starts[chunks.length] is the number of rows.
+     */
+    record Chunks(ColumnData[] chunks, int[] starts) implements ColumnData {
+        /**
+         * Join values of the same type as chunks, or return the only non-empty part as it is.
+         */
+        static ColumnData of(ColumnData[] parts) {
+            ArrayList<ColumnData> chunks = new ArrayList<>();
+            for (ColumnData part : parts) {
+                if (part instanceof Chunks c) {
+                    chunks.addAll(Arrays.asList(c.chunks));
+                } else if (part.size() > 0) {
+                    chunks.add(part);
+                }
+            }
+            if (chunks.isEmpty()) return parts[0] instanceof Chunks c ? c.chunks[0] : parts[0];
+            if (chunks.size() == 1) return chunks.get(0);
+            int[] starts = new int[chunks.size() + 1];
+            for (int k = 0; k < chunks.size(); k++) {
+                starts[k + 1] = Math.addExact(starts[k], chunks.get(k).size());
+            }
+            return new Chunks(chunks.toArray(new ColumnData[0]), starts);
+        }
+
+        @Override
+        public ColumnType type() {
+            return chunks[0].type();
+        }
+
+        @Override
+        public int size() {
+            return starts[chunks.length];
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            return compact().gather(rows);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            ArrayList<ColumnData> parts = new ArrayList<>();
+            for (int k = chunkOf(from); k < chunks.length && starts[k] < to; k++) {
+                parts.add(chunks[k].slice(Math.max(from, starts[k]) - starts[k], Math.min(to, starts[k + 1]) - starts[k]));
+            }
+            return parts.isEmpty() ? chunks[0].slice(0, 0) : of(parts.toArray(new ColumnData[0]));
+        }
+
+        @Override
+        public ColumnData copy() {
+            return compact();
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            int a = chunkOf(i);
+            int b = chunkOf(j);
+            if (a == b) return chunks[a].compare(i - starts[a], j - starts[a]);
+            ColumnData pair = chunks[a].gather(new int[]{i - starts[a]}).concat(
+                    ColumnData.onHeap(new ColumnData[]{chunks[b].gather(new int[]{j - starts[b]})}));
+            return pair.compare(0, 1);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            int k = chunkOf(row);
+            chunks[k].format(sb, row - starts[k]);
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            ColumnData[] all = new ColumnData[parts.length + 1];
+            all[0] = this;
+            System.arraycopy(parts, 0, all, 1, parts.length);
+            return of(all);
+        }
+
+        @Override
+        public ColumnData onHeap() {
+            ColumnData[] out = new ColumnData[chunks.length];
+            for (int k = 0; k < chunks.length; k++) out[k] = chunks[k].onHeap();
+            return new Chunks(out, starts);
+        }
+
+        @Override
+        public ColumnData offHeap() {
+            ColumnData[] out = new ColumnData[chunks.length];
+            for (int k = 0; k < chunks.length; k++) out[k] = chunks[k].offHeap();
+            return new Chunks(out, starts);
+        }
+
+        @Override
+        public ColumnData compact() {
+            return chunks[0].concat(ColumnData.onHeap(Arrays.copyOfRange(chunks, 1, chunks.length)));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Chunks other && compact().equals(other.compact());
+        }
+
+        @Override
+        public int hashCode() {
+            return compact().hashCode();
+        }
+
+        /**
+         * The index of the chunk holding a row.
+         */
+        private int chunkOf(int row) {
+            int k = Arrays.binarySearch(starts, 0, chunks.length, row);
+            return k >= 0 ? k : -k - 2;
+        }
+    }
+
+    /**
+     * Integer values in one of the compressed layouts of Encoding, each read by its row without decoding the others.
+     * They are never changed in place, so that a copy is the values themselves, and rows taken from them are decoded.
+     */
+    sealed interface EncodedInts extends ColumnData {
+        /**
+         * The value of a row.
+         */
+        int get(int row);
+
+        /**
+         * Encode integer values with the given encoding, or with the one taking the fewest bytes for a null encoding.
+         * Without an encoding, the values are kept as they are when no encoding takes fewer bytes.
+         *
+         * @throws IllegalArgumentException if the values cannot be stored with the encoding.
+         */
+        static ColumnData encode(int[] values, Encoding encoding) {
+            int n = values.length;
+            if (encoding == Encoding.DICTIONARY || encoding == Encoding.UTF8) {
+                throw new IllegalArgumentException("Integer values cannot be " + encoding + " encoded");
+            }
+            if (n == 0) return new Ints(values);
+            int min = values[0];
+            int max = values[0];
+            int runs = 1;
+            int deltas = 0;
+            for (int i = 1; i < n; i++) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+                if (values[i] != values[i - 1]) runs++;
+                deltas |= zigzag(values[i] - values[i - 1]);
+            }
+            int packedBits = bitsOf((long) max - min);
+            int deltaBits = bitsOf(deltas & 0xFFFFFFFFL);
+            long blocks = (n + 63) >>> 6;
+            long packedBytes = 8L * blocks + packedBytes(n, packedBits);
+            long runBytes = 8L * runs;
+            long deltaBytes = 12L * blocks + packedBytes(n, deltaBits);
+            long narrowBytes = min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE ? n
+                    : min >= Short.MIN_VALUE && max <= Short.MAX_VALUE ? 2L * n : Long.MAX_VALUE;
+            if (encoding == null) {
+                long best = Math.min(Math.min(narrowBytes, runBytes), Math.min(packedBytes, deltaBytes));
+                if (best >= 4L * n) return new Ints(values);
+                encoding = best == narrowBytes ? Encoding.NARROW : best == runBytes ? Encoding.RUN_LENGTH
+                        : best == packedBytes ? Encoding.FRAME_OF_REFERENCE : Encoding.DELTA;
+            }
+            return switch (encoding) {
+                case RUN_LENGTH -> RunInts.of(values, runs);
+                case DELTA -> DeltaInts.of(values, deltaBits);
+                case FRAME_OF_REFERENCE -> PackedInts.of(values, min, packedBits);
+                case NARROW -> {
+                    if (narrowBytes == Long.MAX_VALUE) {
+                        throw new IllegalArgumentException("Values from " + min + " to " + max + " do not fit a byte or a short");
+                    }
+                    yield narrowBytes == n ? ByteInts.of(values) : ShortInts.of(values);
+                }
+                case DICTIONARY, UTF8 -> throw new IllegalArgumentException("Integer values cannot be " + encoding + " encoded");
+            };
+        }
+
+        @Override
+        default ColumnType type() {
+            return ColumnType.INT;
+        }
+
+        @Override
+        default ColumnData gather(int[] rows) {
+            int[] out = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) out[i] = get(rows[i]);
+            return new Ints(out);
+        }
+
+        @Override
+        default ColumnData slice(int from, int to) {
+            int[] out = new int[to - from];
+            for (int i = from; i < to; i++) out[i - from] = get(i);
+            return new Ints(out);
+        }
+
+        @Override
+        default ColumnData copy() {
+            return this;
+        }
+
+        @Override
+        default int compare(int i, int j) {
+            return Integer.compare(get(i), get(j));
+        }
+
+        @Override
+        default void format(StringBuilder sb, int row) {
+            sb.append(get(row));
+        }
+
+        @Override
+        default ColumnData concat(ColumnData[] parts) {
+            return plain().concat(parts);
+        }
+
+        @Override
+        default ColumnData plain() {
+            return slice(0, size());
+        }
+
+        /**
+         * Mark the rows whose value is in [lo, hi).
+         */
+        default void in(long lo, long hi, boolean[] out) {
+            for (int i = 0; i < out.length; i++) {
+                int v = get(i);
+                out[i] = v >= lo && v < hi;
+            }
+        }
+
+        /**
+         * The distinct values of the rows set in the validity bitmap, or of all rows for a null bitmap, in order of first appearance.
+         */
+        default int[] distinct(long[] validity) {
+            int[] values = ((Ints) plain()).values();
+            return IntStream.range(0, values.length).filter(i -> validity == null || Bits.get(validity, i))
+                    .map(i -> values[i]).distinct().toArray();
+        }
+
+        private static int zigzag(int d) {
+            return (d << 1) ^ (d >> 31);
+        }
+
+        private static int unzigzag(int z) {
+            return (z >>> 1) ^ -(z & 1);
+        }
+
+        /**
+         * The number of bits needed for values from 0 to the given one.
+         */
+        private static int bitsOf(long max) {
+            return 64 - Long.numberOfLeadingZeros(max);
+        }
+
+        private static long packedBytes(int n, int bits) {
+            return ((long) n * bits + 63) / 64 * 8;
+        }
+    }
+
+    /**
+     * Integers as runs of equal values, run k holding the rows [starts[k], starts[k + 1]).
+     */
+    record RunInts(int[] values, int[] starts) implements EncodedInts {
+        static RunInts of(int[] values, int runs) {
+            int[] runValues = new int[runs];
+            int[] starts = new int[runs + 1];
+            int k = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (i == 0 || values[i] != values[i - 1]) {
+                    runValues[k] = values[i];
+                    starts[k++] = i;
+                }
+            }
+            starts[runs] = values.length;
+            return new RunInts(runValues, starts);
+        }
+
+        @Override
+        public int size() {
+            return starts[values.length];
+        }
+
+        @Override
+        public int get(int row) {
+            int k = Arrays.binarySearch(starts, 0, values.length, row);
+            return values[k >= 0 ? k : -k - 2];
+        }
+
+        @Override
+        public ColumnData plain() {
+            int[] out = new int[size()];
+            for (int k = 0; k < values.length; k++) Arrays.fill(out, starts[k], starts[k + 1], values[k]);
+            return new Ints(out);
+        }
+
+        @Override
+        public void in(long lo, long hi, boolean[] out) {
+            for (int k = 0; k < values.length; k++) {
+                if (values[k] >= lo && values[k] < hi) Arrays.fill(out, starts[k], starts[k + 1], true);
+            }
+        }
+
+        @Override
+        public int[] distinct(long[] validity) {
+            return IntStream.range(0, values.length).filter(k -> validity == null || anyValid(validity, starts[k], starts[k + 1]))
+                    .map(k -> values[k]).distinct().toArray();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EncodedInts other && plain().equals(other.plain());
+        }
+
+        @Override
+        public int hashCode() {
+            return plain().hashCode();
+        }
+
+        private static boolean anyValid(long[] validity, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (Bits.get(validity, i)) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The smallest and largest value of every block of 64 rows, with which a range filter skips or accepts whole blocks
+     * of encoded integers without decoding them.
+     */
+    record BlockRanges(int[] mins, int[] maxs) {
+        static BlockRanges of(int[] values) {
+            int[] mins = new int[(values.length + 63) >>> 6];
+            int[] maxs = new int[mins.length];
+            for (int b = 0; b < mins.length; b++) {
+                int from = b << 6;
+                int to = Math.min(from + 64, values.length);
+                mins[b] = values[from];
+                maxs[b] = values[from];
+                for (int i = from + 1; i < to; i++) {
+                    mins[b] = Math.min(mins[b], values[i]);
+                    maxs[b] = Math.max(maxs[b], values[i]);
+                }
+            }
+            return new BlockRanges(mins, maxs);
+        }
+
+        /**
+         * Check if no value of a block is in [lo, hi).
+         */
+        boolean none(int block, long lo, long hi) {
+            return maxs[block] < lo || mins[block] >= hi;
+        }
+
+        /**
+         * Check if every value of a block is in [lo, hi).
+         */
+        boolean all(int block, long lo, long hi) {
+            return mins[block] >= lo && maxs[block] < hi;
+        }
+    }
+
+    /**
+     * Integers as offsets from a base, bit-packed with the given number of bits, the field of row i starting at bit i * bits.
+     * The ranges of the blocks of 64 rows are kept for range filters, or null for the packed differences of DeltaInts.
+     */
+    record PackedInts(int base, int bits, long[] words, int size, BlockRanges ranges) implements EncodedInts {
+        static PackedInts of(int[] values, int base, int bits) {
+            long[] words = new long[(int) (((long) values.length * bits + 63) >>> 6)];
+            for (int i = 0; i < values.length; i++) put(words, bits, i, values[i] - (long) base);
+            return new PackedInts(base, bits, words, values.length, BlockRanges.of(values));
+        }
+
+        @Override
+        public int get(int row) {
+            return (int) (base + field(row));
+        }
+
+        @Override
+        public void in(long lo, long hi, boolean[] out) {
+            long from = lo - base;
+            long to = hi - base;
+            for (int b = 0; b < ranges.mins().length; b++) {
+                if (ranges.none(b, lo, hi)) continue;
+                int start = b << 6;
+                int end = Math.min(start + 64, out.length);
+                if (ranges.all(b, lo, hi)) {
+                    Arrays.fill(out, start, end, true);
+                    continue;
+                }
+                for (int i = start; i < end; i++) {
+                    long f = field(i);
+                    out[i] = f >= from && f < to;
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EncodedInts other && plain().equals(other.plain());
+        }
+
+        @Override
+        public int hashCode() {
+            return plain().hashCode();
+        }
+
+        long field(int row) {
+            if (bits == 0) return 0;
+            long bit = (long) row * bits;
+            int w = (int) (bit >>> 6);
+            int off = (int) (bit & 63);
+            long field = words[w] >>> off;
+            if (off + bits > 64) field |= words[w + 1] << (64 - off);
+            return field & ((1L << bits) - 1);
+        }
+
+        private static void put(long[] words, int bits, int row, long field) {
+            if (bits == 0) return;
+            long bit = (long) row * bits;
+            int w = (int) (bit >>> 6);
+            int off = (int) (bit & 63);
+            words[w] |= field << off;
+            if (off + bits > 64) words[w + 1] |= field >>> (64 - off);
+        }
+    }
+
+    /**
+     * Integers as the zigzag encoded differences between neighbouring rows, bit-packed,
+     * with the value of every 64th row kept whole so that a row is decoded from at most 63 differences.
+     * The ranges of the blocks of 64 rows let range filters decode only the blocks which they neither skip nor accept whole.
+     */
+    record DeltaInts(int[] anchors, BlockRanges ranges, PackedInts deltas) implements EncodedInts {
+        static DeltaInts of(int[] values, int bits) {
+            long[] words = new long[(int) (((long) values.length * bits + 63) >>> 6)];
+            int[] anchors = new int[(values.length + 63) >>> 6];
+            for (int i = 0; i < values.length; i++) {
+                if ((i & 63) == 0) {
+                    anchors[i >>> 6] = values[i];
+                } else {
+                    PackedInts.put(words, bits, i, EncodedInts.zigzag(values[i] - values[i - 1]) & 0xFFFFFFFFL);
+                }
+            }
+            return new DeltaInts(anchors, BlockRanges.of(values), new PackedInts(0, bits, words, values.length, null));
+        }
+
+        @Override
+        public int size() {
+            return deltas.size();
+        }
+
+        @Override
+        public int get(int row) {
+            int v = anchors[row >>> 6];
+            for (int i = (row & ~63) + 1; i <= row; i++) v += EncodedInts.unzigzag((int) deltas.field(i));
+            return v;
+        }
+
+        @Override
+        public ColumnData plain() {
+            int[] out = new int[size()];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = (i & 63) == 0 ? anchors[i >>> 6] : out[i - 1] + EncodedInts.unzigzag((int) deltas.field(i));
+            }
+            return new Ints(out);
+        }
+
+        @Override
+        public void in(long lo, long hi, boolean[] out) {
+            for (int b = 0; b < anchors.length; b++) {
+                if (ranges.none(b, lo, hi)) continue;
+                int start = b << 6;
+                int end = Math.min(start + 64, out.length);
+                if (ranges.all(b, lo, hi)) {
+                    Arrays.fill(out, start, end, true);
+                    continue;
+                }
+                int v = anchors[b];
+                out[start] = v >= lo && v < hi;
+                for (int i = start + 1; i < end; i++) {
+                    v += EncodedInts.unzigzag((int) deltas.field(i));
+                    out[i] = v >= lo && v < hi;
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EncodedInts other && plain().equals(other.plain());
+        }
+
+        @Override
+        public int hashCode() {
+            return plain().hashCode();
+        }
+    }
+
+    /**
+     * Integers which all fit a byte, stored as bytes.
+     */
+    record ByteInts(byte[] values) implements EncodedInts {
+        static ByteInts of(int[] values) {
+            byte[] out = new byte[values.length];
+            for (int i = 0; i < values.length; i++) out[i] = (byte) values[i];
+            return new ByteInts(out);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public int get(int row) {
+            return values[row];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EncodedInts other && plain().equals(other.plain());
+        }
+
+        @Override
+        public int hashCode() {
+            return plain().hashCode();
+        }
+    }
+
+    /**
+     * Integers which all fit a short, stored as shorts.
+     */
+    record ShortInts(short[] values) implements EncodedInts {
+        static ShortInts of(int[] values) {
+            short[] out = new short[values.length];
+            for (int i = 0; i < values.length; i++) out[i] = (short) values[i];
+            return new ShortInts(out);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public int get(int row) {
+            return values[row];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EncodedInts other && plain().equals(other.plain());
+        }
+
+        @Override
+        public int hashCode() {
+            return plain().hashCode();
+        }
+    }
+
+    /**
+     * Doubles as codes into a sorted dictionary of their distinct values. The codes are integers in one of the compressed layouts.
+     */
+    record DictDoubles(double[] dictionary, EncodedInts codes) implements ColumnData {
+        static final int MAX_ENTRIES = 1 << 15;
+
+        /**
+         * Dictionary encode double values, or keep them as they are for a null encoding when the dictionary would not save bytes.
+         *
+         * @throws IllegalArgumentException if the encoding is not DICTIONARY, or there are too many distinct values.
+         */
+        static ColumnData encode(double[] values, Encoding encoding) {
+            if (encoding != null && encoding != Encoding.DICTIONARY) {
+                throw new IllegalArgumentException("Double values are only dictionary encoded");
+            }
+            int n = values.length;
+            if (n == 0) return new Doubles(values);
+            HashSet<Long> distinct = new HashSet<>();
+            for (double v : values) {
+                if (distinct.add(Double.doubleToLongBits(v)) && distinct.size() > MAX_ENTRIES) {
+                    if (encoding == null) return new Doubles(values);
+                    throw new IllegalArgumentException("A dictionary holds at most " + MAX_ENTRIES + " distinct values");
+                }
+            }
+            int d = distinct.size();
+            if (encoding == null && 8L * d + (d <= 128 ? n : 2L * n) >= 8L * n) return new Doubles(values);
+            double[] dictionary = distinct.stream().mapToDouble(Double::longBitsToDouble).sorted().toArray();
+            int[] codes = new int[n];
+            for (int i = 0; i < n; i++) codes[i] = Arrays.binarySearch(dictionary, values[i]);
+            return new DictDoubles(dictionary, (EncodedInts) EncodedInts.encode(codes, null));
+        }
+
+        double get(int row) {
+            return dictionary[codes.get(row)];
+        }
+
+        @Override
+        public ColumnType type() {
+            return ColumnType.DBL;
+        }
+
+        @Override
+        public int size() {
+            return codes.size();
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            double[] out = new double[rows.length];
+            for (int i = 0; i < rows.length; i++) out[i] = get(rows[i]);
+            return new Doubles(out);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            double[] out = new double[to - from];
+            for (int i = from; i < to; i++) out[i - from] = get(i);
+            return new Doubles(out);
+        }
+
+        @Override
+        public ColumnData copy() {
+            return this;
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return Double.compare(get(i), get(j));
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            sb.append(get(row));
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            return plain().concat(parts);
+        }
+
+        @Override
+        public ColumnData plain() {
+            return slice(0, size());
+        }
+
+        /**
+         * Mark the rows whose value is in [lo, hi). As the dictionary is sorted, the values in the range have a range of codes,
+         * which is matched on the encoded codes.
+         */
+        void in(double lo, double hi, boolean[] out) {
+            int from = 0;
+            while (from < dictionary.length && !(dictionary[from] >= lo)) from++;
+            int to = from;
+            while (to < dictionary.length && dictionary[to] < hi) to++;
+            if (from < to) codes.in(from, to, out);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof DictDoubles other && plain().equals(other.plain());
+        }
+
+        @Override
+        public int hashCode() {
+            return plain().hashCode();
+        }
+    }
+
+    /**
+     * The rows [offset, offset + length) of other values, read in place. A view keeps the values it was taken from alive.
+     */
+    record View(ColumnData parent, int offset, int length) implements ColumnData {
+        /**
+         * A view of the rows [from, to) of the given values, the values themselves for all their rows,
+         * and a view of every chunk the range covers for chunked values.
+         */
+        static ColumnData of(ColumnData data, int from, int to) {
+            if (from == 0 && to == data.size()) return data;
+            if (data instanceof View view) return new View(view.parent, view.offset + from, to - from);
+            if (data instanceof Selection sel) return new Selection(sel.parent(), Arrays.copyOfRange(sel.rows(), from, to));
+            if (data instanceof Chunks chunked) {
+                ColumnData[] chunks = chunked.chunks();
+                int[] starts = chunked.starts();
+                ArrayList<ColumnData> parts = new ArrayList<>();
+                for (int k = 0; k < chunks.length; k++) {
+                    int lo = Math.max(from, starts[k]);
+                    int hi = Math.min(to, starts[k + 1]);
+                    if (lo < hi) parts.add(of(chunks[k], lo - starts[k], hi - starts[k]));
+                }
+                return parts.isEmpty() ? new View(chunks[0], 0, 0) : Chunks.of(parts.toArray(new ColumnData[0]));
+            }
+            return new View(data, from, to - from);
+        }
+
+        @Override
+        public ColumnType type() {
+            return parent.type();
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            int[] shifted = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) shifted[i] = rows[i] + offset;
+            return parent.gather(shifted);
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return parent.slice(offset + from, offset + to);
+        }
+
+        @Override
+        public ColumnData copy() {
+            return compact();
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return parent.compare(offset + i, offset + j);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            parent.format(sb, offset + row);
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            return compact().concat(parts);
+        }
+
+        @Override
+        public ColumnData onHeap() {
+            return compact().onHeap();
+        }
+
+        @Override
+        public ColumnData offHeap() {
+            return compact().offHeap();
+        }
+
+        @Override
+        public ColumnData compact() {
+            return parent.slice(offset, offset + length);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof View other && compact().equals(other.compact());
+        }
+
+        @Override
+        public int hashCode() {
+            return compact().hashCode();
+        }
+    }
+
+    /**
+     * The given rows of other values, in the given order, read in place. A selection keeps the values it was taken from alive.
+     */
+    record Selection(ColumnData parent, int[] rows) implements ColumnData {
+        /**
+         * A selection of the given rows of the given values. The rows of a selection or a view are mapped to the rows of its parent,
+         * so that selecting from a selection does not stack.
+         */
+        static ColumnData of(ColumnData data, int[] rows) {
+            if (data instanceof Selection sel) return new Selection(sel.parent, sel.map(rows));
+            if (data instanceof View view) {
+                int[] mapped = new int[rows.length];
+                for (int i = 0; i < rows.length; i++) mapped[i] = rows[i] + view.offset();
+                return new Selection(view.parent(), mapped);
+            }
+            return new Selection(data, rows);
+        }
+
+        @Override
+        public ColumnType type() {
+            return parent.type();
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+
+        @Override
+        public ColumnData gather(int[] rows) {
+            return parent.gather(map(rows));
+        }
+
+        @Override
+        public ColumnData slice(int from, int to) {
+            return parent.gather(Arrays.copyOfRange(rows, from, to));
+        }
+
+        @Override
+        public ColumnData copy() {
+            return compact();
+        }
+
+        @Override
+        public int compare(int i, int j) {
+            return parent.compare(rows[i], rows[j]);
+        }
+
+        @Override
+        public void format(StringBuilder sb, int row) {
+            parent.format(sb, rows[row]);
+        }
+
+        @Override
+        public ColumnData concat(ColumnData[] parts) {
+            return compact().concat(parts);
+        }
+
+        @Override
+        public ColumnData onHeap() {
+            return compact().onHeap();
+        }
+
+        @Override
+        public ColumnData offHeap() {
+            return compact().offHeap();
+        }
+
+        @Override
+        public ColumnData compact() {
+            return parent.gather(rows);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Selection other && compact().equals(other.compact());
+        }
+
+        @Override
+        public int hashCode() {
+            return compact().hashCode();
+        }
+
+        /**
+         * The rows of the parent behind the given rows of the selection.
+         */
+        private int[] map(int[] rows) {
+            int[] mapped = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) mapped[i] = this.rows[rows[i]];
+            return mapped;
+        }
+    }
+
+    /**
+     * A direct buffer of the given number of bytes in native byte order.
+     * A single direct buffer holds at most Integer.MAX_VALUE bytes.
+     */
+    private static ByteBuffer direct(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A column of " + bytes + " bytes is too large to be stored off the heap");
+        }
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * The values of the parts in arrays on the heap.
+     */
+    static ColumnData[] onHeap(ColumnData[] parts) {
+        ColumnData[] out = new ColumnData[parts.length];
+        for (int k = 0; k < parts.length; k++) out[k] = parts[k].onHeap();
+        return out;
+    }
+
+    private static int compareStrings(String a, String b) {
+        if (a == null || b == null) return a == null ? (b == null ? 0 : -1) : 1;
+        return a.compareTo(b);
+    }
+}
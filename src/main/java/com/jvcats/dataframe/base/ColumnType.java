@@ -0,0 +1,62 @@
+package com.jvcats.dataframe.base;
+
+/**
+ * The type of the values of a Column.
+ * Dates are stored as days since 1970-01-01 and timestamps as milliseconds since 1970-01-01T00:00:00Z.
+ *
+ * @author henry
+ */
+public enum ColumnType {
+    DBL("dbl"),
+    INT("int"),
+    STR("str"),
+    LONG("long"),
+    FLOAT("float"),
+    SHORT("short"),
+    BYTE("byte"),
+    BOOL("bool"),
+    DATE("date"),
+    TIMESTAMP("timestamp");
+
+    private final String name;
+
+    ColumnType(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the short name of the type, as returned by DataFrame.colType.
+     *
+     * @return The short name, e.g. "dbl", "int" or "str".
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the type with the given short name.
+     *
+     * @param name The short name, e.g. "dbl".
+     * @return The type.
+     */
+    public static ColumnType of(String name) {
+        for (ColumnType type : values()) {
+            if (type.name.equals(name)) return type;
+        }
+        throw new IllegalArgumentException("Unknown column type " + name);
+    }
+
+    /**
+     * The type which holds the values of both types, widening int to long and either to dbl,
+     * or null if the types cannot be joined.
+     */
+    static ColumnType join(ColumnType a, ColumnType b) {
+        if (a == b) return a;
+        if (!a.isNumber() || !b.isNumber()) return null;
+        return a == DBL || b == DBL ? DBL : LONG;
+    }
+
+    private boolean isNumber() {
+        return this == INT || this == LONG || this == DBL;
+    }
+}
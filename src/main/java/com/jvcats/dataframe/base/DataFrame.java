@@ -1,14 +1,15 @@
 package com.jvcats.dataframe.base;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
-import java.util.stream.IntStream;
 import java.util.ArrayList;
 
 /**
@@ -151,13 +152,8 @@ public class DataFrame {
     public DataFrame colTypesDF() {
         String[][] colsType = new String[2][this.ncol()];
         for (int i = 0; i < this.ncol(); i++) {
-            if (this.getCol(i).getDbls() != null) {
-                colsType[1][i] = "dbl";
-            } else if (this.getCol(i).getStrs() != null) {
-                colsType[1][i] = "str";
-            } else if (this.getCol(i).getInts() != null) {
-                colsType[1][i] = "int";
-            }
+            ColumnType type = this.getCol(i).getType();
+            colsType[1][i] = type == null ? null : type.getName();
         }
         colsType[0] = this.getAllColnames();
         return (new DataFrame(new String[]{"Names", "Types"}, colsType));
@@ -170,16 +166,8 @@ public class DataFrame {
      * @return The data type of the column.
      */
     public String colType(int which) {
-        String colType = "";
-        int whichOne = this.cPos(which);
-        if (this.getCol(whichOne).getDbls() != null) {
-            colType = "dbl";
-        } else if (this.getCol(whichOne).getStrs() != null) {
-            colType = "str";
-        } else if (this.getCol(whichOne).getInts() != null) {
-            colType = "int";
-        }
-        return (colType);
+        ColumnType type = this.getCol(this.cPos(which)).getType();
+        return (type == null ? "" : type.getName());
     }
 
     /**
@@ -244,7 +232,7 @@ public class DataFrame {
      * @return The value in specified location.
      */
     public double locDbl(int row, int col) {
-        return (this.getCol(col).getDbls()[row]);
+        return (this.getCol(col).getDbl(row));
     }
 
     /**
@@ -255,7 +243,7 @@ public class DataFrame {
      * @return The value in specified location.
      */
     public double locDbl(int row, String colname) {
-        return (this.getCol(colname).getDbls()[row]);
+        return (this.getCol(colname).getDbl(row));
     }
 
     /**
@@ -266,7 +254,7 @@ public class DataFrame {
      * @return The value in specified location.
      */
     public String locStr(int row, int col) {
-        return (this.getCol(col).getStrs()[row]);
+        return (this.getCol(col).getStr(row));
     }
 
     /**
@@ -277,7 +265,7 @@ public class DataFrame {
      * @return The value in specified location.
      */
     public String locStr(int row, String colname) {
-        return (this.getCol(colname).getStrs()[row]);
+        return (this.getCol(colname).getStr(row));
     }
 
     /**
@@ -288,7 +276,7 @@ public class DataFrame {
      * @return The value in specified location.
      */
     public int locInt(int row, int col) {
-        return (this.getCol(col).getInts()[row]);
+        return (this.getCol(col).getInt(row));
     }
 
     /**
@@ -299,7 +287,7 @@ public class DataFrame {
      * @return The value in specified location.
      */
     public int locInt(int row, String colname) {
-        return (this.getCol(colname).getInts()[row]);
+        return (this.getCol(colname).getInt(row));
     }
 
     /**
@@ -662,15 +650,71 @@ public class DataFrame {
      * @return The total number.
      */
     public int nrow() {
-        int rowNum = 0;
-        if (this.getCol(0).getDbls() != null) {
-            rowNum = this.getCol(0).getDbls().length;
-        } else if (this.getCol(0).getStrs() != null) {
-            rowNum = this.getCol(0).getStrs().length;
-        } else if (this.getCol(0).getInts() != null) {
-            rowNum = this.getCol(0).getInts().length;
+        return (this.getCol(0).nrow());
+    }
+
+    /**
+     * Move the double, integer and long columns of a DataFrame off the heap, into direct memory which the garbage collector
+     * neither scans nor copies. Other columns stay on the heap.
+     *
+     * @return The DataFrame itself.
+     */
+    public DataFrame offHeap() {
+        for (Column col : this.columns) {
+            col.offHeap();
+        }
+        return (this);
+    }
+
+    /**
+     * Compress the integer and double columns of a DataFrame, each with the encoding which takes the fewest bytes,
+     * and store the plain string columns as UTF-8 bytes. Filters on compressed columns read the encoded values in place.
+     * Other columns stay as they are.
+     *
+     * @return The DataFrame itself.
+     */
+    public DataFrame compress() {
+        for (Column col : this.columns) {
+            col.compress();
+        }
+        return (this);
+    }
+
+    /**
+     * Decode the compressed columns of a DataFrame back into arrays.
+     *
+     * @return The DataFrame itself.
+     */
+    public DataFrame decompress() {
+        for (Column col : this.columns) {
+            col.decompress();
         }
-        return (rowNum);
+        return (this);
+    }
+
+    /**
+     * Join the chunks of the columns built by rbind into one array each, and copy the rows of columns which are views
+     * or selections of another DataFrame, such as those returned by rloc, head, tail, filter and order, into their own arrays.
+     *
+     * @return The DataFrame itself.
+     */
+    public DataFrame compact() {
+        for (Column col : this.columns) {
+            col.compact();
+        }
+        return (this);
+    }
+
+    /**
+     * Move the off-heap columns of a DataFrame back onto the heap.
+     *
+     * @return The DataFrame itself.
+     */
+    public DataFrame onHeap() {
+        for (Column col : this.columns) {
+            col.onHeap();
+        }
+        return (this);
     }
 
     /**
@@ -792,7 +836,8 @@ public class DataFrame {
     }
 
     /**
-     * Filter the DataFrame based on the FilterKey.
+     * Filter the DataFrame based on the FilterKey. The columns are selections of the kept rows, which read the values of this
+     * DataFrame in place, so that chained filters only combine their rows. They are copied when compacted or changed.
      *
      * @return The filtered DataFrame.
      */
@@ -801,45 +846,17 @@ public class DataFrame {
             System.out.println("Error: Set the filterKey first");
             System.exit(0);
         }
-        boolean[] logic = this.finalFilterValues;
-        Column[] cols = new Column[this.ncol()];
-        int k = 0;
-        for (int j = 0; j < this.ncol(); ++j) {
-            k = 0;
-            if (this.colType(j).equals("dbl")) {
-                cols[j] = new Column(this.getColname(j), new double[this.nrow()]);
-                for (int i = 0; i < this.nrow(); ++i) {
-                    if (logic[i]) {
-                        cols[j].setDbl(this.getCol(j).getDbls()[i], k);
-                        k++;
-                    }
-                }
-            } else if (this.colType(j).equals("str")) {
-                cols[j] = new Column(this.getColname(j), new String[this.nrow()]);
-                for (int i = 0; i < this.nrow(); ++i) {
-                    if (logic[i]) {
-                        cols[j].setStr(this.getCol(j).getStrs()[i], k);
-                        k++;
-                    }
-                }
-            } else if (this.colType(j).equals("int")) {
-                cols[j] = new Column(this.getColname(j), new int[this.nrow()]);
-                for (int i = 0; i < this.nrow(); ++i) {
-                    if (logic[i]) {
-                        cols[j].setInt(this.getCol(j).getInts()[i], k);
-                        k++;
-                    }
-                }
-            }
-            if (k == 0) {
-                System.out.println("Error: No observations meet the request");
-                System.exit(0);
-            }
+        int[] rows = trueRows(this.finalFilterValues, this.nrow());
+        if (this.ncol() > 0 && rows.length == 0) {
+            System.out.println("Error: No observations meet the request");
+            System.exit(0);
         }
         DataFrame df = new DataFrame();
         df.columns = new ArrayList<>();
-        df.columns.addAll(Arrays.asList(cols));
-        return (df.rloc(0, k).statusClone(this));
+        for (int j = 0; j < this.ncol(); ++j) {
+            df.columns.add(this.getCol(j).select(rows));
+        }
+        return (df.statusClone(this));
     }
 
     private static void filterOrg(DataFrame df) {
@@ -847,42 +864,30 @@ public class DataFrame {
             System.out.println("Error: Set the filterKey first");
             System.exit(0);
         }
-        boolean[] logic = df.finalFilterValues;
-        int k = 0;
+        int[] rows = trueRows(df.finalFilterValues, df.nrow());
+        if (df.ncol() > 0 && rows.length == 0) {
+            System.out.println("Error: No observations meet the request");
+            System.exit(0);
+        }
         for (int j = 0; j < df.ncol(); ++j) {
-            k = 0;
-            if (df.colType(j).equals("dbl")) {
-                for (int i = 0; i < df.nrow(); ++i) {
-                    if (logic[i]) {
-                        df.getCol(j).setDbl(df.getCol(j).getDbls()[i], k);
-                        k++;
-                    }
-                }
-            } else if (df.colType(j).equals("str")) {
-                for (int i = 0; i < df.nrow(); ++i) {
-                    if (logic[i]) {
-                        df.getCol(j).setStr(df.getCol(j).getStrs()[i], k);
-                        k++;
-                    }
-                }
-            } else if (df.colType(j).equals("int")) {
-                for (int i = 0; i < df.nrow(); ++i) {
-                    if (logic[i]) {
-                        df.getCol(j).setInt(df.getCol(j).getInts()[i], k);
-                        k++;
-                    }
-                }
-            }
-//            df = df.delFilterKey();
-            if (k == 0) {
-                System.out.println("Error: No observations meet the request");
-                System.exit(0);
-            }
+            df.getCol(j).gatherInPlace(rows);
         }
-        rlocOrg(df, 0, k);
         df.delFilterKey();
     }
 
+    private static int[] trueRows(boolean[] logic, int nrow) {
+        int k = 0;
+        for (int i = 0; i < nrow; ++i) {
+            if (logic[i]) k++;
+        }
+        int[] rows = new int[k];
+        k = 0;
+        for (int i = 0; i < nrow; ++i) {
+            if (logic[i]) rows[k++] = i;
+        }
+        return (rows);
+    }
+
     /**
      * Delete all keys from the DataFrame.
      *
@@ -1172,7 +1177,7 @@ public class DataFrame {
         int which_col = this.indexCol(colname);
         int check = 0;
         for (int i = 0; i < this.nrow(); ++i) {
-            if (this.getCol(which_col).getDbls()[i] > base) {
+            if (this.getCol(which_col).isValid(i) && this.getCol(which_col).getDbl(i) > base) {
                 logic[i] = true;
                 check++;
             } else {
@@ -1200,7 +1205,7 @@ public class DataFrame {
         int which_col = this.indexCol(colname);
         int check = 0;
         for (int i = 0; i < this.nrow(); ++i) {
-            if (this.getCol(which_col).getDbls()[i] < base) {
+            if (this.getCol(which_col).isValid(i) && this.getCol(which_col).getDbl(i) < base) {
                 logic[i] = true;
                 check++;
             } else {
@@ -1225,16 +1230,10 @@ public class DataFrame {
      * @return The DataFrame with the filter values added to the FilterKey.
      */
     public DataFrame addFilterRange(String colname, double base1, double base2) {
-        boolean[] logic = new boolean[this.nrow()];
-        int which_col = this.indexCol(colname);
+        boolean[] logic = this.getCol(colname).dblsIn(base1, base2);
         int check = 0;
-        for (int i = 0; i < this.nrow(); ++i) {
-            if (this.getCol(which_col).getDbls()[i] >= base1 && this.getCol(which_col).getDbls()[i] < base2) {
-                logic[i] = true;
-                check++;
-            } else {
-                logic[i] = false;
-            }
+        for (boolean b : logic) {
+            if (b) check++;
         }
         if (check == 0) {
             System.out.println("Error: No observations meet the request");
@@ -1258,7 +1257,7 @@ public class DataFrame {
         int which_col = this.indexCol(colname);
         int check = 0;
         for (int i = 0; i < this.nrow(); ++i) {
-            if (this.getCol(which_col).getInts()[i] > base) {
+            if (this.getCol(which_col).isValid(i) && this.getCol(which_col).getIntegral(i) > base) {
                 logic[i] = true;
                 check++;
             } else {
@@ -1286,7 +1285,7 @@ public class DataFrame {
         int which_col = this.indexCol(colname);
         int check = 0;
         for (int i = 0; i < this.nrow(); ++i) {
-            if (this.getCol(which_col).getInts()[i] >= base) {
+            if (this.getCol(which_col).isValid(i) && this.getCol(which_col).getIntegral(i) >= base) {
                 logic[i] = true;
                 check++;
             } else {
@@ -1314,7 +1313,7 @@ public class DataFrame {
         int which_col = this.indexCol(colname);
         int check = 0;
         for (int i = 0; i < this.nrow(); ++i) {
-            if (this.getCol(which_col).getInts()[i] < base) {
+            if (this.getCol(which_col).isValid(i) && this.getCol(which_col).getIntegral(i) < base) {
                 logic[i] = true;
                 check++;
             } else {
@@ -1342,7 +1341,7 @@ public class DataFrame {
         int which_col = this.indexCol(colname);
         int check = 0;
         for (int i = 0; i < this.nrow(); ++i) {
-            if (this.getCol(which_col).getInts()[i] <= base) {
+            if (this.getCol(which_col).isValid(i) && this.getCol(which_col).getIntegral(i) <= base) {
                 logic[i] = true;
                 check++;
             } else {
@@ -1367,16 +1366,10 @@ public class DataFrame {
      * @return The DataFrame with the filter values added to the FilterKey.
      */
     public DataFrame addFilterRange(String colname, int base1, int base2) {
-        boolean[] logic = new boolean[this.nrow()];
-        int which_col = this.indexCol(colname);
+        boolean[] logic = this.getCol(colname).intsIn(base1, base2);
         int check = 0;
-        for (int i = 0; i < this.nrow(); ++i) {
-            if (this.getCol(which_col).getInts()[i] >= base1 && this.getCol(which_col).getInts()[i] < base2) {
-                logic[i] = true;
-                check++;
-            } else {
-                logic[i] = false;
-            }
+        for (boolean b : logic) {
+            if (b) check++;
         }
         if (check == 0) {
             System.out.println("Error: No observations meet the request");
@@ -1409,16 +1402,10 @@ public class DataFrame {
      * @return The DataFrame with the filter values added to the FilterKey.
      */
     public DataFrame addFilterEq(String colname, int base) {
-        boolean[] logic = new boolean[this.nrow()];
-        int which_col = this.indexCol(colname);
+        boolean[] logic = this.getCol(colname).intsIn(base, base + 1L);
         int check = 0;
-        for (int i = 0; i < this.nrow(); ++i) {
-            if (this.getCol(which_col).getInts()[i] == base) {
-                logic[i] = true;
-                check++;
-            } else {
-                logic[i] = false;
-            }
+        for (boolean b : logic) {
+            if (b) check++;
         }
         if (check == 0) {
             System.out.println("Error: No observations meet the request");
@@ -1441,7 +1428,7 @@ public class DataFrame {
         int which_col = this.indexCol(colname);
         int check = 0;
         for (int i = 0; i < this.nrow(); ++i) {
-            if (Arrays.asList(base).contains(this.getCol(which_col).getInts()[i])) {
+            if (this.getCol(which_col).isValid(i) && Arrays.asList(base).contains(this.getCol(which_col).getIntegral(i))) {
                 logic[i] = true;
                 check++;
             } else {
@@ -1457,6 +1444,30 @@ public class DataFrame {
         return (this);
     }
 
+    /**
+     * Add the filter values by filter the DataFrame if the value in a long or integer column is equal to given long value.
+     *
+     * @param colname The column name.
+     * @param base The long value.
+     * @return The DataFrame with the filter values added to the FilterKey.
+     */
+    public DataFrame addFilterEq(String colname, long base) {
+        boolean[] logic = new boolean[this.nrow()];
+        Column col = this.getCol(colname);
+        int check = 0;
+        for (int i = 0; i < this.nrow(); ++i) {
+            logic[i] = col.isValid(i) && col.getIntegral(i) == base;
+            if (logic[i]) check++;
+        }
+        if (check == 0) {
+            System.out.println("Error: No observations meet the request");
+            System.exit(0);
+        }
+        this.filterKey.addCriterion(logic, colname, "==",String.valueOf(base), this.andOrOrNow);
+        this.updateFinalFromLast();
+        return (this);
+    }
+
     /**
      * Add the filter values by filter the DataFrame if the value in a column is not equal to given integer value.
      *
@@ -1469,7 +1480,7 @@ public class DataFrame {
         int which_col = this.indexCol(colname);
         int check = 0;
         for (int i = 0; i < this.nrow(); ++i) {
-            if (this.getCol(which_col).getInts()[i] != base) {
+            if (this.getCol(which_col).isValid(i) && this.getCol(which_col).getIntegral(i) != base) {
                 logic[i] = true;
                 check++;
             } else {
@@ -1497,7 +1508,7 @@ public class DataFrame {
         int which_col = this.indexCol(colname);
         int check = 0;
         for (int i = 0; i < this.nrow(); ++i) {
-            if (!Arrays.asList(base).contains(this.getCol(which_col).getInts()[i])) {
+            if (this.getCol(which_col).isValid(i) && !Arrays.asList(base).contains(this.getCol(which_col).getIntegral(i))) {
                 logic[i] = true;
                 check++;
             } else {
@@ -1537,12 +1548,18 @@ public class DataFrame {
         boolean[] logic = new boolean[this.nrow()];
         int which_col = this.indexCol(colname);
         int check = 0;
-        for (int i = 0; i < this.nrow(); ++i) {
-            if (this.getCol(which_col).getStrs()[i].equals(base)) {
-                logic[i] = true;
-                check++;
-            } else {
-                logic[i] = false;
+        if (this.getCol(which_col).isCategorical()) {
+            boolean[] hits = levelHits(this.getCol(which_col), new String[]{base});
+            int[] codes = this.getCol(which_col).codes();
+            for (int i = 0; i < this.nrow(); ++i) {
+                logic[i] = hits[codes[i] + 1];
+                if (logic[i]) check++;
+            }
+        } else {
+            boolean[] hits = this.getCol(which_col).strsEq(base);
+            for (int i = 0; i < this.nrow(); ++i) {
+                logic[i] = hits[i];
+                if (logic[i]) check++;
             }
         }
         if (check == 0) {
@@ -1565,12 +1582,18 @@ public class DataFrame {
         boolean[] logic = new boolean[this.nrow()];
         int which_col = this.indexCol(colname);
         int check = 0;
-        for (int i = 0; i < this.nrow(); ++i) {
-            if (Arrays.asList(base).contains(this.getCol(which_col).getStrs()[i])) {
-                logic[i] = true;
-                check++;
-            } else {
-                logic[i] = false;
+        if (this.getCol(which_col).isCategorical()) {
+            boolean[] hits = levelHits(this.getCol(which_col), base);
+            int[] codes = this.getCol(which_col).codes();
+            for (int i = 0; i < this.nrow(); ++i) {
+                logic[i] = hits[codes[i] + 1];
+                if (logic[i]) check++;
+            }
+        } else {
+            boolean[] hits = this.getCol(which_col).strsIn(base);
+            for (int i = 0; i < this.nrow(); ++i) {
+                logic[i] = hits[i];
+                if (logic[i]) check++;
             }
         }
         if (check == 0) {
@@ -1593,12 +1616,18 @@ public class DataFrame {
         boolean[] logic = new boolean[this.nrow()];
         int which_col = this.indexCol(colname);
         int check = 0;
-        for (int i = 0; i < this.nrow(); ++i) {
-            if (!this.getCol(which_col).getStrs()[i].equals(base)) {
-                logic[i] = true;
-                check++;
-            } else {
-                logic[i] = false;
+        if (this.getCol(which_col).isCategorical()) {
+            boolean[] hits = levelHits(this.getCol(which_col), new String[]{base});
+            int[] codes = this.getCol(which_col).codes();
+            for (int i = 0; i < this.nrow(); ++i) {
+                logic[i] = !hits[codes[i] + 1];
+                if (logic[i]) check++;
+            }
+        } else {
+            boolean[] hits = this.getCol(which_col).strsEq(base);
+            for (int i = 0; i < this.nrow(); ++i) {
+                logic[i] = !hits[i];
+                if (logic[i]) check++;
             }
         }
         if (check == 0) {
@@ -1621,12 +1650,18 @@ public class DataFrame {
         boolean[] logic = new boolean[this.nrow()];
         int which_col = this.indexCol(colname);
         int check = 0;
-        for (int i = 0; i < this.nrow(); ++i) {
-            if (!Arrays.asList(base).contains(this.getCol(which_col).getStrs()[i])) {
-                logic[i] = true;
-                check++;
-            } else {
-                logic[i] = false;
+        if (this.getCol(which_col).isCategorical()) {
+            boolean[] hits = levelHits(this.getCol(which_col), base);
+            int[] codes = this.getCol(which_col).codes();
+            for (int i = 0; i < this.nrow(); ++i) {
+                logic[i] = !hits[codes[i] + 1];
+                if (logic[i]) check++;
+            }
+        } else {
+            boolean[] hits = this.getCol(which_col).strsIn(base);
+            for (int i = 0; i < this.nrow(); ++i) {
+                logic[i] = !hits[i];
+                if (logic[i]) check++;
             }
         }
         if (check == 0) {
@@ -1638,6 +1673,19 @@ public class DataFrame {
         return (this);
     }
 
+    /**
+     * Mark the levels of a categorical column found in given values, at the index of the code plus one so that a missing value is at 0.
+     */
+    private static boolean[] levelHits(Column col, String[] base) {
+        boolean[] hits = new boolean[col.levels().length + 1];
+        hits[0] = Arrays.asList(base).contains(null);
+        for (String value : base) {
+            int code = col.codeOf(value);
+            if (code >= 0) hits[code + 1] = true;
+        }
+        return hits;
+    }
+
     /**
      * Add the filter values by filter the DataFrame if the value in a column is greater than the value in another column.
      *
@@ -1654,17 +1702,17 @@ public class DataFrame {
         double[] intsToDbls2 = new double[nrow()];
         if(this.colType(which_col1).equals("int")){
             for(int i=0; i<nrow(); i++) {
-                intsToDbls1[i] = this.getCol(which_col1).getInts()[i];
+                intsToDbls1[i] = this.getCol(which_col1).isValid(i) ? this.getCol(which_col1).getInt(i) : Double.NaN;
             }
         }else if(this.colType(which_col1).equals("dbl")){
-            intsToDbls1 = this.getCol(which_col1).getDbls();
+            intsToDbls1 = this.getCol(which_col1).dbls();
         }
         if(this.colType(which_col2).equals("int")){
             for(int i=0; i<nrow(); i++) {
-                intsToDbls2[i] = this.getCol(which_col2).getInts()[i];
+                intsToDbls2[i] = this.getCol(which_col2).isValid(i) ? this.getCol(which_col2).getInt(i) : Double.NaN;
             }
         }else if(this.colType(which_col2).equals("dbl")){
-            intsToDbls2 = this.getCol(which_col2).getDbls();
+            intsToDbls2 = this.getCol(which_col2).dbls();
         }
         for (int i = 0; i < this.nrow(); ++i) {
             if (intsToDbls1[i] > intsToDbls2[i]) {
@@ -1699,17 +1747,17 @@ public class DataFrame {
         double[] intsToDbls2 = new double[nrow()];
         if(this.colType(which_col1).equals("int")){
             for(int i=0; i<nrow(); i++) {
-                intsToDbls1[i] = this.getCol(which_col1).getInts()[i];
+                intsToDbls1[i] = this.getCol(which_col1).isValid(i) ? this.getCol(which_col1).getInt(i) : Double.NaN;
             }
         }else if(this.colType(which_col1).equals("dbl")){
-            intsToDbls1 = this.getCol(which_col1).getDbls();
+            intsToDbls1 = this.getCol(which_col1).dbls();
         }
         if(this.colType(which_col2).equals("int")){
             for(int i=0; i<nrow(); i++) {
-                intsToDbls2[i] = this.getCol(which_col2).getInts()[i];
+                intsToDbls2[i] = this.getCol(which_col2).isValid(i) ? this.getCol(which_col2).getInt(i) : Double.NaN;
             }
         }else if(this.colType(which_col2).equals("dbl")){
-            intsToDbls2 = this.getCol(which_col2).getDbls();
+            intsToDbls2 = this.getCol(which_col2).dbls();
         }
         for (int i = 0; i < this.nrow(); ++i) {
             if (intsToDbls1[i] >= intsToDbls2[i]) {
@@ -1745,17 +1793,17 @@ public class DataFrame {
         if(!this.colType(which_col1).equals("str")){
             if(this.colType(which_col1).equals("int")){
                 for(int i=0; i<nrow(); i++) {
-                    intsToDbls1[i] = this.getCol(which_col1).getInts()[i];
+                    intsToDbls1[i] = this.getCol(which_col1).isValid(i) ? this.getCol(which_col1).getInt(i) : Double.NaN;
                 }
             }else if(this.colType(which_col1).equals("dbl")){
-                intsToDbls1 = this.getCol(which_col1).getDbls();
+                intsToDbls1 = this.getCol(which_col1).dbls();
             }
             if(this.colType(which_col2).equals("int")){
                 for(int i=0; i<nrow(); i++) {
-                    intsToDbls2[i] = this.getCol(which_col2).getInts()[i];
+                    intsToDbls2[i] = this.getCol(which_col2).isValid(i) ? this.getCol(which_col2).getInt(i) : Double.NaN;
                 }
             }else if(this.colType(which_col2).equals("dbl")){
-                intsToDbls2 = this.getCol(which_col2).getDbls();
+                intsToDbls2 = this.getCol(which_col2).dbls();
             }
             for (int i = 0; i < this.nrow(); ++i) {
                 if (intsToDbls1[i] == intsToDbls2[i]) {
@@ -1767,7 +1815,7 @@ public class DataFrame {
             }
         }else if (this.colType(which_col1).equals("str")) {
             for (int i = 0; i < this.nrow(); ++i) {
-                if (this.getCol(which_col1).getStrs()[i].equals(this.getCol(which_col2).getStrs()[i])) {
+                if (this.getCol(which_col1).getStr(i).equals(this.getCol(which_col2).getStr(i))) {
                     logic[i] = true;
                     check++;
                 } else {
@@ -1808,13 +1856,7 @@ public class DataFrame {
                 if (j == 0) {
                     System.out.print("\u001B[36m" + (i + 1) + ":" + "\u001B[0m");
                 }
-                if (this.colType(j).equals("dbl")) {
-                    System.out.print("\u001B[34m" + " / " + "\u001B[0m" + this.getCol(j).getDbls()[i]);
-                } else if (this.colType(j).equals("str")) {
-                    System.out.print("\u001B[34m" + " / " + "\u001B[0m" + this.getCol(j).getStrs()[i]);
-                } else if (this.colType(j).equals("int")) {
-                    System.out.print("\u001B[34m" + " / " + "\u001B[0m" + this.getCol(j).getInts()[i]);
-                }
+                System.out.print("\u001B[34m" + " / " + "\u001B[0m" + this.getCol(j).format(i));
             }
             System.out.println("");
         }
@@ -1852,13 +1894,7 @@ public class DataFrame {
                 if (j == 0) {
                     System.out.print("\u001B[36m" + (i + 1) + ":" + "\u001B[0m");
                 }
-                if (this.getCol(j).getDbls() != null) {
-                    System.out.print("\u001B[34m" + " /" + (j + 1) + "\u001B[0m" + " " + this.getCol(j).getDbls()[i]);
-                } else if (this.getCol(j).getStrs() != null) {
-                    System.out.print("\u001B[34m" + " /" + (j + 1) + "\u001B[0m" + " " + this.getCol(j).getStrs()[i]);
-                } else if (this.getCol(j).getInts() != null) {
-                    System.out.print("\u001B[34m" + " /" + (j + 1) + "\u001B[0m" + " " + this.getCol(j).getInts()[i]);
-                }
+                System.out.print("\u001B[34m" + " /" + (j + 1) + "\u001B[0m" + " " + this.getCol(j).format(i));
             }
             System.out.println("");
         }
@@ -1877,29 +1913,7 @@ public class DataFrame {
         from = df.rPos(from);
         to = df.rPos(to);
         for (int j = 0; j < df.ncol(); ++j) {
-            int k = 0;
-            if (df.getCol(j).getDbls() != null) {
-                double[] dbls = new double[to - from];
-                for (int i = from; i < to; ++i) {
-                    dbls[i] = df.getCol(j).getDbls()[i];
-                    k++;
-                }
-                df.getCol(j).setDblObs(dbls);
-            } else if (df.getCol(j).getStrs() != null) {
-                String[] strs = new String[to - from];
-                for (int i = from; i < to; ++i) {
-                    strs[k] = df.getCol(j).getStrs()[i];
-                    k++;
-                }
-                df.getCol(j).setStrObs(strs);
-            } else if (df.getCol(j).getInts() != null) {
-                int[] ints = new int[to - from];
-                for (int i = from; i < to; ++i) {
-                    ints[k] = df.getCol(j).getInts()[i];
-                    k++;
-                }
-                df.getCol(j).setIntObs(ints);
-            }
+            df.getCol(j).sliceInPlace(from, to);
         }
     }
 
@@ -1925,15 +1939,58 @@ public class DataFrame {
     }
 
     /**
-     * Return a DataFrame by given row index range.
+     * Return a DataFrame by given row index range. The columns are views which read the rows of this DataFrame in place,
+     * and copy them only when they are compacted or changed.
      *
-     * @param from The starting row index (inclusive).
-     * @param to The ending row index (exclusive).
+     * @param from The starting row index (inclusive), counted from the end if negative.
+     * @param to The ending row index (exclusive), the end of the DataFrame if negative.
      * @return A DataFrame containing the selected rows.
      */
     public DataFrame rloc(int from, int to) {
-        return new DataFrame().clone(this).delFilterKey().delOrderKey().addFilterTrue(from, to,true).exeKeysOrg();
+        int nrow = this.nrow();
+        from = Math.max(0, from < 0 ? nrow + from : from);
+        to = to < 0 ? nrow : Math.min(to, nrow);
+        if (this.ncol() > 0 && from >= to) {
+            System.out.println("Error: No observations meet the request");
+            System.exit(0);
+        }
+        return (this.view(from, to));
+    }
 
+    /**
+     * Return the first rows of a DataFrame, as views which read the rows of this DataFrame in place.
+     *
+     * @param n The number of rows, all rows if there are fewer.
+     * @return A DataFrame containing the first rows.
+     */
+    public DataFrame head(int n) {
+        if (n < 0) {
+            System.out.println("Error: The number of rows must not be negative");
+            System.exit(0);
+        }
+        return (this.view(0, Math.min(n, this.nrow())));
+    }
+
+    /**
+     * Return the last rows of a DataFrame, as views which read the rows of this DataFrame in place.
+     *
+     * @param n The number of rows, all rows if there are fewer.
+     * @return A DataFrame containing the last rows.
+     */
+    public DataFrame tail(int n) {
+        if (n < 0) {
+            System.out.println("Error: The number of rows must not be negative");
+            System.exit(0);
+        }
+        return (this.view(Math.max(0, this.nrow() - n), this.nrow()));
+    }
+
+    private DataFrame view(int from, int to) {
+        Column[] cols = new Column[this.ncol()];
+        for (int j = 0; j < this.ncol(); ++j) {
+            cols[j] = this.getCol(j).view(from, to);
+        }
+        return (new DataFrame(cols));
     }
 
     /**
@@ -1958,46 +2015,18 @@ public class DataFrame {
     }
 
     private static void rlocOrg(DataFrame df, int[] chosen) {
-        int k = 0;
         for (int m = 0; m < chosen.length; m++) {
             chosen[m] = df.rPos(chosen[m]);
         }
+        int[] rows = chosen.clone();
+        Arrays.sort(rows);
+        if (df.ncol() > 0 && rows.length == 0) {
+            System.out.println("Error: No observations meet the request");
+            System.exit(0);
+        }
         for (int j = 0; j < df.ncol(); ++j) {
-            k = 0;
-            if (df.colType(j).equals("dbl")) {
-                for (int i = 0; i < df.nrow(); ++i) {
-                    for (int m = 0; m < chosen.length; m++) {
-                        if (i == chosen[m]) {
-                            df.getCol(j).setDbl(df.getCol(j).getDbls()[i], k);
-                            k++;
-                        }
-                    }
-                }
-            } else if (df.colType(j).equals("str")) {
-                for (int i = 0; i < df.nrow(); ++i) {
-                    for (int m = 0; m < chosen.length; m++) {
-                        if (i == chosen[m]) {
-                            df.getCol(j).setStr(df.getCol(j).getStrs()[i], k);
-                            k++;
-                        }
-                    }
-                }
-            } else if (df.colType(j).equals("int")) {
-                for (int i = 0; i < df.nrow(); ++i) {
-                    for (int m = 0; m < chosen.length; m++) {
-                        if (i == chosen[m]) {
-                            df.getCol(j).setInt(df.getCol(j).getInts()[i], k);
-                            k++;
-                        }
-                    }
-                }
-            }
-            if (k == 0) {
-                System.out.println("Error: No observations meet the request");
-                System.exit(0);
-            }
+            df.getCol(j).gatherInPlace(rows);
         }
-        rlocOrg(df, 0, k);
     }
 
     /**
@@ -2288,6 +2317,7 @@ public class DataFrame {
 
     /**
      * Combine two DataFrames with same column names vertically.
+     * Columns of the same type keep the values of both DataFrames as chunks without copying, and neither DataFrame is changed.
      *
      * @param df2 The DataFrame to combine with.
      * @return The DataFrame after combining.
@@ -2299,7 +2329,8 @@ public class DataFrame {
         }
         Column[] cols = new Column[this.ncol()];
         for (int i = 0; i < this.ncol(); ++i) {
-            cols[i] = this.getCol(this.getColname(i)).rbind(df2.getCol(df2.getColname(i)));
+            Column col = this.getCol(this.getColname(i));
+            cols[i] = col.getType() == null ? col : Column.concat(col.getHeader(), col.getType(), new Column[]{col, df2.getCol(df2.getColname(i))});
         }
         return (new DataFrame(cols));
     }
@@ -2350,7 +2381,7 @@ public class DataFrame {
 //    }
 
     /**
-     * Sort a DataFrame based on the OrderKey.
+     * Sort a DataFrame based on the OrderKey. Like filter, the columns are selections of the rows of this DataFrame.
      *
      * @return A DataFrame after ordering.
      */
@@ -2362,33 +2393,13 @@ public class DataFrame {
             }
             this.orderKey.setValues(order);
         }
-        int[] order = this.orderKey.getValues();
-        Column[] cols = new Column[this.ncol()];
-        for (int j = 0; j < this.ncol(); j++) {
-            Column col = new Column();
-            col.setHeader(this.getCol(j).getHeader());
-            if (this.getCol(j).getDbls() != null) {
-                col.setDblObs(new double[order.length]);
-                for (int i = 0; i < this.nrow(); i++) {
-                    col.setDbl(this.getCol(j).getDbls()[order[i]], i);
-                }
-            } else if (this.getCol(j).getStrs() != null) {
-                col.setStrObs(new String[order.length]);
-                for (int i = 0; i < this.nrow(); i++) {
-                    col.setStr(this.getCol(j).getStrs()[order[i]], i);
-                }
-            } else if (this.getCol(j).getInts() != null) {
-                col.setIntObs(new int[order.length]);
-                for (int i = 0; i < this.nrow(); i++) {
-                    col.setInt(this.getCol(j).getInts()[order[i]], i);
-                }
-            }
-            cols[j] = col;
-        }
+        int[] order = this.orderKey.getValues().clone();
         DataFrame df = new DataFrame();
         df.statusClone(this);
         df.columns = new ArrayList<>();
-        df.columns.addAll(Arrays.asList(cols));
+        for (int j = 0; j < this.ncol(); j++) {
+            df.columns.add(this.getCol(j).select(order));
+        }
         return (df);
     }
 
@@ -2403,25 +2414,7 @@ public class DataFrame {
         int[] order = df.orderKey.getValues();
         Column[] cols = new Column[df.ncol()];
         for (int j = 0; j < df.ncol(); j++) {
-            Column col = new Column();
-            col.setHeader(df.getCol(j).getHeader());
-            if (df.getCol(j).getDbls() != null) {
-                col.setDblObs(new double[order.length]);
-                for (int i = 0; i < df.nrow(); i++) {
-                    col.setDbl(df.getCol(j).getDbls()[order[i]], i);
-                }
-            } else if (df.getCol(j).getStrs() != null) {
-                col.setStrObs(new String[order.length]);
-                for (int i = 0; i < df.nrow(); i++) {
-                    col.setStr(df.getCol(j).getStrs()[order[i]], i);
-                }
-            } else if (df.getCol(j).getInts() != null) {
-                col.setIntObs(new int[order.length]);
-                for (int i = 0; i < df.nrow(); i++) {
-                    col.setInt(df.getCol(j).getInts()[order[i]], i);
-                }
-            }
-            cols[j] = col;
+            cols[j] = df.getCol(j).gather(order);
         }
         df = df.delOrderKey();
         df.columns = new ArrayList<>();
@@ -2489,26 +2482,14 @@ public class DataFrame {
      * @return The DataFrame after setting the OrderKey.
      */
     public DataFrame setOrderKey(String colname) {
-        if (this.colType(colname).equals("dbl")) {
-            double[] arr = this.getCol(this.indexCol(colname)).getDbls();
-            Integer[] indices = new Integer[arr.length];
+        Column col = this.getCol(this.indexCol(colname));
+        if (col.getType() != null) {
+            Integer[] indices = new Integer[col.nrow()];
             for (int i = 0; i < indices.length; i++) {
                 indices[i] = i;
             }
-            Arrays.sort(indices, Comparator.comparingDouble(index -> arr[index]));
-            int[] sortedIndices = new int[arr.length];
-            for (int i = 0; i < sortedIndices.length; i++) {
-                sortedIndices[i] = indices[i];
-            }
-            this.orderKey.setValues(sortedIndices);
-        } else if (this.colType(colname).equals("int")) {
-            int[] arr = this.getCol(this.indexCol(colname)).getInts();
-            Integer[] indices = new Integer[arr.length];
-            for (int i = 0; i < indices.length; i++) {
-                indices[i] = i;
-            }
-            Arrays.sort(indices, Comparator.comparingDouble(index -> arr[index]));
-            int[] sortedIndices = new int[arr.length];
+            Arrays.sort(indices, col.rowOrder());
+            int[] sortedIndices = new int[indices.length];
             for (int i = 0; i < sortedIndices.length; i++) {
                 sortedIndices[i] = indices[i];
             }
@@ -2557,7 +2538,7 @@ public class DataFrame {
     public DataFrame filledBy(String colname, double given) {
         Column col = this.getCol(colname);
         for (int i = 0; i < this.nrow(); i++) {
-            if (Double.isNaN(col.getDbls()[i])) {
+            if (col.isNull(i)) {
                 col.setDbl(given, i);
             }
         }
@@ -2585,7 +2566,7 @@ public class DataFrame {
     public DataFrame filledBy(String colname, int given) {
         Column col = this.getCol(colname);
         for (int i = 0; i < this.nrow(); i++) {
-            if (Double.isNaN(col.getInts()[i])) {
+            if (col.isNull(i)) {
                 col.setInt(given, i);
             }
         }
@@ -2613,7 +2594,7 @@ public class DataFrame {
     public DataFrame filledBy(String colname, String given) {
         Column col = this.getCol(colname);
         for (int i = 0; i < this.nrow(); i++) {
-            if (col.getStrs()[i] == null) {
+            if (col.isNull(i)) {
                 col.setStr(given, i);
             }
         }
@@ -2640,28 +2621,28 @@ public class DataFrame {
     public DataFrame filled(String colname) {
         Column col = this.getCol(colname);
         if (this.colType(colname).equals("dbl")) {
-            if (Double.isNaN(col.getDbls()[0])) {
+            if (col.isNull(0)) {
                 System.out.println("Error: The first value is NaN");
                 System.exit(0);
             }
             for (int i = 1; i < this.nrow(); i++) {
-                if (Double.isNaN(col.getDbls()[i])) {
+                if (col.isNull(i)) {
                     col.setDbl(col.getDbls()[i - 1], i);
                 }
             }
         } else if (this.colType(colname).equals("str")) {
             for (int i = 1; i < this.nrow(); i++) {
-                if (col.getStrs()[i] == null) {
+                if (col.isNull(i)) {
                     col.setStr(col.getStrs()[i - 1], i);
                 }
             }
         } else if (this.colType(colname).equals("int")) {
-            if (Double.isNaN(col.getInts()[0])) {
-                System.out.println("Error: The first value is NaN");
+            if (col.isNull(0)) {
+                System.out.println("Error: The first value is missing");
                 System.exit(0);
             }
             for (int i = 1; i < this.nrow(); i++) {
-                if (Double.isNaN(col.getInts()[i])) {
+                if (col.isNull(i)) {
                     col.setInt(col.getInts()[i - 1], i);
                 }
             }
@@ -2680,23 +2661,23 @@ public class DataFrame {
     }
 
     /**
-     * Show the unique values in an int Column.
+     * Show the unique values in an int Column, leaving out missing values.
      *
      * @param colname The column name to show unique values.
      * @return An array of unique values.
      */
     public int[] intUnique(String colname) {
-        return (IntStream.of(this.getColInts(colname)).distinct().toArray());
+        return (this.getCol(colname).intUnique());
     }
 
     /**
-     * Show the unique values in an int Column.
+     * Show the unique values in an int Column, leaving out missing values.
      *
      * @param which The column index to show unique values.
      * @return An array of unique values.
      */
     public int[] intUnique(int which) {
-        return (IntStream.of(this.getColInts(this.cPos(which))).distinct().toArray());
+        return (this.intUnique(this.getColname(this.cPos(which))));
     }
 
     /**
@@ -2706,7 +2687,8 @@ public class DataFrame {
      * @return An array of unique values.
      */
     public String[] strUnique(String colname) {
-        return (Arrays.stream(this.getColStrs(colname)).distinct().toArray(String[]::new));
+        if (this.getCol(colname).isCategorical()) return levelsInOrder(this.getCol(colname));
+        return (this.getCol(colname).strUnique());
     }
 
     /**
@@ -2716,7 +2698,33 @@ public class DataFrame {
      * @return An array of unique values.
      */
     public String[] strUnique(int which) {
-        return (Arrays.stream(this.getColStrs(this.cPos(which))).distinct().toArray(String[]::new));
+        if (this.getCol(this.cPos(which)).isCategorical()) return levelsInOrder(this.getCol(this.cPos(which)));
+        return (this.getCol(this.cPos(which)).strUnique());
+    }
+
+    /**
+     * The codes of a categorical column in order of first appearance, -1 standing for a missing value.
+     */
+    private static int[] codesInOrder(Column col) {
+        boolean[] seen = new boolean[col.levels().length + 1];
+        int[] order = new int[seen.length];
+        int n = 0;
+        for (int code : col.codes()) {
+            if (!seen[code + 1]) {
+                seen[code + 1] = true;
+                order[n++] = code;
+            }
+        }
+        return Arrays.copyOf(order, n);
+    }
+
+    private static String[] levelsInOrder(Column col) {
+        int[] order = codesInOrder(col);
+        String[] unique = new String[order.length];
+        for (int u = 0; u < order.length; u++) {
+            unique[u] = order[u] < 0 ? null : col.levels()[order[u]];
+        }
+        return unique;
     }
 
 //    private DataFrame sumBy(String colname, String byColname) {
@@ -2948,7 +2956,19 @@ public class DataFrame {
         }
         int count = 0;
         DataFrame df = new DataFrame();
-        if (this.groupKey.getValueType().equals("str")) {
+        Column group = this.getCol(groupKey.getValue());
+        if (group.isCategorical()) {
+            int[] order = codesInOrder(group);
+            int[] byCode = new int[group.levels().length + 1];
+            for (int code : group.codes()) {
+                byCode[code + 1]++;
+            }
+            int[] counts = new int[order.length];
+            for (int j = 0; j < order.length; j++) {
+                counts[j] = byCode[order[j] + 1];
+            }
+            df = new DataFrame(new Column("Group", levelsInOrder(group)), new Column("Count", counts));
+        } else if (this.groupKey.getValueType().equals("str")) {
             int[] counts = new int[this.strUnique(groupKey.getValue()).length];
             for (int j = 0; j < counts.length; j++) {
                 count = 0;
@@ -2968,7 +2988,7 @@ public class DataFrame {
             for (int j = 0; j < this.intUnique(groupKey.getValue()).length; j++) {
                 count = 0;
                 for (int i = 0; i < this.nrow(); i++) {
-                    if (unique[j] == this.locInt(i, this.indexCol(groupKey.getValue()))) {
+                    if (group.isValid(i) && unique[j] == this.locInt(i, this.indexCol(groupKey.getValue()))) {
                         count++;
                     }
                 }
@@ -2993,7 +3013,26 @@ public class DataFrame {
             System.exit(0);
         }
         DataFrame df = new DataFrame();
-        if (this.groupKey.getValueType().equals("str")) {
+        Column group = this.getCol(groupKey.getValue());
+        if (group.isCategorical()) {
+            String[] unique = levelsInOrder(group);
+            int[] slots = new int[group.levels().length + 1];
+            int[] order = codesInOrder(group);
+            for (int u = 0; u < order.length; u++) {
+                slots[order[u] + 1] = u;
+            }
+            int[][] strs = new int[unique.length][this.nrow()];
+            int[] codes = group.codes();
+            for (int j = 0; j < this.nrow(); j++) {
+                strs[slots[codes[j] + 1]][j] = 1;
+            }
+            String[] names = new String[unique.length];
+            for(int i=0; i<unique.length; i++){
+                names[i] = this.groupKey + "-" + unique[i];
+            }
+            DataFrame dummy = new DataFrame(names, strs);
+            df = this.cbind(dummy).delCol(groupKey.getValue()).delGroupKey();
+        } else if (this.groupKey.getValueType().equals("str")) {
             String[] unique = this.strUnique(this.groupKey.getValue());
             int[][] strs = new int[unique.length][this.nrow()];
             for (int i = 0; i < strs.length; i++) {
@@ -3016,7 +3055,7 @@ public class DataFrame {
             int[][] ints = new int[unique.length][this.nrow()];
             for (int i = 0; i < ints.length; i++) {
                 for (int j = 0; j < this.nrow(); j++) {
-                    if (unique[i] == this.locInt(j, this.indexCol(groupKey.getValue()))) {
+                    if (group.isValid(j) && unique[i] == this.locInt(j, this.indexCol(groupKey.getValue()))) {
                         ints[i][j] = 1;
                     } else {
                         ints[i][j] = 0;
@@ -3033,79 +3072,8 @@ public class DataFrame {
         return df;
     }
 
-    private static String determineColType(String header, String[] obs) {
-        char[] number = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '.', '-'};
-        int notNum;
-        int points;
-        int minus;
-        boolean missing = false;
-        boolean isStr = false;
-        boolean isDbl = false;
-        boolean isInt = true;
-        for (String i : obs) {
-            if (!i.isEmpty()) {
-                if (isStr) {
-                    break;
-                }
-                points = 0;
-                minus = 0;
-                for (int j = 0; j < i.length(); j++) {
-                    if (isStr) {
-                        break;
-                    }
-                    notNum = 0;
-                    if (i.charAt(j) == '.') {
-                        isDbl = true;
-                        isStr = false;
-                        isInt = false;
-                        points++;
-                        if (points >= 2) {
-                            isDbl = false;
-                            isStr = true;
-                            isInt = false;
-                        }
-                    }
-                    if (i.charAt(j) == '-') {
-                        minus++;
-                        if (minus >= 2) {
-                            isDbl = false;
-                            isStr = true;
-                            isInt = false;
-                        }
-                    }
-                    for (char k : number) {
-                        if (i.charAt(j) == k) {
-                            break;
-                        } else {
-                            notNum++;
-                        }
-                    }
-                    if (notNum == 12) {
-                        isStr = true;
-                        isDbl = false;
-                        isInt = false;
-                    }
-                }
-            } else {
-                missing = true;
-            }
-        }
-        if (isStr) {
-            return "str";
-        } else if (isDbl) {
-            return "dbl";
-        } else if (isInt && missing) {
-            System.out.println(
-                    "Warning: Integer column \"" + header + "\" has been changed into double type due to missing value existing"
-            );
-            return "dbl";
-        } else {
-            return "int";
-        }
-    }
-
     /**
-     * Read data without headers from a file as a DataFrame. The columns data type should be specified in the parameters.
+     * Read data without headers from a file as a DataFrame. The columns data type should be specified in the parameters, and columns not listed are not read.
      *
      * @param file The path of the file.
      * @param nrow The number of rows to read.
@@ -3116,75 +3084,7 @@ public class DataFrame {
      * @throws Exception if any error occurs.
      */
     public void readTableWOH(String file, int nrow, String splitBy, int[] dblCols, int[] strCols, int[] intCols) throws Exception {
-        FileReader fr = new FileReader(file);
-        BufferedReader bf = new BufferedReader(fr);
-        int[][] ints = new int[intCols.length][nrow];
-        String[][] strs = new String[strCols.length][nrow];
-        double[][] dbls = new double[dblCols.length][nrow];
-        String s = bf.readLine();
-        String[] ss = s.split(splitBy);
-        String[] colnames = new String[ss.length];
-        Column[] cols = new Column[ss.length];
-        for (int i = 0; i < ss.length; i++) {
-            colnames[i] = "Col" + (i + 1);
-        }
-        for (int k = 0; k < nrow; k++) {
-            if (k != 0) {
-                s = bf.readLine();
-                ss = s.split(splitBy);
-            }
-            for (int i = 0; i < ss.length; i++) {
-                if (intCols.length != 0) {
-                    for (int j = 0; j < intCols.length; j++) {
-                        if (i == intCols[j]) {
-                            ints[j][k] = Integer.parseInt(ss[i]);
-                        }
-                    }
-                }
-                if (strCols.length != 0) {
-                    for (int j = 0; j < strCols.length; j++) {
-                        if (i == strCols[j]) {
-                            strs[j][k] = ss[i];
-                        }
-                    }
-                }
-                if (dblCols.length != 0) {
-                    for (int j = 0; j < dblCols.length; j++) {
-                        if (i == dblCols[j]) {
-                            try {
-                                dbls[j][k] = Double.parseDouble(ss[i]);
-                            } catch (Exception e) {
-                                dbls[j][k] = Double.NaN;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        for (int i = 0; i < ss.length; i++) {
-            if (strCols.length != 0) {
-                for (int j = 0; j < strCols.length; j++) {
-                    if (i == strCols[j]) {
-                        cols[i] = new Column(colnames[i], strs[j]);
-                    }
-                }
-            }
-            if (intCols.length != 0) {
-                for (int j = 0; j < intCols.length; j++) {
-                    if (i == intCols[j]) {
-                        cols[i] = new Column(colnames[i], ints[j]);
-                    }
-                }
-            }
-            if (dblCols.length != 0) {
-                for (int j = 0; j < dblCols.length; j++) {
-                    if (i == dblCols[j]) {
-                        cols[i] = new Column(colnames[i], dbls[j]);
-                    }
-                }
-            }
-        }
-        bf.close();
+        Column[] cols = TableReader.read(file, splitBy, false, new ReadOptions(), TableReader.byIndex(dblCols, strCols, intCols), nrow);
         this.columns = new ArrayList<>();
         this.columns.addAll(Arrays.asList(cols));
     }
@@ -3197,65 +3097,19 @@ public class DataFrame {
      * @throws Exception if any error occurs.
      */
     public void readTableWOH(String file, String splitBy) throws Exception {
-        FileReader fr = new FileReader(file);
-        BufferedReader bf = new BufferedReader(fr);
-        String s = bf.readLine();
-        String[] ss = s.split(splitBy);
-        String[] colnames = new String[ss.length];
-        Column[] cols = new Column[ss.length];
-        for (int i = 0; i < ss.length; i++) {
-            colnames[i] = "Col" + (i + 1);
-        }
-        int nrow = 0;
-        while (true) {
-            s = bf.readLine();
-            if (s == null) {
-                break;
-            }
-            nrow++;
-        }
-        bf.close();
-        String[][] strs = new String[ss.length][nrow];
-        FileReader fr2 = new FileReader(file);
-        BufferedReader bf2 = new BufferedReader(fr2);
-        bf2.readLine();
-        for (int j = 0; j < nrow; j++) {
-            if (j != 0) {
-                s = bf2.readLine();
-                ss = s.split(splitBy);
-            }
-            for (int i = 0; i < ss.length; i++) {
-                strs[i][j] = ss[i];
-            }
-        }
-        for (int i = 0; i < ss.length; i++) {
-            String type = DataFrame.determineColType(colnames[i], strs[i]);
-            if (type.equals("dbl")) {
-                double[] dbls = new double[nrow];
-                for (int j = 0; j < nrow; j++) {
-                    try {
-                        dbls[j] = Double.parseDouble(strs[i][j]);
-                    } catch (Exception e) {
-                        dbls[j] = Double.NaN;
-                    }
-                }
-                cols[i] = new Column(colnames[i], dbls);
-            } else if (type.equals("int")) {
-                int[] ints = new int[nrow];
-                for (int j = 0; j < nrow; j++) {
-                    ints[j] = Integer.parseInt(strs[i][j]);
-                }
-                cols[i] = new Column(colnames[i], ints);
-            } else {
-                String[] str = new String[nrow];
-                for (int j = 0; j < nrow; j++) {
-                    str[j] = strs[i][j];
-                }
-                cols[i] = new Column(colnames[i], str);
-            }
-        }
-        bf.close();
-        bf2.close();
+        this.readTableWOH(file, splitBy, new ReadOptions());
+    }
+
+    /**
+     * Read data without headers from a file as a DataFrame with the given options. The columns data type would be determined automatically.
+     *
+     * @param file The path of the file.
+     * @param splitBy The separator used to separate columns.
+     * @param options The options for reading, e.g. reading in parallel chunks.
+     * @throws Exception if any error occurs.
+     */
+    public void readTableWOH(String file, String splitBy, ReadOptions options) throws Exception {
+        Column[] cols = TableReader.read(file, splitBy, false, options);
         this.columns = new ArrayList<>();
         this.columns.addAll(Arrays.asList(cols));
     }
@@ -3268,69 +3122,111 @@ public class DataFrame {
      * @throws Exception if any error occurs.
      */
     public void readTable(String file, String splitBy) throws Exception {
-        FileReader fr = new FileReader(file);
-        BufferedReader bf = new BufferedReader(fr);
-        String s = bf.readLine();
-        String[] ss = s.split(splitBy);
-        String[] colnames = new String[ss.length];
-        Column[] cols = new Column[ss.length];
-        for (int i = 0; i < ss.length; i++) {
-            colnames[i] = ss[i];
-        }
-        int nrow = 0;
-        while (true) {
-            s = bf.readLine();
-            if (s == null) {
-                break;
-            }
-            nrow++;
-        }
-        bf.close();
-        String[][] strs = new String[ss.length][nrow];
-        FileReader fr2 = new FileReader(file);
-        BufferedReader bf2 = new BufferedReader(fr2);
-        bf2.readLine();
-        for (int j = 0; j < nrow; j++) {
-            s = bf2.readLine();
-            ss = s.split(splitBy);
-            for (int i = 0; i < ss.length; i++) {
-                strs[i][j] = ss[i];
-            }
-        }
-        for (int i = 0; i < ss.length; i++) {
-            String type = DataFrame.determineColType(colnames[i], strs[i]);
-            if (type.equals("dbl")) {
-                double[] dbls = new double[nrow];
-                for (int j = 0; j < nrow; j++) {
-                    try {
-                        dbls[j] = Double.parseDouble(strs[i][j]);
-                    } catch (Exception e) {
-                        dbls[j] = Double.NaN;
-                    }
-                }
-                cols[i] = new Column(colnames[i], dbls);
-            } else if (type.equals("int")) {
-                int[] ints = new int[nrow];
-                for (int j = 0; j < nrow; j++) {
-                    ints[j] = Integer.parseInt(strs[i][j]);
-                }
-                cols[i] = new Column(colnames[i], ints);
-            } else {
-                String[] str = new String[nrow];
-                for (int j = 0; j < nrow; j++) {
-                    str[j] = strs[i][j];
-                }
-                cols[i] = new Column(colnames[i], str);
-            }
-        }
-        bf.close();
-        bf2.close();
+        this.readTable(file, splitBy, new ReadOptions());
+    }
+
+    /**
+     * Read data from a file as a DataFrame with the given options. The columns data type would be determined automatically.
+     *
+     * @param file The path of the file.
+     * @param splitBy The separator used to separate columns.
+     * @param options The options for reading, e.g. reading in parallel chunks.
+     * @throws Exception if any error occurs.
+     */
+    public void readTable(String file, String splitBy, ReadOptions options) throws Exception {
+        Column[] cols = TableReader.read(file, splitBy, true, options);
         this.columns = new ArrayList<>();
         this.columns.addAll(Arrays.asList(cols));
     }
 
     /**
-     * Read data from a file as a DataFrame. The columns data type should be specified in the parameters.
+     * Read many files with the same columns as one DataFrame, e.g. the daily partitions of a table.
+     * The files are read concurrently, each on its own virtual thread with at most one file per available processor being parsed at a time,
+     * and the rows are joined in the order of the files. The columns data type would be determined automatically.
+     *
+     * @param files The paths of the files.
+     * @param splitBy The separator used to separate columns.
+     * @return A DataFrame with the rows of all files.
+     * @throws Exception if any error occurs, or if the files do not have the same columns.
+     */
+    public static DataFrame readTables(List<Path> files, String splitBy) throws Exception {
+        return readTables(files, splitBy, new ReadOptions());
+    }
+
+    /**
+     * Read many files with the same columns as one DataFrame with the given options. Every file is read sequentially,
+     * and the threads of parallel options bound the number of files parsed at a time.
+     *
+     * @param files The paths of the files.
+     * @param splitBy The separator used to separate columns.
+     * @param options The options for reading every file.
+     * @return A DataFrame with the rows of all files.
+     * @throws Exception if any error occurs, or if the files do not have the same columns.
+     */
+    public static DataFrame readTables(List<Path> files, String splitBy, ReadOptions options) throws Exception {
+        return new DataFrame(TableReader.readAll(files, splitBy, options));
+    }
+
+    /**
+     * Read the files matching a glob pattern as one DataFrame, in the order of their paths, e.g. DataFrame.readTables("data/part-*.csv", ",").
+     *
+     * @param glob The glob pattern, where ** also matches across directories.
+     * @param splitBy The separator used to separate columns.
+     * @return A DataFrame with the rows of all files.
+     * @throws Exception if no file matches, if any error occurs, or if the files do not have the same columns.
+     */
+    public static DataFrame readTables(String glob, String splitBy) throws Exception {
+        return readTables(TableReader.glob(glob), splitBy, new ReadOptions());
+    }
+
+    /**
+     * Follow a file which keeps being appended to, reading the rows it has so far.
+     * Call refresh on the returned TableTail to read only the rows appended since, e.g.
+     * TableTail tail = DataFrame.followTable("log.csv", ","); ... DataFrame newRows = tail.refresh();
+     * The columns data type would be determined automatically from the first rows and kept for later rows.
+     *
+     * @param file The path of the file.
+     * @param splitBy The separator used to separate columns.
+     * @return The TableTail following the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static TableTail followTable(String file, String splitBy) throws IOException {
+        return followTable(file, splitBy, new ReadOptions());
+    }
+
+    /**
+     * Follow a file which keeps being appended to with the given options, reading the rows it has so far.
+     * The columns and filters of the options are applied to every refresh, and every refresh reads sequentially.
+     *
+     * @param file The path of the file.
+     * @param splitBy The separator used to separate columns.
+     * @param options The options for reading.
+     * @return The TableTail following the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static TableTail followTable(String file, String splitBy, ReadOptions options) throws IOException {
+        TableTail tail = new TableTail(new TableReader.TailReader(file, splitBy, options));
+        tail.refresh();
+        return tail;
+    }
+
+    /**
+     * Read data from a file in chunks of rows, each as its own DataFrame, so that only one chunk is held in memory at a time.
+     * The columns data type would be determined automatically from the first chunk and kept for all later chunks.
+     * e.g. for (DataFrame chunk : DataFrame.readTableChunks("data.csv", ",", 100000)) {...}
+     *
+     * @param file The path of the file.
+     * @param splitBy The separator used to separate columns.
+     * @param chunkRows The maximum number of rows per chunk.
+     * @return The chunks, which should be closed if not iterated to the end.
+     * @throws IOException if the file cannot be opened.
+     */
+    public static TableChunks readTableChunks(String file, String splitBy, int chunkRows) throws IOException {
+        return new TableChunks(new TableReader.ChunkReader(file, splitBy, true, chunkRows));
+    }
+
+    /**
+     * Read data from a file as a DataFrame. The columns data type should be specified in the parameters, and columns not listed are not read.
      *
      * @param file The path of the file.
      * @param nrow The number of rows to read.
@@ -3341,79 +3237,13 @@ public class DataFrame {
      * @throws Exception if any error occurs.
      */
     public void readTable(String file, int nrow, String splitBy, int[] dblCols, int[] strCols, int[] intCols) throws Exception {
-        FileReader fr = new FileReader(file);
-        BufferedReader bf = new BufferedReader(fr);
-        String s = bf.readLine();
-        String[] ss = s.split(splitBy);
-        int[][] ints = new int[intCols.length][nrow];
-        String[][] strs = new String[strCols.length][nrow];
-        double[][] dbls = new double[dblCols.length][nrow];
-        String[] colnames = new String[ss.length];
-        Column[] cols = new Column[ss.length];
-        for (int i = 0; i < ss.length; i++) {
-            colnames[i] = ss[i];
-        }
-        for (int k = 0; k < nrow; k++) {
-            s = bf.readLine();
-            ss = s.split(splitBy);
-            for (int i = 0; i < ss.length; i++) {
-                if (intCols.length != 0) {
-                    for (int j = 0; j < intCols.length; j++) {
-                        if (i == intCols[j]) {
-                            ints[j][k] = Integer.parseInt(ss[i]);
-                        }
-                    }
-                }
-                if (strCols.length != 0) {
-                    for (int j = 0; j < strCols.length; j++) {
-                        if (i == strCols[j]) {
-                            strs[j][k] = ss[i];
-                        }
-                    }
-                }
-                if (dblCols.length != 0) {
-                    for (int j = 0; j < dblCols.length; j++) {
-                        if (i == dblCols[j]) {
-                            try {
-                                dbls[j][k] = Double.parseDouble(ss[i]);
-                            } catch (Exception e) {
-                                dbls[j][k] = Double.NaN;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        for (int i = 0; i < ss.length; i++) {
-            if (strCols.length != 0) {
-                for (int j = 0; j < strCols.length; j++) {
-                    if (i == strCols[j]) {
-                        cols[i] = new Column(colnames[i], strs[j]);
-                    }
-                }
-            }
-            if (intCols.length != 0) {
-                for (int j = 0; j < intCols.length; j++) {
-                    if (i == intCols[j]) {
-                        cols[i] = new Column(colnames[i], ints[j]);
-                    }
-                }
-            }
-            if (dblCols.length != 0) {
-                for (int j = 0; j < dblCols.length; j++) {
-                    if (i == dblCols[j]) {
-                        cols[i] = new Column(colnames[i], dbls[j]);
-                    }
-                }
-            }
-        }
-        bf.close();
+        Column[] cols = TableReader.read(file, splitBy, true, new ReadOptions(), TableReader.byIndex(dblCols, strCols, intCols), nrow);
         this.columns = new ArrayList<>();
         this.columns.addAll(Arrays.asList(cols));
     }
 
     /**
-     * Read data from a file as a DataFrame. The columns data type should be specified in the parameters.
+     * Read data from a file as a DataFrame. The columns data type should be specified in the parameters, and columns not listed are not read.
      *
      * @param file The path of the file.
      * @param nrow The number of rows to read.
@@ -3424,73 +3254,7 @@ public class DataFrame {
      * @throws Exception if any error occurs.
      */
     public void readTable(String file, int nrow, String splitBy, String[] dblCols, String[] strCols, String[] intCols) throws Exception {
-        FileReader fr = new FileReader(file);
-        BufferedReader bf = new BufferedReader(fr);
-        String s = bf.readLine();
-        String[] ss = s.split(splitBy);
-        int[][] ints = new int[intCols.length][nrow];
-        String[][] strs = new String[strCols.length][nrow];
-        double[][] dbls = new double[dblCols.length][nrow];
-        String[] colnames = new String[ss.length];
-        Column[] cols = new Column[ss.length];
-        for (int i = 0; i < ss.length; i++) {
-            colnames[i] = ss[i];
-        }
-        for (int k = 0; k < nrow; k++) {
-            s = bf.readLine();
-            ss = s.split(splitBy);
-            for (int i = 0; i < ss.length; i++) {
-                if (intCols.length != 0) {
-                    for (int j = 0; j < intCols.length; j++) {
-                        if (ss[i].equals(intCols[j])) {
-                            ints[j][k] = Integer.parseInt(ss[i]);
-                        }
-                    }
-                }
-                if (strCols.length != 0) {
-                    for (int j = 0; j < strCols.length; j++) {
-                        if (ss[i].equals(strCols[j])) {
-                            strs[j][k] = ss[i];
-                        }
-                    }
-                }
-                if (dblCols.length != 0) {
-                    for (int j = 0; j < dblCols.length; j++) {
-                        if (ss[i].equals(dblCols[j])) {
-                            try {
-                                dbls[j][k] = Double.parseDouble(ss[i]);
-                            } catch (Exception e) {
-                                dbls[j][k] = Double.NaN;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        for (int i = 0; i < ss.length; i++) {
-            if (strCols.length != 0) {
-                for (int j = 0; j < strCols.length; j++) {
-                    if (ss[i].equals(strCols[j])) {
-                        cols[i] = new Column(colnames[i], strs[j]);
-                    }
-                }
-            }
-            if (intCols.length != 0) {
-                for (int j = 0; j < intCols.length; j++) {
-                    if (ss[i].equals(intCols[j])) {
-                        cols[i] = new Column(colnames[i], ints[j]);
-                    }
-                }
-            }
-            if (dblCols.length != 0) {
-                for (int j = 0; j < dblCols.length; j++) {
-                    if (ss[i].equals(dblCols[j])) {
-                        cols[i] = new Column(colnames[i], dbls[j]);
-                    }
-                }
-            }
-        }
-        bf.close();
+        Column[] cols = TableReader.read(file, splitBy, true, new ReadOptions(), TableReader.byName(dblCols, strCols, intCols), nrow);
         this.columns = new ArrayList<>();
         this.columns.addAll(Arrays.asList(cols));
     }
@@ -3502,31 +3266,8 @@ public class DataFrame {
      * @param splitBy  The separator used to separate columns.
      */
     public void writeTable(String filename, String splitBy) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            for (int j = 0; j < this.ncol() - 1; j++) {
-                writer.write(String.valueOf(this.getColname(j)) + splitBy);
-            }
-            writer.write(String.valueOf(this.getColname(-1)));
-            writer.newLine();
-            for (int i = 0; i < this.nrow(); i++) {
-                for (int j = 0; j < this.ncol() - 1; j++) {
-                    if (this.colType(j).equals("dbl")) {
-                        writer.write(String.valueOf(this.locDbl(i, j)) + splitBy);
-                    } else if (this.colType(j).equals("str")) {
-                        writer.write(this.locStr(i, j) + splitBy);
-                    } else if (this.colType(j).equals("int")) {
-                        writer.write(String.valueOf(this.locInt(i, j)) + splitBy);
-                    }
-                }
-                if (this.colType(-1).equals("dbl")) {
-                    writer.write(String.valueOf(this.locDbl(i, -1)));
-                } else if (this.colType(-1).equals("str")) {
-                    writer.write(this.locStr(i, -1));
-                } else if (this.colType(-1).equals("int")) {
-                    writer.write(String.valueOf(this.locInt(i, -1)));
-                }
-                writer.newLine();
-            }
+        try {
+            this.writeTable(filename, splitBy, new WriteOptions());
             System.out.println("Data has been written to " + filename);
         } catch (IOException e) {
             System.err.println("Error writing to file: " + e.getMessage());
@@ -3534,7 +3275,155 @@ public class DataFrame {
     }
 
     /**
-     * Deep copy a DataFrame.
+     * Write a DataFrame to a file with the given options.
+     *
+     * @param filename The path of the file.
+     * @param splitBy  The separator used to separate columns.
+     * @param options  The options for writing, e.g. formatting in parallel blocks.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeTable(String filename, String splitBy, WriteOptions options) throws IOException {
+        try (OutputStream out = new FileOutputStream(filename)) {
+            TableWriter.write(this, out, splitBy, options);
+        }
+    }
+
+    /**
+     * Write a DataFrame to an output stream in UTF-8. The stream is flushed but not closed.
+     *
+     * @param out      The output stream.
+     * @param splitBy  The separator used to separate columns.
+     * @param options  The options for writing, e.g. formatting in parallel blocks.
+     * @throws IOException if the stream cannot be written.
+     */
+    public void writeTable(OutputStream out, String splitBy, WriteOptions options) throws IOException {
+        TableWriter.write(this, out, splitBy, options);
+    }
+
+    /**
+     * Write a DataFrame to a writer. The writer is flushed but not closed.
+     *
+     * @param out      The writer.
+     * @param splitBy  The separator used to separate columns.
+     * @param options  The options for writing, e.g. formatting in parallel blocks.
+     * @throws IOException if the writer cannot be written.
+     */
+    public void writeTable(Writer out, String splitBy, WriteOptions options) throws IOException {
+        TableWriter.write(this, out, splitBy, options);
+    }
+
+    /**
+     * Write a DataFrame to a channel in UTF-8. The channel is not closed.
+     *
+     * @param out      The channel.
+     * @param splitBy  The separator used to separate columns.
+     * @param options  The options for writing, e.g. formatting in parallel blocks.
+     * @throws IOException if the channel cannot be written.
+     */
+    public void writeTable(WritableByteChannel out, String splitBy, WriteOptions options) throws IOException {
+        TableWriter.write(this, out, splitBy, options);
+    }
+
+    /**
+     * Write a DataFrame to a file in the native binary columnar format, which can be read back by readBinary without any parsing.
+     * Missing values are kept in the validity bitmap of each column, so an integer column with missing values is read back as integers.
+     *
+     * @param file The path of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeBinary(Path file) throws IOException {
+        BinaryTable.write(this, file);
+    }
+
+    /**
+     * Read a DataFrame from a file written by writeBinary.
+     *
+     * @param file The path of the file.
+     * @throws IOException if the file cannot be read or is not in the binary format.
+     */
+    public void readBinary(Path file) throws IOException {
+        Column[] cols = BinaryTable.read(file);
+        this.columns = new ArrayList<>();
+        this.columns.addAll(Arrays.asList(cols));
+    }
+
+    /**
+     * Write a DataFrame to a file in the row group columnar format. The rows are split into groups of given size,
+     * and the min, max and null count of every column in every group are kept in the footer of the file,
+     * so that readRowGroups can skip the groups that cannot meet its filters.
+     *
+     * @param file The path of the file.
+     * @param groupRows The number of rows per group.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeRowGroups(Path file, int groupRows) throws IOException {
+        RowGroupTable.write(this, file, groupRows);
+    }
+
+    /**
+     * Read a DataFrame from a file written by writeRowGroups, keeping only the rows which meet all given filters.
+     * Row groups whose statistics show that no row can meet the filters are skipped without being read.
+     *
+     * @param file The path of the file.
+     * @param filters The filters, such as ReadFilter.range("Date", 20240101, 20240108).
+     * @throws IOException if the file cannot be read, is not in the row group format, or a filter does not fit its column.
+     */
+    public void readRowGroups(Path file, ReadFilter... filters) throws IOException {
+        Column[] cols = RowGroupTable.read(file, filters);
+        this.columns = new ArrayList<>();
+        this.columns.addAll(Arrays.asList(cols));
+    }
+
+    /**
+     * Write a DataFrame to a file in the Apache Arrow IPC file format, which other Arrow libraries can memory-map.
+     * A double column is written as Float64, an integer column as Int32 and a string column as Utf8,
+     * with NaN, null and the missing values of a validity bitmap as nulls.
+     *
+     * @param file The path of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeArrow(Path file) throws IOException {
+        ArrowTable.writeFile(this, file);
+    }
+
+    /**
+     * Write a DataFrame to an output stream in the Apache Arrow IPC stream format. The stream is flushed but not closed.
+     *
+     * @param out The output stream.
+     * @throws IOException if the stream cannot be written.
+     */
+    public void writeArrowStream(OutputStream out) throws IOException {
+        ArrowTable.writeStream(this, out);
+    }
+
+    /**
+     * Read a DataFrame from a file in the Apache Arrow IPC file or stream format.
+     * Float64, Int32 and Utf8 columns are supported, and the nulls of a column are kept in its validity bitmap.
+     *
+     * @param file The path of the file.
+     * @throws IOException if the file cannot be read or holds unsupported Arrow data.
+     */
+    public void readArrow(Path file) throws IOException {
+        Column[] cols = ArrowTable.readFile(file);
+        this.columns = new ArrayList<>();
+        this.columns.addAll(Arrays.asList(cols));
+    }
+
+    /**
+     * Read a DataFrame from an input stream in the Apache Arrow IPC stream format. The stream is not closed.
+     *
+     * @param in The input stream.
+     * @throws IOException if the stream cannot be read or holds unsupported Arrow data.
+     */
+    public void readArrowStream(InputStream in) throws IOException {
+        Column[] cols = ArrowTable.readStream(in);
+        this.columns = new ArrayList<>();
+        this.columns.addAll(Arrays.asList(cols));
+    }
+
+    /**
+     * Copy a DataFrame. The columns share their values with the old DataFrame until either changes them,
+     * so that cloning does not copy any values.
      *
      * @param old The DataFrame to be cloned.
      * @return A new DataFrame with the same data as the old one.
@@ -0,0 +1,117 @@
+package com.jvcats.dataframe.base;
+
+/**
+ * This class is used to build a DataFrame by appending rows one at a time, e.g. from the handlers of incoming events.
+ * Every column is built by a ColumnBuilder, so that appending n rows copies O(n) values in total,
+ * and build hands the arrays over to the DataFrame.
+ * Values may also be appended column by column through getColumn, as long as every column has the same number of rows when built.
+ *
+ * @author henry
+ */
+public final class DataFrameBuilder {
+    private final ColumnBuilder[] columns;
+
+    /**
+     * Create a builder for a DataFrame with the given columns.
+     *
+     * @param colnames The column names.
+     * @param types The types of the columns.
+     */
+    public DataFrameBuilder(String[] colnames, ColumnType[] types) {
+        this(colnames, types, 16);
+    }
+
+    /**
+     * Create a builder for a DataFrame with the given columns, with room for the given number of rows before it grows.
+     *
+     * @param colnames The column names.
+     * @param types The types of the columns.
+     * @param capacity The initial capacity.
+     */
+    public DataFrameBuilder(String[] colnames, ColumnType[] types, int capacity) {
+        if (colnames.length != types.length) {
+            throw new IllegalArgumentException("There are " + colnames.length + " column names but " + types.length + " types");
+        }
+        this.columns = new ColumnBuilder[colnames.length];
+        for (int j = 0; j < colnames.length; j++) {
+            this.columns[j] = new ColumnBuilder(colnames[j], types[j], capacity);
+        }
+    }
+
+    /**
+     * Get the builder of a column.
+     *
+     * @param col The column index.
+     * @return The builder of the column.
+     */
+    public ColumnBuilder getColumn(int col) {
+        return columns[col];
+    }
+
+    /**
+     * Get the builder of a column.
+     *
+     * @param colname The column name.
+     * @return The builder of the column.
+     */
+    public ColumnBuilder getColumn(String colname) {
+        for (ColumnBuilder column : columns) {
+            if (column.getName().equals(colname)) return column;
+        }
+        throw new IllegalArgumentException("There is no column named " + colname);
+    }
+
+    /**
+     * Get the number of rows appended since the builder was created or last built.
+     *
+     * @return The number of rows.
+     */
+    public int nrow() {
+        return columns.length == 0 ? 0 : columns[0].size();
+    }
+
+    /**
+     * Append a row, with one value per column as accepted by ColumnBuilder.append. Null is a missing value.
+     * If a value cannot be appended to its column, none of the row is appended.
+     *
+     * @param values The values of the row.
+     * @return The builder itself.
+     */
+    public DataFrameBuilder appendRow(Object... values) {
+        if (values.length != columns.length) {
+            throw new IllegalArgumentException("A row needs " + columns.length + " values but " + values.length + " were given");
+        }
+        int j = 0;
+        try {
+            for (; j < columns.length; j++) {
+                columns[j].append(values[j]);
+            }
+        } catch (RuntimeException e) {
+            for (int k = 0; k < j; k++) {
+                columns[k].truncate(columns[k].size() - 1);
+            }
+            throw e;
+        }
+        return this;
+    }
+
+    /**
+     * Build the DataFrame from the appended rows, handing the arrays of the columns over to it.
+     * The builder then starts again with no rows.
+     *
+     * @return The DataFrame.
+     */
+    public DataFrame build() {
+        for (ColumnBuilder column : columns) {
+            if (column.size() != nrow()) {
+                throw new IllegalArgumentException("The column " + column.getName() + " has " + column.size()
+                        + " rows but the first column has " + nrow());
+            }
+        }
+        Column[] cols = new Column[columns.length];
+        for (int j = 0; j < columns.length; j++) {
+            cols[j] = columns[j].build();
+        }
+        return (new DataFrame(cols));
+    }
+}
@@ -0,0 +1,36 @@
+package com.jvcats.dataframe.base;
+
+/**
+ * An encoding which keeps the values of a Column in less memory, as chosen by Column.compress.
+ * Integer columns may be run-length, delta, frame-of-reference or narrow encoded, double columns dictionary encoded,
+ * and string columns stored as UTF-8 bytes.
+ * Every encoding is lossless and reads a value by its row without decoding the others.
+ *
+ * @author henry
+ */
+public enum Encoding {
+    /**
+     * Integers as runs of equal values, each stored once with the row it starts at.
+     */
+    RUN_LENGTH,
+    /**
+     * Integers as the differences between neighbouring values, bit-packed, with the value of every 64th row kept whole.
+     */
+    DELTA,
+    /**
+     * Integers as their offsets from the smallest value, bit-packed with as many bits as the largest offset needs.
+     */
+    FRAME_OF_REFERENCE,
+    /**
+     * Integers which all fit a byte or a short, stored as bytes or shorts.
+     */
+    NARROW,
+    /**
+     * Doubles as codes into a sorted dictionary of their distinct values, for columns with at most 32768 distinct values.
+     */
+    DICTIONARY,
+    /**
+     * Strings as their UTF-8 bytes in one array, with the offset at which every string starts.
+     */
+    UTF8
+}
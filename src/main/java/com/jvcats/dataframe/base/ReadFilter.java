@@ -0,0 +1,234 @@
+package com.jvcats.dataframe.base;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * This class is used to store a filter that is applied while reading a DataFrame, so that rows which fail it are never loaded.
+ * It supports the same comparisons as addFilterGt, addFilterNlt, addFilterLt, addFilterNgt, addFilterRange and addFilterEq.
+ * When several filters are given to a reader, a row is kept only if it meets all of them.
+ * Missing values (NaN or null) never meet a filter.
+ *
+ * @author henry
+ */
+public class ReadFilter {
+    private static final int GT = 0;
+    private static final int NLT = 1;
+    private static final int LT = 2;
+    private static final int NGT = 3;
+    private static final int RANGE = 4;
+    private static final int EQ = 5;
+
+    private final String colname;
+    private final int op;
+    private final double base1;
+    private final double base2;
+    private final double[] nums;
+    private final String[] strs;
+    private final byte[][] utf8;
+
+    private ReadFilter(String colname, int op, double base1, double base2, double[] nums, String[] strs) {
+        this.colname = colname;
+        this.op = op;
+        this.base1 = base1;
+        this.base2 = base2;
+        this.nums = nums;
+        this.strs = strs;
+        if (strs != null) {
+            this.utf8 = new byte[strs.length][];
+            for (int i = 0; i < strs.length; i++) {
+                this.utf8[i] = strs[i] == null ? null : strs[i].getBytes(StandardCharsets.UTF_8);
+            }
+        } else {
+            this.utf8 = null;
+        }
+    }
+
+    /**
+     * Keep the rows if the value in a column is greater than given value.
+     *
+     * @param colname The column name.
+     * @param base The value.
+     * @return The ReadFilter.
+     */
+    public static ReadFilter gt(String colname, double base) {
+        return new ReadFilter(colname, GT, base, 0, null, null);
+    }
+
+    /**
+     * Keep the rows if the value in a column is not less than given value.
+     *
+     * @param colname The column name.
+     * @param base The value.
+     * @return The ReadFilter.
+     */
+    public static ReadFilter nlt(String colname, double base) {
+        return new ReadFilter(colname, NLT, base, 0, null, null);
+    }
+
+    /**
+     * Keep the rows if the value in a column is less than given value.
+     *
+     * @param colname The column name.
+     * @param base The value.
+     * @return The ReadFilter.
+     */
+    public static ReadFilter lt(String colname, double base) {
+        return new ReadFilter(colname, LT, base, 0, null, null);
+    }
+
+    /**
+     * Keep the rows if the value in a column is not greater than given value.
+     *
+     * @param colname The column name.
+     * @param base The value.
+     * @return The ReadFilter.
+     */
+    public static ReadFilter ngt(String colname, double base) {
+        return new ReadFilter(colname, NGT, base, 0, null, null);
+    }
+
+    /**
+     * Keep the rows if the value in a column is in the range of given values.
+     *
+     * @param colname The column name.
+     * @param base1 The lower bound.
+     * @param base2 The upper bound, not inclusive.
+     * @return The ReadFilter.
+     */
+    public static ReadFilter range(String colname, double base1, double base2) {
+        return new ReadFilter(colname, RANGE, base1, base2, null, null);
+    }
+
+    /**
+     * Keep the rows if the value in a column is equal to given integer value.
+     *
+     * @param colname The column name.
+     * @param base The integer value.
+     * @return The ReadFilter.
+     */
+    public static ReadFilter eq(String colname, int base) {
+        return new ReadFilter(colname, EQ, 0, 0, new double[]{base}, null);
+    }
+
+    /**
+     * Keep the rows if the value in a column is contained in given integer values.
+     *
+     * @param colname The column name.
+     * @param base The integer values.
+     * @return The ReadFilter.
+     */
+    public static ReadFilter eq(String colname, int[] base) {
+        return new ReadFilter(colname, EQ, 0, 0, Arrays.stream(base).asDoubleStream().toArray(), null);
+    }
+
+    /**
+     * Keep the rows if the value in a column is the same as given string value.
+     *
+     * @param colname The column name.
+     * @param base The string value.
+     * @return The ReadFilter.
+     */
+    public static ReadFilter eq(String colname, String base) {
+        return new ReadFilter(colname, EQ, 0, 0, null, new String[]{base});
+    }
+
+    /**
+     * Keep the rows if the value in a column is contained in given string values.
+     *
+     * @param colname The column name.
+     * @param base The string values.
+     * @return The ReadFilter.
+     */
+    public static ReadFilter eq(String colname, String[] base) {
+        return new ReadFilter(colname, EQ, 0, 0, null, base.clone());
+    }
+
+    String getColname() {
+        return colname;
+    }
+
+    boolean isString() {
+        return strs != null;
+    }
+
+    boolean test(double v) {
+        switch (op) {
+            case GT: return v > base1;
+            case NLT: return v >= base1;
+            case LT: return v < base1;
+            case NGT: return v <= base1;
+            case RANGE: return v >= base1 && v < base2;
+            default:
+                for (double n : nums) {
+                    if (v == n) return true;
+                }
+                return false;
+        }
+    }
+
+    boolean test(String s) {
+        if (s == null) return false;
+        for (String str : strs) {
+            if (s.equals(str)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Test a value given as UTF-8 text, without creating a String. An empty text is a missing value for a numeric filter.
+     */
+    boolean test(byte[] b, int from, int to) {
+        if (utf8 == null) {
+            return from != to && test(ColumnBuffer.parseDouble(b, from, to));
+        }
+        for (byte[] str : utf8) {
+            if (str != null && Arrays.equals(b, from, to, str, 0, str.length)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether any value between min and max, both inclusive, could meet the filter.
+     * When min is greater than max there are no values to check.
+     */
+    boolean mightMatch(double min, double max) {
+        if (min > max) return false;
+        switch (op) {
+            case GT: return max > base1;
+            case NLT: return max >= base1;
+            case LT: return min < base1;
+            case NGT: return min <= base1;
+            case RANGE: return max >= base1 && min < base2;
+            default:
+                for (double n : nums) {
+                    if (n >= min && n <= max) return true;
+                }
+                return false;
+        }
+    }
+
+    /**
+     * Check whether any string between min and max, both inclusive, could meet the filter.
+     * A null min means there are no values to check.
+     */
+    boolean mightMatch(String min, String max) {
+        if (min == null) return false;
+        for (String str : strs) {
+            if (str != null && str.compareTo(min) >= 0 && str.compareTo(max) <= 0) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        switch (op) {
+            case GT: return colname + " > " + base1;
+            case NLT: return colname + " >= " + base1;
+            case LT: return colname + " < " + base1;
+            case NGT: return colname + " <= " + base1;
+            case RANGE: return colname + " >= " + base1 + " and " + colname + " < " + base2;
+            default: return colname + " in " + (strs != null ? Arrays.toString(strs) : Arrays.toString(nums));
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.jvcats.dataframe.base;
+
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * This class is used to store the options for reading a table from a file into a DataFrame.
+ * The setters return the object itself, so that options can be chained.
+ *
+ * @author henry
+ */
+public class ReadOptions {
+    /**
+     * What to do with a value which does not fit the type inferred for its column from the sampled rows.
+     */
+    public enum Escalation {
+        /**
+         * Change the column to a type the value fits, from integers to doubles to strings, keeping the values read so far.
+         */
+        WIDEN,
+        /**
+         * Read the value as a missing value.
+         */
+        MISSING,
+        /**
+         * Stop reading with an error naming the value and its column.
+         */
+        FAIL
+    }
+
+    private boolean parallel = false;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int inferRows = -1;
+    private Escalation escalation = Escalation.WIDEN;
+    private String[] columns = null;
+    private ReadFilter[] filters = null;
+    private int maxLevels = 1 << 16;
+    private boolean offHeap = false;
+    private boolean boolsAndDates = false;
+    private HashMap<String, ColumnType> types = null;
+
+    public ReadOptions() {}
+
+    /**
+     * Read the file in parallel chunks, using one worker per available processor.
+     *
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions parallel() {
+        return this.parallel(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Read the file in parallel chunks. The file is memory-mapped and split into newline-aligned chunks,
+     * each chunk is parsed by its own worker and the results are stitched together in order.
+     *
+     * @param threads The number of workers.
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions parallel(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads should be at least 1, got " + threads);
+        }
+        this.parallel = true;
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Read the file sequentially with one thread, which is the default.
+     *
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions sequential() {
+        this.parallel = false;
+        return this;
+    }
+
+    /**
+     * Determine the column types from the first rows only, instead of from all rows while reading.
+     * The sampled rows are classified column by column, in parallel when reading in parallel,
+     * and the rest of the file is parsed straight into the inferred types.
+     * Integers beyond the integer range are read as longs when they have at most 18 digits and as doubles otherwise,
+     * and booleans and ISO dates (yyyy-MM-dd) as strings, or as bool and date columns with inferBoolsAndDates.
+     * A later value which does not fit its column is handled by the escalation policy.
+     *
+     * @param rows The number of rows to sample.
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions inferRows(int rows) {
+        if (rows < 1) {
+            throw new IllegalArgumentException("The number of rows to sample should be at least 1, got " + rows);
+        }
+        this.inferRows = rows;
+        return this;
+    }
+
+    /**
+     * Determine the column types from all rows while reading, which is the default.
+     *
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions inferAll() {
+        this.inferRows = -1;
+        return this;
+    }
+
+    /**
+     * Set what to do with a value which does not fit the type inferred from the sampled rows. The default is WIDEN.
+     *
+     * @param escalation The escalation policy.
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions escalation(Escalation escalation) {
+        this.escalation = Objects.requireNonNull(escalation);
+        return this;
+    }
+
+    /**
+     * Read only the given columns, in the order of the file. The values of other columns are skipped over
+     * without being stored or converted, and the rest of a line after the last wanted column is not scanned at all.
+     * For tables without a header, the columns are named Col1, Col2, ...
+     *
+     * @param colnames The names of the wanted columns.
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions columns(String... colnames) {
+        this.columns = colnames.clone();
+        return this;
+    }
+
+    /**
+     * Read all columns, which is the default.
+     *
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions allColumns() {
+        this.columns = null;
+        return this;
+    }
+
+    /**
+     * Keep only the rows which meet all given filters. The filters are tested on the text of the values of their columns,
+     * before any value of the row is stored or converted: a numeric filter compares the number in the text
+     * and fails for values which are not numbers, and a string filter compares the text itself.
+     * A filter may be on a column which is not read.
+     *
+     * @param filters The filters, such as ReadFilter.gt("Score", 90.) or ReadFilter.eq("City", new String[]{"Oslo", "Rome"}).
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions filters(ReadFilter... filters) {
+        this.filters = filters.length == 0 ? null : filters.clone();
+        return this;
+    }
+
+    /**
+     * Read a string column as a categorical column when it has few distinct values: at most maxLevels,
+     * and at most one for every two rows. The default is 65536 levels.
+     *
+     * @param maxLevels The largest number of distinct values of a categorical column, or 0 to read all string columns as plain strings.
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions categorical(int maxLevels) {
+        if (maxLevels < 0) {
+            throw new IllegalArgumentException("The number of levels should not be negative, got " + maxLevels);
+        }
+        this.maxLevels = maxLevels;
+        return this;
+    }
+
+    /**
+     * Store double, integer and long columns off the heap, as DataFrame.offHeap does. Each column is moved as soon as it has been
+     * parsed, so that its array on the heap can be collected while the other columns are still being built.
+     *
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions offHeap() {
+        this.offHeap = true;
+        return this;
+    }
+
+    /**
+     * Store all columns on the heap, which is the default.
+     *
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions onHeap() {
+        this.offHeap = false;
+        return this;
+    }
+
+    /**
+     * Read a column whose values are all booleans (true or false in any case) as a bool column, and a column whose values
+     * are all ISO dates (yyyy-MM-dd) as a date column. Empty values of such columns are missing values.
+     *
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions inferBoolsAndDates() {
+        this.boolsAndDates = true;
+        return this;
+    }
+
+    /**
+     * Read booleans and ISO dates as strings, which is the default.
+     *
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions boolsAndDatesAsStrings() {
+        this.boolsAndDates = false;
+        return this;
+    }
+
+    /**
+     * Read a column as the given type, converted from the type it is read as: integers and longs as int, short, byte
+     * or long when they fit, numbers as dbl or float, longs as timestamps in milliseconds since 1970-01-01T00:00:00Z,
+     * and strings as bool, date (yyyy-MM-dd) or timestamp (ISO-8601, e.g. 2024-01-01T12:00:00Z).
+     * Missing and empty values are missing values. A value which cannot be converted stops reading with an error.
+     *
+     * @param colname The column name.
+     * @param type The type.
+     * @return The ReadOptions after setting.
+     */
+    public ReadOptions type(String colname, ColumnType type) {
+        if (this.types == null) this.types = new HashMap<>();
+        this.types.put(colname, Objects.requireNonNull(type));
+        return this;
+    }
+
+    boolean isParallel() {
+        return parallel;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+
+    int getInferRows() {
+        return inferRows;
+    }
+
+    Escalation getEscalation() {
+        return escalation;
+    }
+
+    String[] getColumns() {
+        return columns;
+    }
+
+    ReadFilter[] getFilters() {
+        return filters;
+    }
+
+    int getMaxLevels() {
+        return maxLevels;
+    }
+
+    boolean isOffHeap() {
+        return offHeap;
+    }
+
+    boolean isBoolsAndDates() {
+        return boolsAndDates;
+    }
+
+    ColumnType getType(String colname) {
+        return types == null ? null : types.get(colname);
+    }
+}
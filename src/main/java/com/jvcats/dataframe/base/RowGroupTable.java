@@ -0,0 +1,259 @@
+package com.jvcats.dataframe.base;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class writes and reads DataFrames in a columnar format split into row groups, each with per-column statistics.
+ * All numbers are little-endian and the file is laid out as follows:
+ * <pre>
+ * "DFRG", version (int), number of columns (int), number of rows (int), number of row groups (int)
+ * for each column: name length (int), name (UTF-8), type ("dbl", "int" or "str")
+ * padding to a multiple of 8 bytes
+ * for each row group, for each column: a block as in the binary format of writeBinary
+ * footer, for each row group: number of rows (int), then for each column:
+ *     block position (long), null count (int), min and max (double for "dbl" and "int", length-prefixed UTF-8 for "str")
+ *     where the null count counts the rows marked missing in the validity bitmap, NaN doubles and null strings
+ * footer position (long), "DFRG"
+ * </pre>
+ * The min and max skip missing values; a row group whose column has no values has a min above its max (or null min for "str").
+ * A reader with filters looks at the footer first and never touches the blocks of row groups whose statistics cannot meet the filters.
+ *
+ * @author henry
+ */
+final class RowGroupTable {
+    private static final int MAGIC = 0x47524644;
+    private static final int VERSION = 2;
+
+    private RowGroupTable() {}
+
+    static void write(DataFrame df, Path file, int groupRows) throws IOException {
+        if (groupRows < 1) {
+            throw new IllegalArgumentException("The number of rows per group should be at least 1, got " + groupRows);
+        }
+        BinaryTable.checkTypes(df, "a row group DataFrame file");
+        Column[] cols = new Column[df.ncol()];
+        for (int j = 0; j < cols.length; j++) cols[j] = df.getCol(j);
+        int nrow = df.nrow();
+        int ncol = df.ncol();
+        int ngroup = (nrow + groupRows - 1) / groupRows;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            BinaryTable.Output out = new BinaryTable.Output(ch);
+            out.putInt(MAGIC).putInt(VERSION).putInt(ncol).putInt(nrow).putInt(ngroup);
+            for (int j = 0; j < ncol; j++) {
+                out.putString(df.getColname(j));
+                out.put(cols[j].getType().getName().getBytes(StandardCharsets.US_ASCII), 0, 3);
+            }
+            out.pad();
+            long[][] positions = new long[ngroup][ncol];
+            for (int g = 0; g < ngroup; g++) {
+                int from = g * groupRows;
+                int to = Math.min(nrow, from + groupRows);
+                for (int j = 0; j < ncol; j++) {
+                    positions[g][j] = out.position();
+                    BinaryTable.writeBlock(out, cols[j], from, to);
+                }
+            }
+            long footer = out.position();
+            for (int g = 0; g < ngroup; g++) {
+                int from = g * groupRows;
+                int to = Math.min(nrow, from + groupRows);
+                out.putInt(to - from);
+                for (int j = 0; j < ncol; j++) {
+                    out.putLong(positions[g][j]);
+                    writeStats(out, cols[j], from, to);
+                }
+            }
+            out.putLong(footer).putInt(MAGIC);
+            out.flush();
+        }
+    }
+
+    private static void writeStats(BinaryTable.Output out, Column col, int from, int to) throws IOException {
+        int nulls = 0;
+        if (col.hasStrs()) {
+            String min = null;
+            String max = null;
+            for (int i = from; i < to; i++) {
+                String s = col.getStr(i);
+                if (s == null || !col.isValid(i)) {
+                    nulls++;
+                } else if (min == null) {
+                    min = s;
+                    max = s;
+                } else if (s.compareTo(min) < 0) {
+                    min = s;
+                } else if (s.compareTo(max) > 0) {
+                    max = s;
+                }
+            }
+            out.putInt(nulls).putString(min).putString(max);
+            return;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        if (col.getType() == ColumnType.DBL) {
+            for (int i = from; i < to; i++) {
+                double v = col.getDbl(i);
+                if (Double.isNaN(v) || !col.isValid(i)) {
+                    nulls++;
+                    continue;
+                }
+                if (v < min) min = v;
+                if (v > max) max = v;
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                if (!col.isValid(i)) {
+                    nulls++;
+                    continue;
+                }
+                int v = col.getInt(i);
+                if (v < min) min = v;
+                if (v > max) max = v;
+            }
+        }
+        out.putInt(nulls).putDouble(min).putDouble(max);
+    }
+
+    static Column[] read(Path file, ReadFilter... filters) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < 36 || BinaryTable.map(ch, size - 4, 4).getInt() != MAGIC) {
+                throw new IOException(file + " is not a row group DataFrame file");
+            }
+            long footerPos = BinaryTable.map(ch, size - 12, 8).getLong();
+            ByteBuffer head = BinaryTable.map(ch, 0, Math.min(footerPos, BinaryTable.MAX_MAP));
+            if (head.getInt() != MAGIC) {
+                throw new IOException(file + " is not a row group DataFrame file");
+            }
+            int version = head.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported row group DataFrame version " + version);
+            }
+            int ncol = head.getInt();
+            head.getInt();
+            int ngroup = head.getInt();
+            String[] names = new String[ncol];
+            String[] types = new String[ncol];
+            for (int j = 0; j < ncol; j++) {
+                names[j] = getString(head);
+                byte[] type = new byte[3];
+                head.get(type);
+                types[j] = new String(type, StandardCharsets.US_ASCII);
+            }
+            int[] filterCols = new int[filters.length];
+            for (int k = 0; k < filters.length; k++) {
+                filterCols[k] = Arrays.asList(names).indexOf(filters[k].getColname());
+                if (filterCols[k] < 0) {
+                    throw new IOException("Column " + filters[k].getColname() + " not found");
+                }
+                if (filters[k].isString() != types[filterCols[k]].equals("str")) {
+                    throw new IOException("Filter " + filters[k] + " does not fit the " + types[filterCols[k]] + " column " + names[filterCols[k]]);
+                }
+            }
+
+            ByteBuffer footer = BinaryTable.map(ch, footerPos, size - 12 - footerPos);
+            ArrayList<Column[]> parts = new ArrayList<>();
+            for (int g = 0; g < ngroup; g++) {
+                int rows = footer.getInt();
+                long[] positions = new long[ncol];
+                boolean keep = true;
+                for (int j = 0; j < ncol; j++) {
+                    positions[j] = footer.getLong();
+                    int nulls = footer.getInt();
+                    if (types[j].equals("str")) {
+                        String min = getString(footer);
+                        String max = getString(footer);
+                        for (int k = 0; k < filters.length && keep; k++) {
+                            if (filterCols[k] == j) keep = nulls < rows && filters[k].mightMatch(min, max);
+                        }
+                    } else {
+                        double min = footer.getDouble();
+                        double max = footer.getDouble();
+                        for (int k = 0; k < filters.length && keep; k++) {
+                            if (filterCols[k] == j) keep = nulls < rows && filters[k].mightMatch(min, max);
+                        }
+                    }
+                }
+                if (keep) {
+                    Column[] part = readGroup(ch, positions, names, types, rows, filters, filterCols);
+                    if (part != null) parts.add(part);
+                }
+            }
+            return concat(parts, names, Arrays.stream(types).map(ColumnType::of).toArray(ColumnType[]::new));
+        }
+    }
+
+    /**
+     * Read the blocks of a row group and keep the rows meeting all filters.
+     * The filtered columns are read first, so that the other columns are not read if no rows are kept.
+     */
+    private static Column[] readGroup(FileChannel ch, long[] positions, String[] names, String[] types, int rows,
+                                      ReadFilter[] filters, int[] filterCols) throws IOException {
+        Column[] cols = new Column[names.length];
+        int[] kept = null;
+        if (filters.length > 0) {
+            boolean[] mask = new boolean[rows];
+            Arrays.fill(mask, true);
+            for (int k = 0; k < filters.length; k++) {
+                int j = filterCols[k];
+                if (cols[j] == null) cols[j] = BinaryTable.readBlock(ch, positions[j], names[j], types[j], rows);
+                Column col = cols[j];
+                for (int i = 0; i < rows; i++) {
+                    if (!mask[i]) continue;
+                    if (!col.isValid(i)) {
+                        mask[i] = false;
+                    } else if (col.strs() != null) {
+                        mask[i] = filters[k].test(col.strs()[i]);
+                    } else if (col.dbls() != null) {
+                        mask[i] = filters[k].test(col.dbls()[i]);
+                    } else {
+                        mask[i] = filters[k].test(col.ints()[i]);
+                    }
+                }
+            }
+            int n = 0;
+            kept = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                if (mask[i]) kept[n++] = i;
+            }
+            if (n == 0) return null;
+            kept = n == rows ? null : Arrays.copyOf(kept, n);
+        }
+        for (int j = 0; j < names.length; j++) {
+            if (cols[j] == null) cols[j] = BinaryTable.readBlock(ch, positions[j], names[j], types[j], rows);
+            if (kept != null) cols[j] = cols[j].gather(kept);
+        }
+        return cols;
+    }
+
+    /**
+     * Stack the parts of columns read in pieces, each part being one column array with the given names and types.
+     */
+    static Column[] concat(ArrayList<Column[]> parts, String[] names, ColumnType[] types) {
+        Column[] cols = new Column[names.length];
+        for (int j = 0; j < names.length; j++) {
+            Column[] col = new Column[parts.size()];
+            for (int k = 0; k < col.length; k++) {
+                col[k] = parts.get(k)[j];
+            }
+            cols[j] = Column.concat(names[j], types[j], col);
+        }
+        return cols;
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0) return null;
+        byte[] b = new byte[len];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,87 @@
+package com.jvcats.dataframe.base;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class is used to iterate over a table file in chunks of rows, each read into its own DataFrame,
+ * so that a file larger than the memory can be processed chunk by chunk.
+ * The column types are determined from the first chunk and kept for all later chunks.
+ * A later value which does not fit a column read as integers, longs, booleans or dates throws an UncheckedIOException,
+ * while a value which does not fit a column read as doubles becomes NaN.
+ * The file is closed when the last chunk has been read, or when close is called.
+ *
+ * @author henry
+ */
+public final class TableChunks implements Iterator<DataFrame>, Iterable<DataFrame>, Closeable {
+    private final TableReader.ChunkReader reader;
+    private Column[] next;
+
+    TableChunks(TableReader.ChunkReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Check if there is another chunk, reading it ahead if needed.
+     *
+     * @return True if there is another chunk.
+     * @throws UncheckedIOException if the file cannot be read.
+     */
+    @Override
+    public boolean hasNext() {
+        if (next != null) return true;
+        try {
+            next = reader.next();
+            if (next == null) reader.close();
+        } catch (IOException e) {
+            try {
+                reader.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new UncheckedIOException(e);
+        }
+        return next != null;
+    }
+
+    /**
+     * Get the next chunk.
+     *
+     * @return The DataFrame holding the rows of the chunk.
+     * @throws NoSuchElementException if there are no more chunks.
+     * @throws UncheckedIOException if the file cannot be read.
+     */
+    @Override
+    public DataFrame next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("There are no more chunks");
+        }
+        DataFrame df = new DataFrame(next);
+        next = null;
+        return df;
+    }
+
+    /**
+     * The chunks themselves, so that they can be used in a for-each loop. The chunks can only be iterated once.
+     *
+     * @return The TableChunks itself.
+     */
+    @Override
+    public Iterator<DataFrame> iterator() {
+        return this;
+    }
+
+    /**
+     * Close the file, after which there are no more chunks.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        next = null;
+        reader.close();
+    }
+}
@@ -0,0 +1,1069 @@
+package com.jvcats.dataframe.base;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * This class reads delimited text files into the columns of a DataFrame.
+ * Lines are split into values on the raw bytes, and each value is handed to the ColumnBuffer of its column,
+ * so no String is created for a line or for a numeric value.
+ *
+ * @author henry
+ */
+final class TableReader {
+    /**
+     * The column type is determined automatically.
+     */
+    static final int AUTO = -1;
+    /**
+     * The column is not read.
+     */
+    static final int SKIP = -2;
+
+    private static final long MIN_CHUNK = 1L << 20;
+    private static final long MAX_CHUNK = 1L << 30;
+    private static final int BLOCK = 1 << 16;
+    private static final String[] TYPE_NAMES = {"int", "dbl", "str", "long", "bool", "date"};
+
+    private TableReader() {}
+
+    /**
+     * Decide the type of every column once the column names are known.
+     */
+    interface ColumnTypes {
+        int[] of(String[] colnames) throws IOException;
+    }
+
+    private interface ByteSource {
+        int read(byte[] dst, int off, int len) throws IOException;
+    }
+
+    private interface LineHandler {
+        boolean line(byte[] b, int from, int to) throws IOException;
+    }
+
+    /**
+     * Read a file into columns, with the column types determined automatically.
+     *
+     * @param file The path of the file.
+     * @param splitBy The separator used to separate columns.
+     * @param hasHeader True if the first line holds the column names.
+     * @param options The options for reading.
+     * @return The columns read.
+     * @throws Exception if any error occurs.
+     */
+    static Column[] read(String file, String splitBy, boolean hasHeader, ReadOptions options) throws Exception {
+        return read(file, splitBy, hasHeader, options, null, -1);
+    }
+
+    /**
+     * Read a file into columns.
+     *
+     * @param file The path of the file.
+     * @param splitBy The separator used to separate columns.
+     * @param hasHeader True if the first line holds the column names.
+     * @param options The options for reading.
+     * @param types The types of the columns, or null to determine all of them automatically.
+     * @param maxRows The maximum number of rows to read, or -1 to read all of them.
+     * @return The columns read.
+     * @throws Exception if any error occurs.
+     */
+    static Column[] read(String file, String splitBy, boolean hasHeader, ReadOptions options, ColumnTypes types, int maxRows) throws Exception {
+        if (types == null && options.getColumns() != null) {
+            types = projection(options.getColumns());
+        }
+        if (options.isParallel() && maxRows < 0) {
+            return readParallel(file, splitBy, hasHeader, types, options);
+        }
+        return readSequential(file, splitBy, hasHeader, types, maxRows, options);
+    }
+
+    private static Column[] readSequential(String file, String splitBy, boolean hasHeader, ColumnTypes types, int maxRows, ReadOptions options) throws Exception {
+        TableParser parser = new TableParser(splitBy, hasHeader, types, maxRows, options);
+        try (InputStream in = new FileInputStream(file)) {
+            forEachLine(in::read, parser);
+        }
+        if (parser.buffers == null) {
+            throw new IOException("The file " + file + " is empty");
+        }
+        return parser.toColumns();
+    }
+
+    /**
+     * Read many files with the same columns into one set of columns. Every file is read sequentially on its own
+     * virtual thread, with at most as many files being parsed at a time as the threads of the options,
+     * and each column is joined from the parts of all files with one allocation.
+     * A column read as integers in some files and as doubles in others is read as doubles.
+     *
+     * @param files The paths of the files, in the order of their rows.
+     * @param splitBy The separator used to separate columns.
+     * @param options The options for reading every file.
+     * @return The columns read.
+     * @throws Exception if any error occurs, or if the files do not have the same columns.
+     */
+    static Column[] readAll(List<Path> files, String splitBy, ReadOptions options) throws Exception {
+        if (files.isEmpty()) {
+            throw new IOException("There are no files to read");
+        }
+        ColumnTypes types = options.getColumns() == null ? null : projection(options.getColumns());
+        Semaphore parsers = new Semaphore(options.getThreads());
+        Column[][] parts = new Column[files.size()][];
+        ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            ArrayList<Future<Column[]>> futures = new ArrayList<>();
+            for (Path file : files) {
+                futures.add(pool.submit(() -> {
+                    parsers.acquire();
+                    try {
+                        return readSequential(file.toString(), splitBy, true, types, -1, options);
+                    } finally {
+                        parsers.release();
+                    }
+                }));
+            }
+            for (int k = 0; k < parts.length; k++) {
+                parts[k] = getResult(futures.get(k));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int ncol = parts[0].length;
+        Column[] cols = new Column[ncol];
+        for (int j = 0; j < ncol; j++) {
+            String name = parts[0][j].getHeader();
+            ColumnType type = parts[0][j].getType();
+            Column[] col = new Column[parts.length];
+            for (int k = 0; k < parts.length; k++) {
+                if (parts[k].length != ncol || !parts[k][j].getHeader().equals(name)) {
+                    throw new IOException("The columns of " + files.get(k) + " do not match those of " + files.get(0));
+                }
+                ColumnType other = parts[k][j].getType();
+                ColumnType joined = ColumnType.join(type, other);
+                if (joined == null) {
+                    throw new IOException("Column " + name + " is " + other.getName() + " in " + files.get(k)
+                            + " but " + type.getName() + " in " + files.get(0));
+                }
+                type = joined;
+                col[k] = parts[k][j];
+            }
+            cols[j] = Column.concat(name, type, col);
+        }
+        return cols;
+    }
+
+    /**
+     * The regular files matching a glob pattern, such as data/part-*.csv, in the order of their paths.
+     * Directories are searched from the part of the pattern before its first wildcard.
+     *
+     * @param pattern The glob pattern, or the path of a single file.
+     * @return The matching files.
+     * @throws IOException if no file matches.
+     */
+    static List<Path> glob(String pattern) throws IOException {
+        int wildcard = 0;
+        while (wildcard < pattern.length() && "*?[{".indexOf(pattern.charAt(wildcard)) < 0) {
+            wildcard++;
+        }
+        if (wildcard == pattern.length()) {
+            return List.of(Path.of(pattern));
+        }
+        int slash = pattern.lastIndexOf('/', wildcard);
+        Path base = slash < 0 ? Path.of("") : Path.of(pattern.substring(0, slash + 1));
+        String rest = pattern.substring(slash + 1);
+        int depth = rest.contains("**") ? Integer.MAX_VALUE : (int) rest.chars().filter(c -> c == '/').count() + 1;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(base, depth)) {
+            files = paths.filter(path -> matcher.matches(path) && Files.isRegularFile(path)).sorted().toList();
+        }
+        if (files.isEmpty()) {
+            throw new IOException("No files match " + pattern);
+        }
+        return files;
+    }
+
+    /**
+     * Types for the readers where the column indices of each type are given. Other columns are not read.
+     */
+    static ColumnTypes byIndex(int[] dblCols, int[] strCols, int[] intCols) {
+        return colnames -> {
+            int[] types = new int[colnames.length];
+            Arrays.fill(types, SKIP);
+            for (int i : strCols) types[i] = ColumnBuffer.STR;
+            for (int i : intCols) types[i] = ColumnBuffer.INT;
+            for (int i : dblCols) types[i] = ColumnBuffer.DBL;
+            return types;
+        };
+    }
+
+    /**
+     * Types for the readers where the column names of each type are given. Other columns are not read.
+     */
+    static ColumnTypes byName(String[] dblCols, String[] strCols, String[] intCols) {
+        return colnames -> {
+            int[] types = new int[colnames.length];
+            Arrays.fill(types, SKIP);
+            setType(types, colnames, strCols, ColumnBuffer.STR);
+            setType(types, colnames, intCols, ColumnBuffer.INT);
+            setType(types, colnames, dblCols, ColumnBuffer.DBL);
+            return types;
+        };
+    }
+
+    /**
+     * Types for reading only the given columns, with their types determined automatically.
+     */
+    static ColumnTypes projection(String[] wanted) {
+        return colnames -> {
+            int[] types = new int[colnames.length];
+            Arrays.fill(types, SKIP);
+            setType(types, colnames, wanted, AUTO);
+            return types;
+        };
+    }
+
+    private static void setType(int[] types, String[] colnames, String[] chosen, int type) throws IOException {
+        for (String name : chosen) {
+            int which = Arrays.asList(colnames).indexOf(name);
+            if (which < 0) {
+                throw new IOException("Column " + name + " not found");
+            }
+            types[which] = type;
+        }
+    }
+
+    /**
+     * Memory-map the file, split it into newline-aligned chunks, parse every chunk on its own worker
+     * and join the per-chunk buffers in order.
+     */
+    private static Column[] readParallel(String file, String splitBy, boolean hasHeader, ColumnTypes spec, ReadOptions options) throws Exception {
+        int threads = options.getThreads();
+        try (FileChannel ch = FileChannel.open(Path.of(file), StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size == 0) {
+                throw new IOException("The file " + file + " is empty");
+            }
+            long dataStart = nextLineStart(ch, 0, size);
+            ByteBuffer first = ByteBuffer.allocate((int) dataStart);
+            ch.read(first, 0);
+            TableParser header = new TableParser(splitBy, hasHeader, spec, -1, options);
+            header.start(first.array(), 0, lineEnd(first.array(), (int) dataStart));
+            if (!hasHeader) {
+                dataStart = 0;
+            }
+            if (header.sample != null) {
+                ch.position(dataStart);
+                forEachLine(Channels.newInputStream(ch)::read, header::collect);
+                header.inferTypes();
+            }
+
+            long length = size - dataStart;
+            int nChunks = (int) Math.max(1, Math.min(threads, length / MIN_CHUNK));
+            nChunks = (int) Math.max(nChunks, (length + MAX_CHUNK - 1) / MAX_CHUNK);
+            long[] bounds = new long[nChunks + 1];
+            bounds[0] = dataStart;
+            bounds[nChunks] = size;
+            for (int k = 1; k < nChunks; k++) {
+                long target = dataStart + length / nChunks * k;
+                bounds[k] = Math.max(bounds[k - 1], nextLineStart(ch, Math.max(target - 1, dataStart), size));
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, nChunks));
+            try {
+                ArrayList<Future<ColumnBuffer[]>> futures = new ArrayList<>();
+                for (int k = 0; k < nChunks; k++) {
+                    long from = bounds[k];
+                    long to = bounds[k + 1];
+                    futures.add(pool.submit(() -> parseChunk(ch, from, to, header)));
+                }
+                int ncol = header.buffers.length;
+                ColumnBuffer[][] parts = new ColumnBuffer[ncol][nChunks];
+                for (int k = 0; k < nChunks; k++) {
+                    ColumnBuffer[] chunk = getResult(futures.get(k));
+                    for (int j = 0; j < ncol; j++) {
+                        parts[j][k] = chunk[j];
+                    }
+                }
+                for (int j = 0; j < ncol; j++) {
+                    header.buffers[j] = header.buffers[j] == null ? null : ColumnBuffer.concat(parts[j]);
+                }
+                return header.toColumns();
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Convert a column to the type asked for in the options, from the type it has been read as.
+     */
+    private static Column convert(Column col, ColumnType type) throws IOException {
+        ColumnType from = col.getType();
+        String name = col.getHeader();
+        int n = col.nrow();
+        if (from == null || from == type) return col;
+        boolean whole = from == ColumnType.INT || from == ColumnType.LONG;
+        if (type == ColumnType.DBL || type == ColumnType.FLOAT) {
+            if (!whole && from != ColumnType.DBL) throw notConvertible(name, from, type);
+            double[] dbls = new double[n];
+            for (int i = 0; i < n; i++) {
+                dbls[i] = col.isNull(i) ? Double.NaN : whole ? col.getIntegral(i) : col.getDbl(i);
+            }
+            if (type == ColumnType.DBL) return new Column(name, dbls);
+            float[] floats = new float[n];
+            for (int i = 0; i < n; i++) floats[i] = (float) dbls[i];
+            return new Column(name, new ColumnData.Floats(floats), null);
+        }
+        boolean fromText = from == ColumnType.STR
+                && (type == ColumnType.BOOL || type == ColumnType.DATE || type == ColumnType.TIMESTAMP);
+        if (!fromText && (!whole || type == ColumnType.STR || type == ColumnType.BOOL || type == ColumnType.DATE)) {
+            throw notConvertible(name, from, type);
+        }
+        long[] values = new long[n];
+        long[] validity = null;
+        for (int i = 0; i < n; i++) {
+            if (col.isNull(i) || fromText && col.getStr(i).isEmpty()) {
+                if (validity == null) validity = Bits.set(n);
+                Bits.clear(validity, i);
+            } else if (fromText) {
+                values[i] = parse(col.getStr(i), name, type);
+            } else {
+                values[i] = col.getIntegral(i);
+                long min = type == ColumnType.INT ? Integer.MIN_VALUE : type == ColumnType.SHORT ? Short.MIN_VALUE
+                        : type == ColumnType.BYTE ? Byte.MIN_VALUE : Long.MIN_VALUE;
+                long max = type == ColumnType.INT ? Integer.MAX_VALUE : type == ColumnType.SHORT ? Short.MAX_VALUE
+                        : type == ColumnType.BYTE ? Byte.MAX_VALUE : Long.MAX_VALUE;
+                if (values[i] < min || values[i] > max) {
+                    throw new IOException("Value \"" + values[i] + "\" of column " + name + " does not fit the " + type.getName() + " type");
+                }
+            }
+        }
+        ColumnData data = switch (type) {
+            case INT, DATE -> {
+                int[] out = new int[n];
+                for (int i = 0; i < n; i++) out[i] = (int) values[i];
+                yield type == ColumnType.INT ? new ColumnData.Ints(out) : new ColumnData.Dates(out);
+            }
+            case SHORT -> {
+                short[] out = new short[n];
+                for (int i = 0; i < n; i++) out[i] = (short) values[i];
+                yield new ColumnData.Shorts(out);
+            }
+            case BYTE -> {
+                byte[] out = new byte[n];
+                for (int i = 0; i < n; i++) out[i] = (byte) values[i];
+                yield new ColumnData.Bytes(out);
+            }
+            case BOOL -> {
+                boolean[] out = new boolean[n];
+                for (int i = 0; i < n; i++) out[i] = values[i] != 0;
+                yield ColumnData.Bools.of(out);
+            }
+            case TIMESTAMP -> new ColumnData.Timestamps(values);
+            default -> new ColumnData.Longs(values);
+        };
+        return new Column(name, data, validity);
+    }
+
+    /**
+     * Parse the text of a value as a boolean (1 or 0), a date (days since 1970-01-01) or a timestamp (milliseconds).
+     */
+    private static long parse(String text, String name, ColumnType type) throws IOException {
+        try {
+            if (type == ColumnType.DATE) return LocalDate.parse(text).toEpochDay();
+            if (type == ColumnType.TIMESTAMP) return Instant.parse(text).toEpochMilli();
+        } catch (DateTimeParseException | ArithmeticException e) {
+            throw new IOException("Value \"" + text + "\" of column " + name + " does not fit the " + type.getName() + " type", e);
+        }
+        if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) return text.length() == 4 ? 1 : 0;
+        throw new IOException("Value \"" + text + "\" of column " + name + " does not fit the bool type");
+    }
+
+    private static IOException notConvertible(String name, ColumnType from, ColumnType type) {
+        return new IOException("Column " + name + " has been read as " + from.getName() + " and cannot be read as " + type.getName());
+    }
+
+    private static ColumnBuffer[] parseChunk(FileChannel ch, long from, long to, TableParser header) throws IOException {
+        TableParser parser = header.forChunk(-1);
+        if (to - from > Integer.MAX_VALUE) {
+            throw new IOException("A chunk of " + (to - from) + " bytes is too large to be mapped");
+        }
+        if (to > from) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+            forEachLine((dst, off, len) -> {
+                int n = Math.min(len, buf.remaining());
+                if (n == 0) return -1;
+                buf.get(dst, off, n);
+                return n;
+            }, parser);
+        }
+        return parser.buffers;
+    }
+
+    /**
+     * Read the source in blocks and call the handler for every line, without the line terminator.
+     */
+    private static void forEachLine(ByteSource src, LineHandler handler) throws IOException {
+        new LineReader(src).feed(handler);
+    }
+
+    private static int lineEnd(byte[] b, int end) {
+        if (end > 0 && b[end - 1] == '\n') end--;
+        if (end > 0 && b[end - 1] == '\r') end--;
+        return end;
+    }
+
+    /**
+     * Find the position right after the first newline at or after the given position.
+     */
+    private static long nextLineStart(FileChannel ch, long pos, long size) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(BLOCK);
+        while (pos < size) {
+            block.clear();
+            int n = ch.read(block, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (block.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private static <T> T getResult(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * A separator without regular expression syntax, as bytes, or null if the separator needs String.split.
+     */
+    private static byte[] literalSeparator(String splitBy) {
+        if (splitBy.isEmpty()) return null;
+        if (splitBy.length() == 2 && splitBy.charAt(0) == '\\') {
+            char c = splitBy.charAt(1);
+            if (c == 't') return new byte[]{'\t'};
+            if (Character.isLetterOrDigit(c)) return null;
+            return String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+        }
+        for (int i = 0; i < splitBy.length(); i++) {
+            if (".$|()[]{}^?*+\\".indexOf(splitBy.charAt(i)) >= 0) return null;
+        }
+        return splitBy.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a source in blocks and hand out its lines, keeping its place between calls.
+     * A line longer than the block makes the block grow.
+     */
+    private static final class LineReader {
+        private final ByteSource src;
+        private byte[] block = new byte[BLOCK];
+        private int start;
+        private int scanned;
+        private int filled;
+        private boolean eof;
+
+        LineReader(ByteSource src) {
+            this.src = src;
+        }
+
+        /**
+         * Call the handler for every line until it returns false or the source ends.
+         *
+         * @return False if the source has ended.
+         */
+        boolean feed(LineHandler handler) throws IOException {
+            while (true) {
+                for (int i = scanned; i < filled; i++) {
+                    if (block[i] == '\n') {
+                        int from = start;
+                        start = i + 1;
+                        scanned = i + 1;
+                        if (!handler.line(block, from, i > from && block[i - 1] == '\r' ? i - 1 : i)) return true;
+                    }
+                }
+                scanned = filled;
+                if (eof) {
+                    if (start < filled) {
+                        int from = start;
+                        start = filled;
+                        handler.line(block, from, block[filled - 1] == '\r' ? filled - 1 : filled);
+                    }
+                    return false;
+                }
+                System.arraycopy(block, start, block, 0, filled - start);
+                filled -= start;
+                scanned = filled;
+                start = 0;
+                if (filled == block.length) {
+                    block = Arrays.copyOf(block, block.length * 2);
+                }
+                int n = src.read(block, filled, block.length - filled);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    filled += n;
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a file in chunks of rows. The column types are determined from the first chunk
+     * and every later chunk is read with the same types.
+     */
+    static final class ChunkReader implements Closeable {
+        private final InputStream in;
+        private final LineReader lines;
+        private final int chunkRows;
+        private TableParser parser;
+        private boolean more = true;
+
+        ChunkReader(String file, String splitBy, boolean hasHeader, int chunkRows) throws IOException {
+            if (chunkRows < 1) {
+                throw new IllegalArgumentException("The number of rows per chunk should be at least 1, got " + chunkRows);
+            }
+            this.in = new FileInputStream(file);
+            this.lines = new LineReader(in::read);
+            this.chunkRows = chunkRows;
+            this.parser = new TableParser(splitBy, hasHeader, null, chunkRows, new ReadOptions());
+        }
+
+        /**
+         * Read the next chunk.
+         *
+         * @return The columns of the chunk, or null if there are no more rows.
+         */
+        Column[] next() throws IOException {
+            if (!more) return null;
+            TableParser chunk = parser.buffers == null ? parser : parser.forChunk(chunkRows);
+            more = lines.feed(chunk);
+            if (chunk.buffers == null || chunk.rows == 0) {
+                more = false;
+                return null;
+            }
+            Column[] cols = chunk.toColumns();
+            if (chunk == parser) parser = chunk.withFinalTypes();
+            return cols;
+        }
+
+        @Override
+        public void close() throws IOException {
+            more = false;
+            in.close();
+        }
+    }
+
+    /**
+     * Read a file which keeps growing, such as a log, remembering the offset after the last complete line read.
+     * The column types are determined from the first rows and every later line is read with the same types.
+     * A line which has not been ended by a newline yet is left for the next refresh.
+     */
+    static final class TailReader {
+        private final Path file;
+        private final String splitBy;
+        private final ColumnTypes spec;
+        private final ReadOptions options;
+        private long offset;
+        private TableParser parser;
+        private String[] names;
+        private ColumnBuffer[] all;
+
+        TailReader(String file, String splitBy, ReadOptions options) {
+            this.file = Path.of(file);
+            this.splitBy = splitBy;
+            this.spec = options.getColumns() == null ? null : projection(options.getColumns());
+            this.options = options;
+        }
+
+        /**
+         * Read the complete lines appended since the last refresh and append their rows to the rows read so far.
+         * Nothing is kept from a refresh which fails, so that it can be tried again.
+         *
+         * @return The columns of the new rows, or no columns while the file has no complete data line yet.
+         */
+        Column[] refresh() throws IOException {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = ch.size();
+                if (size < offset) {
+                    throw new IOException("The file " + file + " has been truncated below the " + offset + " bytes already read");
+                }
+                long end = lastLineEnd(ch, offset, size);
+                TableParser delta = parser == null ? new TableParser(splitBy, true, spec, -1, options) : parser.forChunk(-1);
+                if (end > offset) {
+                    new LineReader(bounded(ch, offset, end)).feed(delta);
+                }
+                if (delta.buffers == null || parser == null && delta.rows == 0) {
+                    return parser == null ? new Column[0] : empty();
+                }
+                Column[] cols = delta.toColumns();
+                if (parser == null) {
+                    parser = delta.withFinalTypes();
+                    names = new String[cols.length];
+                    all = new ColumnBuffer[cols.length];
+                    for (int j = 0; j < cols.length; j++) {
+                        names[j] = cols[j].getHeader();
+                        all[j] = new ColumnBuffer(cols[j].nrow(), ColumnBuffer.typeOf(cols[j].getType()));
+                    }
+                }
+                for (int j = 0; j < cols.length; j++) {
+                    all[j].appendAll(cols[j]);
+                }
+                offset = end;
+                return cols;
+            }
+        }
+
+        /**
+         * Copy the rows read so far into columns.
+         *
+         * @param maxLevels The largest number of levels of a categorical column.
+         */
+        Column[] snapshot(int maxLevels) {
+            if (all == null) return new Column[0];
+            Column[] cols = new Column[all.length];
+            for (int j = 0; j < all.length; j++) {
+                cols[j] = all[j].snapshot(names[j], maxLevels);
+            }
+            return cols;
+        }
+
+        Column[] snapshot() {
+            return snapshot(options.getMaxLevels());
+        }
+
+        private Column[] empty() {
+            Column[] cols = new Column[all.length];
+            for (int j = 0; j < all.length; j++) {
+                cols[j] = new ColumnBuffer(0, all[j].type()).snapshot(names[j], 0);
+            }
+            return cols;
+        }
+
+        int nrow() {
+            return all == null || all.length == 0 ? 0 : all[0].size();
+        }
+
+        long offset() {
+            return offset;
+        }
+
+        /**
+         * The position after the last newline in [from, size), or from if there is none.
+         */
+        private static long lastLineEnd(FileChannel ch, long from, long size) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(BLOCK);
+            long to = size;
+            while (to > from) {
+                int n = (int) Math.min(BLOCK, to - from);
+                buf.clear().limit(n);
+                long at = to - n;
+                while (buf.hasRemaining()) {
+                    if (ch.read(buf, at + buf.position()) < 0) {
+                        throw new IOException("The file has been truncated while being read");
+                    }
+                }
+                for (int i = n - 1; i >= 0; i--) {
+                    if (buf.get(i) == '\n') return at + i + 1;
+                }
+                to = at;
+            }
+            return from;
+        }
+
+        private static ByteSource bounded(FileChannel ch, long from, long to) {
+            long[] pos = {from};
+            return (dst, off, len) -> {
+                if (pos[0] >= to) return -1;
+                int n = ch.read(ByteBuffer.wrap(dst, off, (int) Math.min(len, to - pos[0])), pos[0]);
+                if (n > 0) pos[0] += n;
+                return n;
+            };
+        }
+    }
+
+    /**
+     * Split lines into values and append them to the column buffers.
+     */
+    private static final class TableParser implements LineHandler {
+        private final String splitBy;
+        private final byte[] sep;
+        private final boolean hasHeader;
+        private final ColumnTypes spec;
+        private final int maxRows;
+        private final ReadOptions options;
+        private String[] colnames;
+        private int[] types;
+        private boolean[] inferred;
+        private int lastCol;
+        private ReadFilter[] filters;
+        private int[] filterCols;
+        private int[] bounds = new int[16];
+        private byte[] splitBytes;
+        private ColumnBuffer[] buffers;
+        private ArrayList<byte[]> sample;
+        private int rows;
+
+        TableParser(String splitBy, boolean hasHeader, ColumnTypes spec, int maxRows, ReadOptions options) {
+            this.splitBy = splitBy;
+            this.sep = literalSeparator(splitBy);
+            this.hasHeader = hasHeader;
+            this.spec = spec;
+            this.maxRows = maxRows;
+            this.options = options;
+        }
+
+        /**
+         * A parser for a chunk of data lines, with the columns already known from the first line.
+         */
+        TableParser forChunk(int maxRows) {
+            TableParser parser = new TableParser(splitBy, false, spec, maxRows, options);
+            parser.colnames = colnames;
+            parser.types = types;
+            parser.inferred = inferred;
+            parser.lastCol = lastCol;
+            parser.filters = filters;
+            parser.filterCols = filterCols;
+            parser.buffers = parser.newBuffers(types);
+            return parser;
+        }
+
+        /**
+         * A parser with the types of the columns fixed to the types this parser has ended with.
+         */
+        TableParser withFinalTypes() {
+            TableParser parser = new TableParser(splitBy, false, spec, maxRows, options);
+            parser.colnames = colnames;
+            parser.types = new int[types.length];
+            for (int i = 0; i < types.length; i++) {
+                parser.types[i] = buffers[i] == null ? SKIP : buffers[i].type();
+            }
+            parser.lastCol = lastCol;
+            parser.filters = filters;
+            parser.filterCols = filterCols;
+            parser.buffers = parser.newBuffers(parser.types);
+            return parser;
+        }
+
+        /**
+         * Set up the columns from the first line of the file.
+         */
+        void start(byte[] b, int from, int to) throws IOException {
+            String[] ss = new String(b, from, to - from, StandardCharsets.UTF_8).split(splitBy);
+            colnames = new String[ss.length];
+            for (int i = 0; i < ss.length; i++) {
+                colnames[i] = hasHeader ? ss[i] : "Col" + (i + 1);
+            }
+            if (spec == null) {
+                types = new int[ss.length];
+                Arrays.fill(types, AUTO);
+            } else {
+                types = spec.of(colnames);
+            }
+            buffers = newBuffers(types);
+            ReadFilter[] wanted = options.getFilters();
+            if (wanted != null) {
+                filters = wanted;
+                filterCols = new int[wanted.length];
+                for (int k = 0; k < wanted.length; k++) {
+                    filterCols[k] = Arrays.asList(colnames).indexOf(wanted[k].getColname());
+                    if (filterCols[k] < 0) {
+                        throw new IOException("Column " + wanted[k].getColname() + " not found");
+                    }
+                }
+            }
+            lastCol = lastCol(types, filterCols == null ? new int[0] : filterCols);
+            if (options.getInferRows() > 0 && Arrays.stream(types).anyMatch(t -> t == AUTO)) {
+                sample = new ArrayList<>();
+            }
+        }
+
+        @Override
+        public boolean line(byte[] b, int from, int to) throws IOException {
+            if (buffers == null) {
+                start(b, from, to);
+                if (hasHeader) return maxRows != 0;
+            }
+            if (rows == maxRows) return false;
+            if (sample != null) {
+                sample.add(Arrays.copyOfRange(b, from, to));
+                if (sample.size() == options.getInferRows()) {
+                    for (byte[] line : inferTypes()) parse(line, 0, line.length);
+                }
+                rows++;
+            } else if (parse(b, from, to)) {
+                rows++;
+            }
+            return maxRows < 0 || rows < maxRows;
+        }
+
+        /**
+         * Keep a line for type inference, until enough lines have been kept.
+         */
+        boolean collect(byte[] b, int from, int to) {
+            sample.add(Arrays.copyOfRange(b, from, to));
+            return sample.size() < options.getInferRows();
+        }
+
+        /**
+         * Infer the types of the automatic columns from the kept lines and set up their buffers.
+         *
+         * @return The kept lines, which have not been parsed into the buffers.
+         */
+        byte[][] inferTypes() throws IOException {
+            byte[][] lines = sample.toArray(new byte[0][]);
+            byte[][] values = lines.clone();
+            sample = null;
+            int[][] bounds = new int[lines.length][];
+            for (int r = 0; r < lines.length; r++) {
+                bounds[r] = Arrays.copyOf(this.bounds, 2 * split(lines[r], 0, lines[r].length));
+                values[r] = splitBytes;
+            }
+            boolean[] chosen = new boolean[types.length];
+            for (int i = 0; i < types.length; i++) {
+                chosen[i] = types[i] == AUTO;
+            }
+            int[] kinds = TypeInference.infer(values, bounds, chosen, options);
+            types = types.clone();
+            inferred = new boolean[types.length];
+            for (int i = 0; i < types.length; i++) {
+                if (chosen[i] && TypeInference.bufferType(kinds[i]) != AUTO) {
+                    types[i] = TypeInference.bufferType(kinds[i]);
+                    inferred[i] = true;
+                }
+            }
+            buffers = newBuffers(types);
+            return lines;
+        }
+
+        /**
+         * Split a line into the start and end of its values, up to the last column to be read, into the bounds.
+         * The bounds refer to the split bytes, which are the line itself, or the values put one after another
+         * for a line split by a regular expression.
+         *
+         * @return The number of values.
+         */
+        private int split(byte[] b, int from, int to) {
+            if (sep == null) {
+                String line = new String(b, from, to - from, StandardCharsets.UTF_8);
+                String[] ss = lastCol == Integer.MAX_VALUE ? line.split(splitBy) : line.split(splitBy, lastCol + 2);
+                int n = Math.min(ss.length, lastCol == Integer.MAX_VALUE ? ss.length : lastCol + 1);
+                byte[][] values = new byte[n][];
+                int total = 0;
+                for (int i = 0; i < n; i++) {
+                    values[i] = ss[i].getBytes(StandardCharsets.UTF_8);
+                    total += values[i].length;
+                }
+                splitBytes = new byte[total];
+                int pos = 0;
+                for (int i = 0; i < n; i++) {
+                    System.arraycopy(values[i], 0, splitBytes, pos, values[i].length);
+                    addBound(i, pos, pos + values[i].length);
+                    pos += values[i].length;
+                }
+                return n;
+            }
+            splitBytes = b;
+            int n = 0;
+            int fs = from;
+            int i = from;
+            while (i <= to - sep.length) {
+                if (matchesSeparator(b, i)) {
+                    addBound(n++, fs, i);
+                    if (n > lastCol) return n;
+                    i += sep.length;
+                    fs = i;
+                } else {
+                    i++;
+                }
+            }
+            addBound(n++, fs, to);
+            return n;
+        }
+
+        private void addBound(int n, int from, int to) {
+            if (2 * n + 2 > bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            bounds[2 * n] = from;
+            bounds[2 * n + 1] = to;
+        }
+
+        /**
+         * Split a line, test the filters on the values of their columns and parse the line only if it meets all of them.
+         *
+         * @return True if the line has been parsed.
+         */
+        private boolean parseFiltered(byte[] b, int from, int to) throws IOException {
+            int n = split(b, from, to);
+            byte[] values = splitBytes;
+            for (int k = 0; k < filters.length; k++) {
+                int col = filterCols[k];
+                boolean met = col < n ? filters[k].test(values, bounds[2 * col], bounds[2 * col + 1]) : filters[k].test(values, 0, 0);
+                if (!met) return false;
+            }
+            for (int col = 0; col < n; col++) {
+                field(col, values, bounds[2 * col], bounds[2 * col + 1]);
+            }
+            fillMissing(n, b, to);
+            return true;
+        }
+
+        private boolean parse(byte[] b, int from, int to) throws IOException {
+            if (filters != null) {
+                return parseFiltered(b, from, to);
+            }
+            if (sep == null) {
+                String line = new String(b, from, to - from, StandardCharsets.UTF_8);
+                String[] ss = lastCol == Integer.MAX_VALUE ? line.split(splitBy) : line.split(splitBy, lastCol + 2);
+                int n = Math.min(ss.length, lastCol == Integer.MAX_VALUE ? ss.length : lastCol + 1);
+                for (int i = 0; i < n; i++) {
+                    byte[] t = ss[i].getBytes(StandardCharsets.UTF_8);
+                    field(i, t, 0, t.length);
+                }
+                fillMissing(n, b, to);
+            } else if (sep.length == 1) {
+                byte s0 = sep[0];
+                int col = 0;
+                int fs = from;
+                for (int i = from; i < to; i++) {
+                    if (b[i] == s0) {
+                        if (col == lastCol) {
+                            field(col, b, fs, i);
+                            return true;
+                        }
+                        field(col++, b, fs, i);
+                        fs = i + 1;
+                    }
+                }
+                field(col++, b, fs, to);
+                fillMissing(col, b, to);
+            } else {
+                int col = 0;
+                int fs = from;
+                int i = from;
+                while (i <= to - sep.length) {
+                    if (matchesSeparator(b, i)) {
+                        if (col == lastCol) {
+                            field(col, b, fs, i);
+                            return true;
+                        }
+                        field(col++, b, fs, i);
+                        i += sep.length;
+                        fs = i;
+                    } else {
+                        i++;
+                    }
+                }
+                field(col++, b, fs, to);
+                fillMissing(col, b, to);
+            }
+            return true;
+        }
+
+        /**
+         * The last column to be read, after which the rest of a line is not scanned,
+         * or Integer.MAX_VALUE if the last column is read, so that extra values are still checked.
+         */
+        private static int lastCol(int[] types, int[] filterCols) {
+            int last = 0;
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] != SKIP) last = i;
+            }
+            for (int col : filterCols) {
+                last = Math.max(last, col);
+            }
+            return last == types.length - 1 ? Integer.MAX_VALUE : last;
+        }
+
+        private boolean matchesSeparator(byte[] b, int at) {
+            for (int k = 0; k < sep.length; k++) {
+                if (b[at + k] != sep[k]) return false;
+            }
+            return true;
+        }
+
+        private void field(int col, byte[] b, int from, int to) throws IOException {
+            if (col >= buffers.length) {
+                if (from != to) {
+                    throw new IOException("A line has more values than the " + buffers.length + " columns of the table");
+                }
+                return;
+            }
+            ColumnBuffer buffer = buffers[col];
+            if (buffer == null) return;
+            try {
+                buffer.append(b, from, to);
+            } catch (NumberFormatException e) {
+                throw new IOException("Value \"" + new String(b, from, to - from, StandardCharsets.UTF_8)
+                        + "\" of column " + colnames[col] + " does not fit its " + TYPE_NAMES[buffer.type()] + " type", e);
+            }
+        }
+
+        private void fillMissing(int col, byte[] b, int to) {
+            for (; col < buffers.length; col++) {
+                if (buffers[col] != null) buffers[col].append(b, to, to);
+            }
+        }
+
+        private ColumnBuffer[] newBuffers(int[] types) {
+            ColumnBuffer[] buffers = new ColumnBuffer[types.length];
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] == AUTO) {
+                    buffers[i] = new ColumnBuffer(1024);
+                } else if (inferred != null && inferred[i]) {
+                    buffers[i] = new ColumnBuffer(1024, types[i], options.getEscalation());
+                } else if (types[i] != SKIP) {
+                    buffers[i] = new ColumnBuffer(1024, types[i]);
+                }
+            }
+            return buffers;
+        }
+
+        Column[] toColumns() throws IOException {
+            if (sample != null) {
+                for (byte[] line : inferTypes()) parse(line, 0, line.length);
+            }
+            ArrayList<Column> cols = new ArrayList<>();
+            for (int i = 0; i < buffers.length; i++) {
+                if (buffers[i] == null) continue;
+                Column col = buffers[i].toColumn(colnames[i], options.getMaxLevels(), options.isBoolsAndDates());
+                if (options.getType(colnames[i]) != null) col = convert(col, options.getType(colnames[i]));
+                if (options.isOffHeap()) {
+                    col.offHeap();
+                    buffers[i] = new ColumnBuffer(0, buffers[i].type());
+                }
+                cols.add(col);
+            }
+            return cols.toArray(new Column[0]);
+        }
+    }
+}
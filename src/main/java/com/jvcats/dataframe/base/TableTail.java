@@ -0,0 +1,59 @@
+package com.jvcats.dataframe.base;
+
+import java.io.IOException;
+
+/**
+ * This class is used to follow a table file which keeps being appended to, such as an ingestion log.
+ * Each refresh reads only the complete lines appended since the last one, starting from the byte offset it has reached,
+ * and appends their rows to the rows read so far, whose arrays grow by doubling instead of being copied on every refresh.
+ * The column types are determined from the first rows read and kept for all later rows.
+ * A later value which does not fit a column read as integers throws an IOException,
+ * while a value which does not fit a column read as doubles becomes NaN.
+ *
+ * @author henry
+ */
+public final class TableTail {
+    private final TableReader.TailReader reader;
+
+    TableTail(TableReader.TailReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Read the lines appended since the last refresh. A line without its newline yet is left for the next refresh.
+     * If a refresh fails, nothing is read and the offset stays where it was.
+     *
+     * @return A DataFrame holding only the new rows, which has no columns while the file has no data line yet.
+     * @throws IOException if the file cannot be read, if it has been truncated, or if a new value does not fit its column.
+     */
+    public DataFrame refresh() throws IOException {
+        return new DataFrame(reader.refresh());
+    }
+
+    /**
+     * Get all rows read so far.
+     *
+     * @return A new DataFrame with a copy of the rows read so far.
+     */
+    public DataFrame getDataFrame() {
+        return new DataFrame(reader.snapshot());
+    }
+
+    /**
+     * Get the number of rows read so far.
+     *
+     * @return The number of rows.
+     */
+    public int nrow() {
+        return reader.nrow();
+    }
+
+    /**
+     * Get the byte offset after the last line read, where the next refresh starts.
+     *
+     * @return The offset in bytes.
+     */
+    public long getOffset() {
+        return reader.offset();
+    }
+}
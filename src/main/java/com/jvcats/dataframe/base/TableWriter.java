@@ -0,0 +1,200 @@
+package com.jvcats.dataframe.base;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class writes the columns of a DataFrame as a delimited text table.
+ * The formatter of every column is resolved once, the rows are formatted in blocks into a reused StringBuilder,
+ * and each block is encoded and written to the sink in one call. With parallel options, the blocks are
+ * formatted and encoded by a pool of workers and written in order, with a bounded number of blocks in flight.
+ * Values are written as by String.valueOf, dates and timestamps in ISO-8601, missing values of a validity bitmap as empty values,
+ * lines end with the line separator of the system,
+ * and bytes are written in UTF-8.
+ *
+ * @author henry
+ */
+final class TableWriter {
+    private static final int BLOCK_CELLS = 1 << 16;
+
+    private TableWriter() {}
+
+    private interface Cell {
+        void append(StringBuilder sb, int row);
+    }
+
+    /**
+     * A sink which encodes blocks of text, possibly on a worker, and writes the encoded blocks in order.
+     */
+    private interface Sink<T> {
+        T encode(StringBuilder block);
+
+        void write(T block) throws IOException;
+    }
+
+    static void write(DataFrame df, OutputStream out, String splitBy, WriteOptions options) throws IOException {
+        write(df, splitBy, options, new Sink<byte[]>() {
+            @Override
+            public byte[] encode(StringBuilder block) {
+                return block.toString().getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public void write(byte[] block) throws IOException {
+                out.write(block);
+            }
+        });
+        out.flush();
+    }
+
+    static void write(DataFrame df, Writer out, String splitBy, WriteOptions options) throws IOException {
+        write(df, splitBy, options, new Sink<char[]>() {
+            @Override
+            public char[] encode(StringBuilder block) {
+                char[] chars = new char[block.length()];
+                block.getChars(0, chars.length, chars, 0);
+                return chars;
+            }
+
+            @Override
+            public void write(char[] block) throws IOException {
+                out.write(block);
+            }
+        });
+        out.flush();
+    }
+
+    static void write(DataFrame df, WritableByteChannel ch, String splitBy, WriteOptions options) throws IOException {
+        write(df, splitBy, options, new Sink<ByteBuffer>() {
+            @Override
+            public ByteBuffer encode(StringBuilder block) {
+                return ByteBuffer.wrap(block.toString().getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void write(ByteBuffer block) throws IOException {
+                while (block.hasRemaining()) {
+                    ch.write(block);
+                }
+            }
+        });
+    }
+
+    private static <T> void write(DataFrame df, String splitBy, WriteOptions options, Sink<T> sink) throws IOException {
+        int ncol = df.ncol();
+        String newline = System.lineSeparator();
+        Cell[] cells = new Cell[ncol];
+        StringBuilder header = new StringBuilder();
+        for (int j = 0; j < ncol; j++) {
+            cells[j] = cell(df.getCol(j));
+            if (j > 0) header.append(splitBy);
+            header.append(df.getColname(j));
+        }
+        sink.write(sink.encode(header.append(newline)));
+        int nrow = ncol == 0 ? 0 : df.nrow();
+        int blockRows = Math.max(1, BLOCK_CELLS / Math.max(1, ncol));
+        if (!options.isParallel() || nrow <= blockRows) {
+            StringBuilder sb = new StringBuilder();
+            for (int from = 0; from < nrow; from += blockRows) {
+                sb.setLength(0);
+                format(cells, from, Math.min(nrow, from + blockRows), splitBy, newline, sb);
+                sink.write(sink.encode(sb));
+            }
+            return;
+        }
+        int threads = options.getThreads();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ThreadLocal<StringBuilder> builders = ThreadLocal.withInitial(StringBuilder::new);
+        try {
+            ArrayDeque<Future<T>> pending = new ArrayDeque<>();
+            for (int from = 0; from < nrow; from += blockRows) {
+                int start = from;
+                int end = Math.min(nrow, from + blockRows);
+                pending.add(pool.submit(() -> {
+                    StringBuilder sb = builders.get();
+                    sb.setLength(0);
+                    format(cells, start, end, splitBy, newline, sb);
+                    return sink.encode(sb);
+                }));
+                if (pending.size() >= 2 * threads) {
+                    sink.write(getResult(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                sink.write(getResult(pending.poll()));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void format(Cell[] cells, int from, int to, String splitBy, String newline, StringBuilder sb) {
+        for (int i = from; i < to; i++) {
+            for (int j = 0; j < cells.length; j++) {
+                if (j > 0) sb.append(splitBy);
+                cells[j].append(sb, i);
+            }
+            sb.append(newline);
+        }
+    }
+
+    private static Cell cell(Column col) {
+        Cell cell = valueCell(col);
+        if (col.validity() == null) return cell;
+        return (sb, row) -> {
+            if (col.isValid(row)) cell.append(sb, row);
+        };
+    }
+
+    private static Cell valueCell(Column col) {
+        return switch (col.layout()) {
+            case ColumnData.Doubles(double[] dbls) -> (sb, row) -> sb.append(dbls[row]);
+            case ColumnData.Ints(int[] ints) -> (sb, row) -> sb.append(ints[row]);
+            case ColumnData.Strings(String[] strs) -> (sb, row) -> sb.append(strs[row]);
+            case ColumnData.Utf8 utf8 -> utf8::format;
+            case ColumnData.Categorical(int[] codes, String[] levels) ->
+                    (sb, row) -> sb.append(codes[row] < 0 ? null : levels[codes[row]]);
+            case ColumnData.Longs(long[] longs) -> (sb, row) -> sb.append(longs[row]);
+            case ColumnData.Floats(float[] floats) -> (sb, row) -> sb.append(floats[row]);
+            case ColumnData.Shorts(short[] shorts) -> (sb, row) -> sb.append(shorts[row]);
+            case ColumnData.Bytes(byte[] bytes) -> (sb, row) -> sb.append(bytes[row]);
+            case ColumnData.OffHeapDoubles(DoubleBuffer dbls) -> (sb, row) -> sb.append(dbls.get(row));
+            case ColumnData.OffHeapInts(IntBuffer ints) -> (sb, row) -> sb.append(ints.get(row));
+            case ColumnData.OffHeapLongs(LongBuffer longs) -> (sb, row) -> sb.append(longs.get(row));
+            case ColumnData.Bools bools -> bools::format;
+            case ColumnData.Dates dates -> dates::format;
+            case ColumnData.Timestamps times -> times::format;
+            case ColumnData.Chunks chunks -> chunks::format;
+            case ColumnData.View view -> view::format;
+            case ColumnData.Selection sel -> sel::format;
+            case ColumnData.EncodedInts ints -> (sb, row) -> sb.append(ints.get(row));
+            case ColumnData.DictDoubles dict -> (sb, row) -> sb.append(dict.get(row));
+            case null -> (sb, row) -> sb.append((String) null);
+        };
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Writing the table has been interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IOException(e.getCause());
+        }
+    }
+}
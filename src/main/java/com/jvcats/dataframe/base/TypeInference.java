@@ -0,0 +1,155 @@
+package com.jvcats.dataframe.base;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class infers the kinds of the columns of a table from a sample of its rows.
+ * Every value is classified with the byte classes of ColumnBuffer, and the kinds of the values of a column are joined:
+ * INT, LONG and DBL join to the widest of them, equal kinds stay as they are, and any other mix is STR.
+ * Empty values are missing values and do not change the kind.
+ *
+ * @author henry
+ */
+final class TypeInference {
+    static final int NONE = 0;
+    static final int INT = 1;
+    static final int LONG = 2;
+    static final int DBL = 3;
+    static final int BOOL = 4;
+    static final int DATE = 5;
+    static final int STR = 6;
+
+    private TypeInference() {}
+
+    /**
+     * Infer the kind of every chosen column, column by column, in parallel when the options read in parallel.
+     *
+     * @param lines The sampled lines.
+     * @param bounds The start and end of every value of every line, as returned by the splitter of the table.
+     * @param chosen Which columns to infer.
+     * @param options The options for reading.
+     * @return The kind of every column, NONE for columns not chosen or without values.
+     */
+    static int[] infer(byte[][] lines, int[][] bounds, boolean[] chosen, ReadOptions options) throws IOException {
+        int ncol = chosen.length;
+        int[] kinds = new int[ncol];
+        if (!options.isParallel() || ncol < 2) {
+            for (int j = 0; j < ncol; j++) {
+                if (chosen[j]) kinds[j] = inferColumn(lines, bounds, j, options.isBoolsAndDates());
+            }
+            return kinds;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(options.getThreads(), ncol));
+        try {
+            ArrayList<Future<Integer>> futures = new ArrayList<>();
+            for (int j = 0; j < ncol; j++) {
+                int col = j;
+                futures.add(chosen[j] ? pool.submit(() -> inferColumn(lines, bounds, col, options.isBoolsAndDates())) : null);
+            }
+            for (int j = 0; j < ncol; j++) {
+                if (futures.get(j) != null) kinds[j] = futures.get(j).get();
+            }
+            return kinds;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Type inference has been interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IOException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The kind of a column, STR for booleans and dates unless boolsAndDates.
+     */
+    private static int inferColumn(byte[][] lines, int[][] bounds, int col, boolean boolsAndDates) {
+        int kind = NONE;
+        for (int r = 0; r < lines.length; r++) {
+            int[] bound = bounds[r];
+            if (2 * col + 1 >= bound.length) continue;
+            kind = join(kind, kindOf(lines[r], bound[2 * col], bound[2 * col + 1]));
+            if (kind == STR) break;
+        }
+        if (!boolsAndDates && (kind == BOOL || kind == DATE)) return STR;
+        return kind;
+    }
+
+    /**
+     * The kind of a single value.
+     */
+    static int kindOf(byte[] b, int from, int to) {
+        if (from == to) return NONE;
+        int type = ColumnBuffer.classify(b, from, to);
+        if (type == ColumnBuffer.DBL) return DBL;
+        if (type == ColumnBuffer.INT) {
+            boolean negative = b[from] == '-';
+            int start = negative ? from + 1 : from;
+            if (start == to || to - start > 18) return DBL;
+            long value = 0;
+            for (int j = start; j < to; j++) {
+                if (ColumnBuffer.CHAR_CLASS[b[j] & 0xFF] != ColumnBuffer.C_DIGIT) return DBL;
+                value = value * 10 + (b[j] - '0');
+            }
+            value = negative ? -value : value;
+            return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? INT : LONG;
+        }
+        if (isBoolean(b, from, to)) return BOOL;
+        if (isDate(b, from, to)) return DATE;
+        return STR;
+    }
+
+    static int join(int a, int b) {
+        if (a == NONE || a == b) return b;
+        if (b == NONE) return a;
+        if (a <= DBL && b <= DBL) return Math.max(a, b);
+        return STR;
+    }
+
+    /**
+     * The ColumnBuffer type a kind is read into, or TableReader.AUTO for a column without values.
+     */
+    static int bufferType(int kind) {
+        switch (kind) {
+            case NONE:
+                return TableReader.AUTO;
+            case INT:
+                return ColumnBuffer.INT;
+            case LONG:
+                return ColumnBuffer.LONG;
+            case DBL:
+                return ColumnBuffer.DBL;
+            case BOOL:
+                return ColumnBuffer.BOOL;
+            case DATE:
+                return ColumnBuffer.DATE;
+            default:
+                return ColumnBuffer.STR;
+        }
+    }
+
+    private static boolean isBoolean(byte[] b, int from, int to) {
+        return matchesIgnoreCase(b, from, to, "true") || matchesIgnoreCase(b, from, to, "false");
+    }
+
+    private static boolean matchesIgnoreCase(byte[] b, int from, int to, String word) {
+        if (to - from != word.length()) return false;
+        for (int j = 0; j < word.length(); j++) {
+            if ((b[from + j] | 0x20) != word.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check for an ISO date, yyyy-MM-dd.
+     */
+    private static boolean isDate(byte[] b, int from, int to) {
+        return ColumnBuffer.parseDate(b, from, to) != ColumnBuffer.NOT_DATE;
+    }
+}
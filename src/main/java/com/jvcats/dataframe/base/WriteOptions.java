@@ -0,0 +1,57 @@
+package com.jvcats.dataframe.base;
+
+/**
+ * This class is used to store the options for writing a DataFrame to a table file.
+ * The setters return the object itself, so that options can be chained.
+ *
+ * @author henry
+ */
+public class WriteOptions {
+    private boolean parallel = false;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public WriteOptions() {}
+
+    /**
+     * Format the rows in parallel blocks, using one worker per available processor.
+     *
+     * @return The WriteOptions after setting.
+     */
+    public WriteOptions parallel() {
+        return this.parallel(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Format the rows in parallel blocks. Each block of rows is formatted and encoded by its own worker
+     * and the blocks are written in order.
+     *
+     * @param threads The number of workers.
+     * @return The WriteOptions after setting.
+     */
+    public WriteOptions parallel(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads should be at least 1, got " + threads);
+        }
+        this.parallel = true;
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Format the rows sequentially with one thread, which is the default.
+     *
+     * @return The WriteOptions after setting.
+     */
+    public WriteOptions sequential() {
+        this.parallel = false;
+        return this;
+    }
+
+    boolean isParallel() {
+        return parallel;
+    }
+
+    int getThreads() {
+        return threads;
+    }
+}
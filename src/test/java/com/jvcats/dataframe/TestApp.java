@@ -2,6 +2,23 @@ package com.jvcats.dataframe;
 
 import com.jvcats.dataframe.base.*;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 public class TestApp {
     @Test
@@ -44,4 +61,885 @@ public class TestApp {
         Assertions.assertEquals(df1B.getCol("Last-Name"), df2B.getCol(0));
         
     }
+
+    @Test
+    public void testReadTable(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("types.csv");
+        Files.writeString(file, String.join("\n",
+                "Id,Score,Code,Gap,Name",
+                "1,1.50,007,3,Amy",
+                "2,2,1.0,,Ben",
+                "3,0.25,-0,5,Cassie",
+                "4,7.0,x1,6,David"));
+        DataFrame df = new DataFrame();
+        df.readTable(file.toString(), ",");
+        Assertions.assertArrayEquals(new String[]{"int", "dbl", "str", "int", "str"}, df.colTypesDF().getColStrs("Types"));
+        Assertions.assertArrayEquals(new int[]{1, 2, 3, 4}, df.getColInts("Id"));
+        Assertions.assertArrayEquals(new double[]{1.5, 2, 0.25, 7}, df.getColDbls("Score"));
+        Assertions.assertArrayEquals(new String[]{"007", "1.0", "-0", "x1"}, df.getColStrs("Code"));
+        Assertions.assertTrue(df.getCol("Gap").isNull(1));
+        Assertions.assertFalse(df.getCol("Gap").isNull(2));
+
+        Path out = dir.resolve("out.csv");
+        df.writeTable(out.toString(), ",");
+        DataFrame df2 = new DataFrame();
+        df2.readTable(out.toString(), ",");
+        Assertions.assertEquals(df.getCol("Code"), df2.getCol("Code"));
+        Assertions.assertEquals(df.getCol("Score"), df2.getCol("Score"));
+        Assertions.assertEquals(df.getCol("Gap"), df2.getCol("Gap"));
+    }
+
+    @Test
+    public void testReadTableParallel(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("big.csv");
+        StringBuilder sb = new StringBuilder("Id,Value,Label,Mixed\n");
+        int n = 120000;
+        for (int i = 0; i < n; i++) {
+            sb.append(i).append(',').append(i % 7 == 0 ? "" : (i * 0.5) + "0").append(',')
+                    .append("L").append(i % 13).append(',').append(i == n - 1 ? "end" : String.valueOf(i % 5)).append('\n');
+        }
+        Files.writeString(file, sb.toString());
+        DataFrame seq = new DataFrame();
+        seq.readTable(file.toString(), ",");
+        DataFrame par = new DataFrame();
+        par.readTable(file.toString(), ",", new ReadOptions().parallel(4));
+        Assertions.assertEquals(seq, par);
+        Assertions.assertEquals("str", par.colType("Mixed"));
+        Assertions.assertEquals(n, par.nrow());
+
+        Path empty = dir.resolve("empty.csv");
+        Files.writeString(empty, "");
+        Assertions.assertThrows(IOException.class, () -> new DataFrame().readTable(empty.toString(), ","));
+        Assertions.assertThrows(IOException.class,
+                () -> new DataFrame().readTable(empty.toString(), ",", new ReadOptions().parallel(4)));
+    }
+
+    @Test
+    public void testReadTableTyped(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("typed.tsv");
+        Files.writeString(file, "Name\tAge\tHeight\tNote\nAmy\t20\t1.6e2\tx\nBen\t25\tNaN\ty\nCassie\t21\t165.5\tz\n");
+        DataFrame df = new DataFrame();
+        df.readTable(file.toString(), 2, "\t", new String[]{"Height"}, new String[]{"Name"}, new String[]{"Age"});
+        Assertions.assertArrayEquals(new String[]{"Name", "Age", "Height"}, df.getAllColnames());
+        Assertions.assertArrayEquals(new int[]{20, 25}, df.getColInts("Age"));
+        Assertions.assertEquals(160.0, df.locDbl(0, "Height"));
+        Assertions.assertTrue(Double.isNaN(df.locDbl(1, "Height")));
+
+        DataFrame regex = new DataFrame();
+        regex.readTable(file.toString(), "\\s+");
+        Assertions.assertArrayEquals(new int[]{20, 25, 21}, regex.getColInts("Age"));
+    }
+
+    @Test
+    public void testBinary(@TempDir Path dir) throws Exception {
+        Column names = new Column("Name", "Amy", null, "Cassie", "Dávid");
+        Column ages = new Column("Age", 20, 25, 21, 24);
+        Column heights = new Column("Height", 160., Double.NaN, 165., 180.);
+        DataFrame df = new DataFrame(names, ages, heights);
+        Path file = dir.resolve("df.bin");
+        df.writeBinary(file);
+        DataFrame df2 = new DataFrame();
+        df2.readBinary(file);
+        Assertions.assertEquals(df, df2);
+    }
+
+    @Test
+    public void testRowGroups(@TempDir Path dir) throws Exception {
+        int n = 1000;
+        int[] days = new int[n];
+        double[] values = new double[n];
+        String[] cities = new String[n];
+        for (int i = 0; i < n; i++) {
+            days[i] = i;
+            values[i] = i % 7 == 0 ? Double.NaN : i * 0.5;
+            cities[i] = i % 3 == 0 ? null : "c" + (i % 10);
+        }
+        DataFrame df = new DataFrame(new Column("Day", days), new Column("Value", values), new Column("City", cities));
+        Path file = dir.resolve("df.rg");
+        df.writeRowGroups(file, 64);
+        DataFrame all = new DataFrame();
+        all.readRowGroups(file);
+        Assertions.assertEquals(df, all);
+
+        DataFrame week = new DataFrame();
+        week.readRowGroups(file, ReadFilter.range("Day", 100, 107));
+        Assertions.assertEquals(7, week.nrow());
+        Assertions.assertEquals(100, week.locInt(0, "Day"));
+        Assertions.assertEquals(106, week.locInt(6, "Day"));
+
+        DataFrame some = new DataFrame();
+        some.readRowGroups(file, ReadFilter.gt("Value", 400.), ReadFilter.eq("City", new String[]{"c1", "c5"}));
+        for (int i = 0; i < some.nrow(); i++) {
+            Assertions.assertTrue(some.locDbl(i, "Value") > 400.);
+            Assertions.assertTrue(some.locStr(i, "City").equals("c1") || some.locStr(i, "City").equals("c5"));
+        }
+        Assertions.assertTrue(some.nrow() > 0);
+
+        DataFrame none = new DataFrame();
+        none.readRowGroups(file, ReadFilter.lt("Day", 0));
+        Assertions.assertEquals(0, none.nrow());
+        Assertions.assertEquals(3, none.ncol());
+    }
+
+    @Test
+    public void testArrow(@TempDir Path dir) throws Exception {
+        Column names = new Column("Name", "Amy", null, "Cassie", "Dávid", "");
+        Column ages = new Column("Age", 20, 25, 21, 24, -3);
+        Column heights = new Column("Height", 160., Double.NaN, 165., 180., 1e-300);
+        DataFrame df = new DataFrame(names, ages, heights);
+        Path file = dir.resolve("df.arrow");
+        df.writeArrow(file);
+        DataFrame df2 = new DataFrame();
+        df2.readArrow(file);
+        Assertions.assertEquals(df, df2);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        df.writeArrowStream(out);
+        DataFrame df3 = new DataFrame();
+        df3.readArrowStream(new ByteArrayInputStream(out.toByteArray()));
+        Assertions.assertEquals(df, df3);
+    }
+
+    @Test
+    public void testReadTableChunks(@TempDir Path dir) throws Exception {
+        StringBuilder sb = new StringBuilder("Id,Score,Name\r\n");
+        for (int i = 0; i < 2500; i++) {
+            sb.append(i).append(',').append(i % 5 == 0 ? "" : String.valueOf(i * 0.25)).append(',').append("n").append(i % 7).append("\r\n");
+        }
+        Path file = dir.resolve("big.csv");
+        Files.writeString(file, sb.toString());
+        DataFrame whole = new DataFrame();
+        whole.readTable(file.toString(), ",");
+
+        int rows = 0;
+        int chunks = 0;
+        for (DataFrame chunk : DataFrame.readTableChunks(file.toString(), ",", 1000)) {
+            Assertions.assertArrayEquals(new String[]{"int", "dbl", "str"}, new String[]{chunk.colType(0), chunk.colType(1), chunk.colType(2)});
+            for (int i = 0; i < chunk.nrow(); i++) {
+                Assertions.assertEquals(whole.locInt(rows + i, "Id"), chunk.locInt(i, "Id"));
+                Assertions.assertEquals(whole.locDbl(rows + i, "Score"), chunk.locDbl(i, "Score"));
+                Assertions.assertEquals(whole.locStr(rows + i, "Name"), chunk.locStr(i, "Name"));
+            }
+            rows += chunk.nrow();
+            chunks++;
+        }
+        Assertions.assertEquals(2500, rows);
+        Assertions.assertEquals(3, chunks);
+    }
+
+    @Test
+    public void testWriteTable(@TempDir Path dir) throws Exception {
+        DataFrame df = new DataFrame(new Column("Name", "Amy", null, "Dávid"), new Column("Age", 20, -5, 24),
+                new Column("Height", 160.5, Double.NaN, 1e-7));
+        Path file = dir.resolve("out.csv");
+        df.writeTable(file.toString(), ",");
+        String nl = System.lineSeparator();
+        String expected = "Name,Age,Height" + nl + "Amy,20,160.5" + nl + "null,-5,NaN" + nl + "Dávid,24,1.0E-7" + nl;
+        Assertions.assertEquals(expected, Files.readString(file));
+        String missing = dir.resolve("missing").resolve("out.csv").toString();
+        Assertions.assertThrows(IOException.class, () -> df.writeTable(missing, ",", new WriteOptions()));
+
+        int n = 50000;
+        int[] ids = new int[n];
+        double[] values = new double[n];
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+            values[i] = i / 3.0;
+            names[i] = "n" + (i % 11);
+        }
+        DataFrame big = new DataFrame(new Column("Id", ids), new Column("Value", values), new Column("Name", names));
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        big.writeTable(sequential, "\t", new WriteOptions());
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        big.writeTable(Channels.newChannel(parallel), "\t", new WriteOptions().parallel(4));
+        Assertions.assertArrayEquals(sequential.toByteArray(), parallel.toByteArray());
+        StringWriter writer = new StringWriter();
+        big.writeTable(writer, "\t", new WriteOptions().parallel(3));
+        Assertions.assertEquals(sequential.toString(StandardCharsets.UTF_8), writer.toString());
+
+        Path back = dir.resolve("big.tsv");
+        Files.write(back, sequential.toByteArray());
+        DataFrame big2 = new DataFrame();
+        big2.readTable(back.toString(), "\t");
+        Assertions.assertEquals(big, big2);
+    }
+
+    @Test
+    public void testInferRows(@TempDir Path dir) throws Exception {
+        StringBuilder sb = new StringBuilder("Id Score Name Big Flag Day\n");
+        for (int i = 0; i < 3000; i++) {
+            String score = i == 2500 ? "x" : String.valueOf(i);
+            String name = i == 2000 ? "1.5" : "n" + i;
+            sb.append(i).append(' ').append(score).append(' ').append(name).append(' ').append(10000000000L + i)
+                    .append(' ').append(i % 2 == 0 ? "true" : "False").append(' ').append("2024-01-0").append(1 + i % 9).append('\n');
+        }
+        Path file = dir.resolve("sample.txt");
+        Files.writeString(file, sb.toString());
+        DataFrame full = new DataFrame();
+        full.readTable(file.toString(), " ");
+        DataFrame widened = new DataFrame();
+        widened.readTable(file.toString(), " ", new ReadOptions().inferRows(100));
+        Assertions.assertEquals(full, widened);
+        DataFrame regex = new DataFrame();
+        regex.readTable(file.toString(), "\\s+", new ReadOptions().inferRows(100).parallel(2));
+        Assertions.assertEquals(full, regex);
+        Assertions.assertEquals("str", widened.colType("Score"));
+        Assertions.assertEquals("long", widened.colType("Big"));
+        Assertions.assertEquals(10000000005L, widened.getCol("Big").getLongs()[5]);
+        Assertions.assertEquals("str", widened.colType("Flag"));
+        DataFrame typed = new DataFrame();
+        typed.readTable(file.toString(), " ", new ReadOptions().inferRows(100).inferBoolsAndDates());
+        Assertions.assertEquals("bool", typed.colType("Flag"));
+        Assertions.assertEquals("date", typed.colType("Day"));
+
+        DataFrame missing = new DataFrame();
+        missing.readTable(file.toString(), " ", new ReadOptions().inferRows(100).escalation(ReadOptions.Escalation.MISSING));
+        Assertions.assertEquals("int", missing.colType("Score"));
+        Assertions.assertTrue(missing.getCol("Score").isNull(2500));
+        Assertions.assertEquals(2499, missing.locInt(2499, "Score"));
+        Assertions.assertEquals("1.5", missing.locStr(2000, "Name"));
+
+        Exception e = Assertions.assertThrows(Exception.class, () -> new DataFrame().readTable(file.toString(), " ",
+                new ReadOptions().inferRows(100).escalation(ReadOptions.Escalation.FAIL).parallel(3)));
+        Assertions.assertTrue(e.getMessage().contains("\"x\" of column Score"));
+    }
+
+    @Test
+    public void testReadColumns(@TempDir Path dir) throws Exception {
+        int ncol = 300;
+        StringBuilder sb = new StringBuilder();
+        for (int j = 0; j < ncol; j++) sb.append(j == 0 ? "" : ",").append("C").append(j);
+        sb.append('\n');
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < ncol; j++) sb.append(j == 0 ? "" : ",").append(j % 3 == 0 ? String.valueOf(i * j) : j % 3 == 1 ? i + ".5" : "s" + i);
+            sb.append('\n');
+        }
+        Path file = dir.resolve("wide.csv");
+        Files.writeString(file, sb.toString());
+        DataFrame full = new DataFrame();
+        full.readTable(file.toString(), ",");
+        for (ReadOptions options : new ReadOptions[]{new ReadOptions(), new ReadOptions().parallel(2), new ReadOptions().inferRows(10)}) {
+            DataFrame some = new DataFrame();
+            some.readTable(file.toString(), ",", options.columns("C7", "C3", "C299"));
+            Assertions.assertEquals(3, some.ncol());
+            Assertions.assertEquals(new DataFrame(full.getCol("C3"), full.getCol("C7"), full.getCol("C299")), some);
+        }
+        DataFrame regex = new DataFrame();
+        regex.readTable(file.toString(), "[,]", new ReadOptions().columns("C1", "C2"));
+        Assertions.assertEquals(new DataFrame(full.getCol("C1"), full.getCol("C2")), regex);
+        DataFrame woh = new DataFrame();
+        woh.readTableWOH(file.toString(), ",", new ReadOptions().columns("Col4"));
+        Assertions.assertEquals("C3", woh.locStr(0, 0));
+    }
+
+    @Test
+    public void testReadFilters(@TempDir Path dir) throws Exception {
+        StringBuilder sb = new StringBuilder("Id;Score;City;Note\n");
+        String[] cities = {"Oslo", "Rome", "Kraków", "Lima"};
+        for (int i = 0; i < 5000; i++) {
+            sb.append(i).append(';').append(i % 10 == 0 ? "" : String.valueOf(i % 100 + 0.5)).append(';')
+                    .append(cities[i % 4]).append(';').append("note").append(i).append('\n');
+        }
+        Path file = dir.resolve("filter.csv");
+        Files.writeString(file, sb.toString());
+        DataFrame full = new DataFrame();
+        full.readTable(file.toString(), ";");
+        DataFrame filtered = new DataFrame().clone(full).addFilterGt("Score", 90.).and()
+                .addFilterEq("City", new String[]{"Rome", "Kraków"}).and().addFilterRange("Id", 1000, 4000).filter();
+        StringWriter expected = new StringWriter();
+        filtered.writeTable(expected, ";", new WriteOptions());
+
+        for (ReadOptions options : new ReadOptions[]{new ReadOptions(), new ReadOptions().parallel(3), new ReadOptions().inferRows(50)}) {
+            DataFrame some = new DataFrame();
+            some.readTable(file.toString(), ";", options.filters(ReadFilter.gt("Score", 90.),
+                    ReadFilter.eq("City", new String[]{"Rome", "Kraków"}), ReadFilter.range("Id", 1000, 4000)));
+            StringWriter actual = new StringWriter();
+            some.writeTable(actual, ";", new WriteOptions());
+            Assertions.assertTrue(some.nrow() > 0);
+            Assertions.assertEquals(expected.toString(), actual.toString());
+        }
+        DataFrame projected = new DataFrame();
+        projected.readTable(file.toString(), "[;]", new ReadOptions().columns("Id").filters(ReadFilter.eq("City", "Lima")));
+        Assertions.assertEquals(1, projected.ncol());
+        Assertions.assertEquals(1250, projected.nrow());
+        Assertions.assertEquals(7, projected.locInt(1, "Id"));
+    }
+
+    @Test
+    public void testCategorical(@TempDir Path dir) throws Exception {
+        StringBuilder sb = new StringBuilder("Id,Country\n");
+        String[] countries = {"NO", "IT", "PL", "PE", "IT", "IT"};
+        for (int i = 0; i < 600; i++) {
+            sb.append(i).append(',').append(countries[i % 6]).append('\n');
+        }
+        Path file = dir.resolve("countries.csv");
+        Files.writeString(file, sb.toString());
+        DataFrame cat = new DataFrame();
+        cat.readTable(file.toString(), ",");
+        DataFrame plain = new DataFrame();
+        plain.readTable(file.toString(), ",", new ReadOptions().categorical(0));
+        Assertions.assertTrue(cat.getCol("Country").isCategorical());
+        Assertions.assertFalse(plain.getCol("Country").isCategorical());
+        Assertions.assertArrayEquals(new String[]{"NO", "IT", "PL", "PE"}, cat.getCol("Country").getLevels());
+        Assertions.assertEquals(plain, cat);
+        Assertions.assertEquals("PE", cat.locStr(3, "Country"));
+        Assertions.assertEquals("str", cat.colType("Country"));
+
+        DataFrame catIt = new DataFrame().clone(cat).addFilterEq("Country", "IT").filter();
+        DataFrame plainIt = new DataFrame().clone(plain).addFilterEq("Country", "IT").filter();
+        Assertions.assertTrue(catIt.getCol("Country").isCategorical());
+        Assertions.assertEquals(300, catIt.nrow());
+        Assertions.assertEquals(plainIt.getCol("Id"), catIt.getCol("Id"));
+        DataFrame catOther = new DataFrame().clone(cat).addFilterNeq("Country", new String[]{"IT", "NO"}).filter();
+        Assertions.assertEquals(200, catOther.nrow());
+        Assertions.assertEquals(new DataFrame().clone(plain).addFilterNeq("Country", new String[]{"IT", "NO"}).filter().getCol("Country"),
+                catOther.getCol("Country"));
+
+        DataFrame catCounts = new DataFrame().clone(cat).setGroupKey("Country").uniqueCountDF();
+        DataFrame plainCounts = new DataFrame().clone(plain).setGroupKey("Country").uniqueCountDF();
+        Assertions.assertEquals(plainCounts, catCounts);
+        Assertions.assertEquals(300, catCounts.locInt(1, "Count"));
+        Assertions.assertArrayEquals(new String[]{"NO", "IT", "PL", "PE"}, cat.strUnique("Country"));
+        DataFrame catDummies = new DataFrame().clone(cat).setGroupKey("Country").addDummyCols();
+        DataFrame plainDummies = new DataFrame().clone(plain).setGroupKey("Country").addDummyCols();
+        Assertions.assertEquals(plainDummies.ncol(), catDummies.ncol());
+        for (int j = 0; j < catDummies.ncol(); j++) {
+            Assertions.assertArrayEquals(plainDummies.getColInts(j), catDummies.getColInts(j));
+        }
+
+        DataFrame ordered = new DataFrame().clone(cat).setOrderKey("Id").setOKeyReverse().order();
+        Assertions.assertTrue(ordered.getCol("Country").isCategorical());
+        Assertions.assertEquals("IT", ordered.locStr(0, "Country"));
+        Column merged = Column.categorical("Country", "IT", "SE").rbind(Column.categorical("Country", "SE", null, "NO"));
+        Assertions.assertArrayEquals(new String[]{"IT", "SE", "NO"}, merged.getLevels());
+        Assertions.assertArrayEquals(new int[]{0, 1, 1, -1, 2}, merged.getCodes());
+        Assertions.assertArrayEquals(new String[]{"IT", "SE", "SE", null, "NO"}, merged.getStrs());
+        Assertions.assertFalse(merged.isCategorical());
+        StringWriter catOut = new StringWriter();
+        StringWriter plainOut = new StringWriter();
+        cat.writeTable(catOut, ",", new WriteOptions());
+        plain.writeTable(plainOut, ",", new WriteOptions());
+        Assertions.assertEquals(plainOut.toString(), catOut.toString());
+        Assertions.assertTrue(cat.getCol("Country").isCategorical());
+    }
+
+    @Test
+    public void testColumnTypes() {
+        Column names = new Column("Name", "Cassie", null, "Amy", "Ben");
+        Column ages = new Column("Age", 21, 24, 20, 25);
+        Column heights = new Column("Height", 165., 180., 160., 170.);
+        DataFrame df = new DataFrame(names, ages, heights);
+        Assertions.assertEquals(ColumnType.STR, names.getType());
+        Assertions.assertEquals(ColumnType.INT, ages.getType());
+        Assertions.assertEquals(ColumnType.DBL, heights.getType());
+        Assertions.assertNull(new Column().getType());
+        Assertions.assertEquals(ColumnType.INT, ColumnType.of(df.colType("Age")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ColumnType.of("chr"));
+
+        DataFrame byName = new DataFrame().clone(df).setOrderKey("Name").order();
+        Assertions.assertArrayEquals(new String[]{null, "Amy", "Ben", "Cassie"}, byName.getColStrs("Name"));
+        Assertions.assertArrayEquals(new int[]{24, 20, 25, 21}, byName.getColInts("Age"));
+        DataFrame tall = new DataFrame().clone(df).addFilterGt("Height", 162.).filter();
+        Assertions.assertArrayEquals(new double[]{165., 180., 170.}, tall.getColDbls("Height"));
+        Assertions.assertArrayEquals(new String[]{"Cassie", null, "Ben"}, tall.getColStrs("Name"));
+        DataFrame rows = new DataFrame().clone(df).rloc(new int[]{3, 1});
+        Assertions.assertArrayEquals(new int[]{24, 25}, rows.getColInts("Age"));
+    }
+
+    @Test
+    public void testPrimitiveColumns(@TempDir Path dir) throws Exception {
+        DataFrame df = new DataFrame(
+                new Column("Id", 9000000000000000003L, 9000000000000000001L, 9000000000000000002L),
+                new Column("Ratio", 0.5f, 0.25f, 2f),
+                new Column("Age", (short) 30, (short) 20, (short) 40),
+                new Column("Level", (byte) 3, (byte) 1, (byte) 2),
+                new Column("Flag", true, false, true),
+                Column.dates("Day", LocalDate.of(2024, 2, 29), LocalDate.of(1999, 12, 31), LocalDate.of(2024, 1, 1)),
+                Column.timestamps("At", Instant.ofEpochMilli(3000), Instant.ofEpochMilli(1000), Instant.ofEpochMilli(2000)));
+        Assertions.assertEquals("long", df.colType("Id"));
+        Assertions.assertEquals(ColumnType.BOOL, df.getCol("Flag").getType());
+        Assertions.assertArrayEquals(new boolean[]{true, false, true}, df.getCol("Flag").getBools());
+
+        DataFrame byId = new DataFrame().clone(df).setOrderKey("Id").order();
+        Assertions.assertArrayEquals(new long[]{9000000000000000001L, 9000000000000000002L, 9000000000000000003L},
+                byId.getCol("Id").getLongs());
+        Assertions.assertArrayEquals(new byte[]{1, 2, 3}, byId.getCol("Level").getBytes());
+        DataFrame byDay = new DataFrame().clone(df).setOrderKey("Day").order();
+        Assertions.assertArrayEquals(new short[]{20, 40, 30}, byDay.getCol("Age").getShorts());
+        Assertions.assertArrayEquals(new boolean[]{false, true, true}, byDay.getCol("Flag").getBools());
+        DataFrame one = new DataFrame().clone(df).addFilterEq("Id", 9000000000000000002L).filter();
+        Assertions.assertEquals(1, one.nrow());
+        Assertions.assertArrayEquals(new float[]{2f}, one.getCol("Ratio").getFloats());
+        Assertions.assertArrayEquals(new Instant[]{Instant.ofEpochMilli(2000)}, one.getCol("At").getTimestamps());
+
+        StringWriter out = new StringWriter();
+        new DataFrame().clone(df).cloc(new String[]{"Id", "Flag", "Day"}).writeTable(out, ",", new WriteOptions());
+        String nl = System.lineSeparator();
+        Assertions.assertEquals("Id,Flag,Day" + nl + "9000000000000000003,true,2024-02-29" + nl
+                + "9000000000000000001,false,1999-12-31" + nl + "9000000000000000002,true,2024-01-01" + nl, out.toString());
+        Path file = dir.resolve("typed.csv");
+        Files.writeString(file, out.toString());
+        DataFrame read = new DataFrame();
+        read.readTable(file.toString(), ",", new ReadOptions().inferBoolsAndDates());
+        Assertions.assertEquals(df.getCol("Id"), read.getCol("Id"));
+        Assertions.assertEquals(df.getCol("Flag"), read.getCol("Flag"));
+        Assertions.assertArrayEquals(df.getCol("Day").getDates(), read.getCol("Day").getDates());
+        Assertions.assertThrows(IOException.class, () -> df.writeBinary(dir.resolve("typed.bin")));
+        DataFrame plain = new DataFrame();
+        plain.readTable(file.toString(), ",");
+        Assertions.assertEquals("str", plain.colType("Flag"));
+        Assertions.assertEquals("2024-02-29", plain.locStr(0, "Day"));
+
+        Path small = dir.resolve("small.csv");
+        Files.writeString(small, "Age,Ratio,At,Day\n30,0.5,1970-01-01T00:00:02Z,2024-01-01\n,2,,\n");
+        DataFrame narrow = new DataFrame();
+        narrow.readTable(small.toString(), ",", new ReadOptions().type("Age", ColumnType.SHORT)
+                .type("Ratio", ColumnType.FLOAT).type("At", ColumnType.TIMESTAMP).type("Day", ColumnType.DATE));
+        Assertions.assertArrayEquals(new short[]{30, 0}, narrow.getCol("Age").getShorts());
+        Assertions.assertTrue(narrow.getCol("Age").isNull(1));
+        Assertions.assertArrayEquals(new float[]{0.5f, 2f}, narrow.getCol("Ratio").getFloats());
+        Assertions.assertEquals(Instant.ofEpochMilli(2000), narrow.getCol("At").getTimestamps()[0]);
+        Assertions.assertTrue(narrow.getCol("At").isNull(1));
+        Assertions.assertEquals(LocalDate.of(2024, 1, 1), narrow.getCol("Day").getDates()[0]);
+        Files.writeString(small, "Age\n300\n");
+        Assertions.assertThrows(IOException.class, () -> new DataFrame().readTable(small.toString(), ",",
+                new ReadOptions().type("Age", ColumnType.BYTE)));
+
+        Column longs = new Column("Id", 1L << 40).rbind(new Column("Id", 1, 2));
+        Assertions.assertArrayEquals(new long[]{1L << 40, 1, 2}, longs.getLongs());
+        Column flags = new Column("Flag", new boolean[70]).rbind(new Column("Flag", true));
+        Assertions.assertTrue(flags.getBools()[70]);
+        Assertions.assertEquals(71, flags.nrow());
+
+        Column ids = new Column("Id", 0L, 0L, 7L);
+        ids.setNull(1);
+        DataFrame gaps = new DataFrame(ids).offHeap();
+        Assertions.assertEquals(1, new DataFrame().clone(gaps).addFilterEq("Id", 0L).filter().nrow());
+        Assertions.assertEquals(7L, new DataFrame().clone(gaps).addFilterEq("Id", 7).filter().getCol("Id").getLong(0));
+        Assertions.assertEquals(1, new DataFrame().clone(gaps).addFilterGt("Id", 0).filter().nrow());
+        Assertions.assertTrue(gaps.getCol("Id").isOffHeap());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new DataFrame().clone(df).addFilterGt("Ratio", 1));
+    }
+
+    @Test
+    public void testReadTables(@TempDir Path dir) throws Exception {
+        StringBuilder all = new StringBuilder("Id,Amount,Shop\n");
+        List<Path> files = new ArrayList<>();
+        for (int f = 0; f < 40; f++) {
+            StringBuilder sb = new StringBuilder("Id,Amount,Shop\n");
+            for (int i = 0; i < 50; i++) {
+                int id = f * 50 + i;
+                String amount = f == 17 && i == 3 ? "2.5" : String.valueOf(id % 7);
+                String row = id + "," + amount + "," + (id % 3 == 0 ? "north" : "south") + "\n";
+                sb.append(row);
+                all.append(row);
+            }
+            Path file = dir.resolve(String.format("part-%02d.csv", f));
+            Files.writeString(file, sb.toString());
+            files.add(file);
+        }
+        Path single = dir.resolve("all.txt");
+        Files.writeString(single, all.toString());
+        DataFrame expected = new DataFrame();
+        expected.readTable(single.toString(), ",");
+
+        DataFrame df = DataFrame.readTables(files, ",");
+        Assertions.assertEquals(expected, df);
+        Assertions.assertEquals("dbl", df.colType("Amount"));
+        Assertions.assertTrue(df.getCol("Shop").isCategorical());
+        Assertions.assertEquals(expected, DataFrame.readTables(dir.resolve("part-*.csv").toString(), ","));
+        Assertions.assertEquals(2000, DataFrame.readTables(files, ",", new ReadOptions().parallel(2)).nrow());
+
+        Files.writeString(dir.resolve("part-99.csv"), "Id,Total,Shop\n1,2,north\n");
+        Assertions.assertThrows(IOException.class, () -> DataFrame.readTables(dir.resolve("part-*.csv").toString(), ","));
+        Assertions.assertThrows(IOException.class, () -> DataFrame.readTables(dir.resolve("none-*.csv").toString(), ","));
+    }
+
+    @Test
+    public void testFollowTable(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("log.csv");
+        Files.writeString(file, "Time,Level,Value\n");
+        TableTail tail = DataFrame.followTable(file.toString(), ",");
+        Assertions.assertEquals(0, tail.nrow());
+        Assertions.assertEquals(0, tail.refresh().ncol());
+
+        Files.writeString(file, "1,INFO,0.5\n2,WARN,1.5\n3,IN", StandardOpenOption.APPEND);
+        DataFrame first = tail.refresh();
+        Assertions.assertEquals(2, first.nrow());
+        Assertions.assertEquals("dbl", first.colType("Value"));
+        long offset = tail.getOffset();
+
+        Files.writeString(file, "FO,2.5\n4,INFO,3\n", StandardOpenOption.APPEND);
+        DataFrame delta = tail.refresh();
+        Assertions.assertEquals(2, delta.nrow());
+        Assertions.assertEquals("INFO", delta.locStr(0, "Level"));
+        Assertions.assertEquals(3., delta.locDbl(1, "Value"));
+        Assertions.assertTrue(tail.getOffset() > offset);
+        Assertions.assertEquals(0, tail.refresh().nrow());
+        Assertions.assertEquals(3, tail.refresh().ncol());
+
+        StringBuilder more = new StringBuilder();
+        for (int i = 5; i <= 1000; i++) {
+            more.append(i).append(',').append(i % 2 == 0 ? "INFO" : "WARN").append(',').append(i / 4.).append('\n');
+        }
+        Files.writeString(file, more.toString(), StandardOpenOption.APPEND);
+        Assertions.assertEquals(996, tail.refresh().nrow());
+        DataFrame expected = new DataFrame();
+        expected.readTable(file.toString(), ",");
+        Assertions.assertEquals(expected, tail.getDataFrame());
+
+        Files.writeString(file, "1001,INFO,x\n1002,INFO,1\n", StandardOpenOption.APPEND);
+        Assertions.assertEquals(2, tail.refresh().nrow());
+        Files.writeString(file, "oops,INFO,1\n", StandardOpenOption.APPEND);
+        Assertions.assertThrows(IOException.class, tail::refresh);
+        Assertions.assertEquals(1002, tail.nrow());
+        Assertions.assertTrue(Double.isNaN(tail.getDataFrame().locDbl(1000, "Value")));
+    }
+
+    @Test
+    public void testValidity(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("gaps.csv");
+        Files.writeString(file, "Id,Count,Flag\n1,5,true\n2,,\n3,2,false\n4,,true\n");
+        DataFrame df = new DataFrame();
+        df.readTable(file.toString(), ",", new ReadOptions().inferBoolsAndDates());
+        Assertions.assertEquals("int", df.colType("Count"));
+        Assertions.assertEquals("bool", df.colType("Flag"));
+        Assertions.assertTrue(df.getCol("Count").isNull(1));
+        Assertions.assertTrue(df.getCol("Count").isNull(-1));
+        Assertions.assertFalse(df.getCol("Count").isNull(0));
+        Assertions.assertTrue(df.getCol("Flag").isNull(1));
+
+        Assertions.assertArrayEquals(new int[]{1, 3}, df.addFilterLt("Count", 10).filter().getColInts("Id"));
+        df.delFilterKey();
+        Assertions.assertArrayEquals(new int[]{2, 4, 3, 1}, df.setOrderKey("Count").order().getColInts("Id"));
+        Assertions.assertArrayEquals(new int[]{5, 2}, df.intUnique("Count"));
+
+        Path out = dir.resolve("out.csv");
+        df.writeTable(out.toString(), ",");
+        DataFrame text = new DataFrame();
+        text.readTable(out.toString(), ",", new ReadOptions().inferBoolsAndDates());
+        Assertions.assertEquals(df.getCol("Count"), text.getCol("Count"));
+        Assertions.assertEquals(df.getCol("Flag"), text.getCol("Flag"));
+
+        DataFrame ints = new DataFrame(df.getCol("Id"), df.getCol("Count"));
+        Path arrow = dir.resolve("gaps.arrow");
+        ints.writeArrow(arrow);
+        DataFrame fromArrow = new DataFrame();
+        fromArrow.readArrow(arrow);
+        Assertions.assertEquals(ints.getCol("Count"), fromArrow.getCol("Count"));
+        Path binary = dir.resolve("gaps.dfb");
+        ints.writeBinary(binary);
+        DataFrame fromBinary = new DataFrame();
+        fromBinary.readBinary(binary);
+        Assertions.assertEquals("int", fromBinary.colType("Count"));
+        Assertions.assertTrue(fromBinary.getCol("Count").isNull(1));
+        Assertions.assertEquals(ints.getCol("Count"), fromBinary.getCol("Count"));
+        Path groups = dir.resolve("gaps.dfg");
+        ints.writeRowGroups(groups, 3);
+        DataFrame fromGroups = new DataFrame();
+        fromGroups.readRowGroups(groups);
+        Assertions.assertEquals("int", fromGroups.colType("Count"));
+        Assertions.assertEquals(ints.getCol("Count"), fromGroups.getCol("Count"));
+        fromGroups = new DataFrame();
+        fromGroups.readRowGroups(groups, ReadFilter.gt("Count", -1));
+        Assertions.assertArrayEquals(new int[]{1, 3}, fromGroups.getColInts("Id"));
+
+        df.filledBy("Count", 0);
+        Assertions.assertArrayEquals(new int[]{5, 0, 2, 0}, df.getColInts("Count"));
+        Assertions.assertFalse(df.getCol("Count").isNull(1));
+
+        Column col = new Column("X", 1., 2.);
+        col.setNull(0);
+        Assertions.assertTrue(col.isNull(0));
+        Assertions.assertNotEquals(new Column("X", 1., 2.), col);
+        col.setDbl(3, 0);
+        Assertions.assertEquals(new Column("X", 3., 2.), col);
+
+        Column dbls = new Column("V", 1., 2., 3.);
+        dbls.setNull(0);
+        DataFrame gaps = new DataFrame(dbls);
+        Assertions.assertEquals(2, gaps.addFilterRange("V", 0., 10.).filter().nrow());
+        gaps.delFilterKey();
+        Assertions.assertEquals(2, gaps.addFilterGt("V", 0.).filter().nrow());
+        gaps.delFilterKey();
+        Assertions.assertEquals(1, gaps.addFilterLt("V", 2.5).filter().nrow());
+        gaps.delFilterKey();
+        dbls.compress();
+        Assertions.assertEquals(2, gaps.addFilterRange("V", 0., 10.).filter().nrow());
+    }
+
+    @Test
+    public void testOffHeap(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("values.csv");
+        StringBuilder sb = new StringBuilder("Id,Value,Name\n");
+        for (int i = 0; i < 1000; i++) {
+            sb.append(i).append(',').append(i / 4.).append(',').append("n").append(i % 10).append('\n');
+        }
+        Files.writeString(file, sb.toString());
+        DataFrame heap = new DataFrame();
+        heap.readTable(file.toString(), ",");
+        DataFrame off = new DataFrame();
+        off.readTable(file.toString(), ",", new ReadOptions().offHeap());
+        Assertions.assertTrue(off.getCol("Id").isOffHeap());
+        Assertions.assertTrue(off.getCol("Value").isOffHeap());
+        Assertions.assertFalse(off.getCol("Name").isOffHeap());
+        Assertions.assertEquals(heap.getCol("Value"), off.getCol("Value"));
+        Assertions.assertEquals(2.5, off.locDbl(10, "Value"));
+        off.setDbl(10, "Value", -1);
+        Assertions.assertEquals(-1, off.getCol("Value").getDbl(10));
+        Assertions.assertTrue(off.getCol("Value").isOffHeap());
+
+        Path out = dir.resolve("values.dfb");
+        off.writeBinary(out);
+        DataFrame back = new DataFrame();
+        back.readBinary(out);
+        Assertions.assertEquals(off.getCol("Value"), back.getCol("Value"));
+        Assertions.assertTrue(off.getCol("Id").isOffHeap());
+
+        DataFrame sorted = off.setOrderKey("Value").order();
+        Assertions.assertEquals(10, sorted.locInt(0, "Id"));
+        Assertions.assertTrue(sorted.getCol("Value").isOffHeap());
+
+        double[] values = off.getColDbls("Value");
+        Assertions.assertEquals(-1, values[10]);
+        Assertions.assertFalse(off.getCol("Value").isOffHeap());
+        Assertions.assertTrue(heap.offHeap().getCol("Id").isOffHeap());
+    }
+
+    @Test
+    public void testChunkedColumns() {
+        DataFrame day = new DataFrame(new Column("Hour", 0), new Column("Value", 0.5), new Column("Name", "h0"));
+        for (int h = 1; h < 24; h++) {
+            DataFrame batch = new DataFrame(new Column("Hour", h), new Column("Value", h + 0.5), new Column("Name", "h" + h));
+            DataFrame before = day;
+            day = day.rbind(batch);
+            Assertions.assertEquals(h, before.nrow());
+        }
+        Assertions.assertEquals(24, day.nrow());
+        Assertions.assertEquals(23, day.locInt(23, "Hour"));
+        Assertions.assertEquals("h7", day.locStr(7, "Name"));
+        int[] hours = new int[24];
+        double[] values = new double[24];
+        for (int h = 0; h < 24; h++) {
+            hours[h] = h;
+            values[h] = h + 0.5;
+        }
+        Assertions.assertEquals(new Column("Hour", hours), day.getCol("Hour"));
+        Assertions.assertEquals(new Column("Value", values), day.getCol("Value"));
+
+        DataFrame twice = day.rbind(day);
+        DataFrame sorted = twice.setOrderKey("Value").order();
+        Assertions.assertEquals(48, sorted.nrow());
+        Assertions.assertEquals(23.5, sorted.locDbl(47, "Value"));
+        Assertions.assertFalse(twice.getCol("Value").isCompact());
+        Assertions.assertEquals("h10", twice.setOrderKey("Name").order().locStr(4, "Name"));
+        Assertions.assertArrayEquals(values, day.compact().getColDbls("Value"));
+    }
+
+    @Test
+    public void testBuilders() {
+        DataFrameBuilder builder = new DataFrameBuilder(new String[]{"Id", "Value", "Name", "Flag", "Day"},
+                new ColumnType[]{ColumnType.INT, ColumnType.DBL, ColumnType.STR, ColumnType.BOOL, ColumnType.DATE});
+        for (int i = 0; i < 1000; i++) {
+            builder.appendRow(i, i / 2., "n" + i, i % 3 == 0, i % 100 == 0 ? null : LocalDate.of(2024, 1, 1).plusDays(i));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.appendRow(1, 2., 3, true, null));
+        Assertions.assertEquals(1000, builder.nrow());
+        DataFrame df = builder.build();
+        Assertions.assertEquals(0, builder.nrow());
+        Assertions.assertEquals(1000, df.nrow());
+        Assertions.assertEquals(999, df.locInt(999, "Id"));
+        Assertions.assertEquals(2.5, df.locDbl(5, "Value"));
+        Assertions.assertEquals("n42", df.locStr(42, "Name"));
+        Assertions.assertTrue(df.getCol("Flag").getBools()[3]);
+        Assertions.assertTrue(df.getCol("Day").isNull(100));
+        Assertions.assertFalse(df.getCol("Day").isNull(101));
+        Assertions.assertEquals(LocalDate.of(2024, 1, 2), df.getCol("Day").getDates()[1]);
+
+        ColumnBuilder ints = new ColumnBuilder("Count", ColumnType.INT);
+        ints.appendInt(3).appendNull().appendInt(5);
+        Column col = ints.build();
+        Assertions.assertEquals(3, col.nrow());
+        Assertions.assertTrue(col.isNull(1));
+        Assertions.assertEquals(5, col.getInt(2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ints.appendString("x"));
+    }
+
+    @Test
+    public void testCopyOnWriteClone() {
+        DataFrame df = new DataFrame(new Column("Id", 1, 2, 3), new Column("Value", 1.5, 2.5, 3.5), new Column("Name", "a", "b", "c"));
+        df.getCol("Id").setNull(2);
+        DataFrame copy = new DataFrame().clone(df);
+        Assertions.assertEquals(df.getCol("Value"), copy.getCol("Value"));
+        copy.setDbl(0, "Value", -1);
+        copy.getCol("Id").setInt(9, 2);
+        copy.getColStrs("Name")[1] = "z";
+        Assertions.assertEquals(1.5, df.locDbl(0, "Value"));
+        Assertions.assertTrue(df.getCol("Id").isNull(2));
+        Assertions.assertEquals("b", df.locStr(1, "Name"));
+        Assertions.assertEquals(-1, copy.locDbl(0, "Value"));
+        Assertions.assertEquals(9, copy.locInt(2, "Id"));
+        Assertions.assertEquals("z", copy.locStr(1, "Name"));
+
+        DataFrame again = new DataFrame().clone(df);
+        df.setDbl(2, "Value", 0);
+        Assertions.assertEquals(3.5, again.locDbl(2, "Value"));
+        Assertions.assertEquals(0, df.locDbl(2, "Value"));
+
+        DataFrame left = new DataFrame(new Column("Value", 1.0, 2.0));
+        DataFrame right = new DataFrame(new Column("Value", 3.0));
+        DataFrame both = left.rbind(right);
+        right.setDbl(0, "Value", -3);
+        Assertions.assertEquals(3.0, both.locDbl(2, "Value"));
+    }
+
+    @Test
+    public void testRowViews() {
+        int[] ids = new int[100];
+        double[] values = new double[100];
+        for (int i = 0; i < 100; i++) {
+            ids[i] = i;
+            values[i] = i / 2.;
+        }
+        DataFrame df = new DataFrame(new Column("Id", ids), new Column("Value", values));
+        DataFrame range = df.rloc(10, 20);
+        Assertions.assertEquals(10, range.nrow());
+        Assertions.assertEquals(10, range.locInt(0, "Id"));
+        Assertions.assertEquals(9.5, range.locDbl(9, "Value"));
+        Assertions.assertEquals(3, df.head(3).nrow());
+        Assertions.assertEquals(2, df.head(3).locInt(2, "Id"));
+        Assertions.assertEquals(97, df.tail(3).locInt(0, "Id"));
+        Assertions.assertEquals(100, df.tail(500).nrow());
+        Assertions.assertEquals(95, df.rloc(-5, -1).locInt(0, "Id"));
+        Assertions.assertEquals(15, df.rloc(10, 20).rloc(5, 6).locInt(0, "Id"));
+
+        DataFrame head = df.head(5);
+        head.setDbl(0, "Value", -1);
+        Assertions.assertEquals(0, df.locDbl(0, "Value"));
+        DataFrame tail = df.tail(5);
+        df.setDbl(99, "Value", -1);
+        Assertions.assertEquals(49.5, tail.locDbl(4, "Value"));
+
+        DataFrame bound = df.head(50).rbind(df.tail(50));
+        Assertions.assertEquals(new Column("Id", ids), bound.getCol("Id"));
+        Assertions.assertEquals(47, bound.rloc(45, 55).compact().getColInts("Id")[2]);
+    }
+
+    @Test
+    public void testSelections(@TempDir Path dir) throws Exception {
+        int[] ids = new int[100];
+        double[] values = new double[100];
+        for (int i = 0; i < 100; i++) {
+            ids[i] = i;
+            values[i] = (i * 37) % 100;
+        }
+        DataFrame df = new DataFrame(new Column("Id", ids), new Column("Value", values));
+        DataFrame high = new DataFrame().clone(df).addFilterGt("Value", 50.).filter().delAllKeys();
+        DataFrame band = high.addFilterLt("Value", 60.).filter().delAllKeys();
+        Assertions.assertEquals(9, band.nrow());
+        band.setOrderKey("Value");
+        Assertions.assertFalse(band.getCol("Value").isCompact());
+        DataFrame sorted = band.order().delAllKeys();
+        Assertions.assertEquals(51.0, sorted.locDbl(0, "Value"));
+        Assertions.assertEquals(59.0, sorted.locDbl(-1, "Value"));
+
+        Path file = dir.resolve("band.csv");
+        sorted.writeTable(file.toString(), ",");
+        List<String> lines = Files.readAllLines(file);
+        Assertions.assertEquals("Id,Value", lines.get(0));
+        Assertions.assertEquals(10, lines.size());
+        Assertions.assertEquals(sorted.locInt(0, "Id") + ",51.0", lines.get(1));
+
+        sorted.setDbl(0, "Value", -1);
+        double min = Double.MAX_VALUE;
+        for (int i = 0; i < band.nrow(); i++) {
+            min = Math.min(min, band.locDbl(i, "Value"));
+        }
+        Assertions.assertEquals(51.0, min);
+        Assertions.assertEquals(9, band.compact().getColDbls("Value").length);
+        Assertions.assertEquals(new Column("Id", ids), df.getCol("Id"));
+    }
+
+    @Test
+    public void testCompression() {
+        int n = 1000;
+        int[] runs = new int[n];
+        int[] sorted = new int[n];
+        int[] small = new int[n];
+        double[] prices = new double[n];
+        for (int i = 0; i < n; i++) {
+            runs[i] = i / 100;
+            sorted[i] = 1_000_000 + 3 * i;
+            small[i] = i % 50 - 25;
+            prices[i] = (i % 8) * 0.25;
+        }
+        for (Encoding encoding : new Encoding[]{Encoding.RUN_LENGTH, Encoding.DELTA, Encoding.FRAME_OF_REFERENCE, Encoding.NARROW}) {
+            Column col = new Column("Small", small).compress(encoding);
+            Assertions.assertTrue(col.isCompressed());
+            Assertions.assertEquals(new Column("Small", small), col);
+            Assertions.assertEquals(small[777], col.getInt(777));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Column("Sorted", sorted).compress(Encoding.NARROW));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Column("Price", prices).compress(Encoding.DELTA));
+
+        DataFrame df = new DataFrame(new Column("Run", runs), new Column("Sorted", sorted),
+                new Column("Small", small), new Column("Price", prices)).compress();
+        for (int j = 0; j < df.ncol(); j++) {
+            Assertions.assertTrue(df.getCol(j).isCompressed());
+        }
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, df.intUnique("Run"));
+        DataFrame hit = new DataFrame().clone(df).addFilterEq("Run", 3).and().addFilterRange("Price", 0.5, 1.0).filter().delAllKeys();
+        Assertions.assertEquals(24, hit.nrow());
+        Assertions.assertEquals(1_000_000 + 3 * 306, hit.locInt(0, "Sorted"));
+        Assertions.assertEquals(0.5, hit.locDbl(0, "Price"));
+        Assertions.assertEquals(100, new DataFrame().clone(df).addFilterRange("Sorted", 1_000_300, 1_000_600).filter().nrow());
+        for (Encoding encoding : new Encoding[]{Encoding.DELTA, Encoding.FRAME_OF_REFERENCE}) {
+            DataFrame blocks = new DataFrame(new Column("Sorted", sorted).compress(encoding), new Column("Small", small).compress(encoding));
+            int[] kept = new DataFrame().clone(blocks).addFilterRange("Sorted", 1_000_301, 1_002_101).filter().getColInts("Sorted");
+            Assertions.assertEquals(600, kept.length);
+            Assertions.assertEquals(1_000_303, kept[0]);
+            Assertions.assertEquals(1_002_100, kept[599]);
+            Assertions.assertEquals(80, new DataFrame().clone(blocks).addFilterRange("Small", -2, 2).filter().nrow());
+        }
+        Assertions.assertTrue(df.getCol("Run").isCompressed());
+
+        df.getCol("Small").setInt(99, 0);
+        Assertions.assertFalse(df.getCol("Small").isCompressed());
+        Assertions.assertEquals(99, df.locInt(0, "Small"));
+        Assertions.assertArrayEquals(sorted, df.decompress().getColInts("Sorted"));
+    }
+
+    @Test
+    public void testUtf8Strings() {
+        String[] names = {"pear", "äpfel", null, "🍐", "ﬁg", "pear", "", "äpfel", "fig"};
+        int[] ids = new int[names.length];
+        for (int i = 0; i < ids.length; i++) ids[i] = i;
+        Column col = new Column("Name", names.clone()).compress(Encoding.UTF8);
+        Assertions.assertTrue(col.isCompressed());
+        Assertions.assertEquals(new Column("Name", names.clone()), col);
+        Assertions.assertEquals("äpfel", col.getStr(1));
+        Assertions.assertTrue(col.isNull(2));
+
+        DataFrame df = new DataFrame(new Column("Id", ids), new Column("Name", names.clone())).compress();
+        Assertions.assertTrue(df.getCol("Name").isCompressed());
+        Assertions.assertArrayEquals(new String[]{"pear", "äpfel", null, "🍐", "ﬁg", "", "fig"}, df.strUnique("Name"));
+        DataFrame apples = new DataFrame().clone(df).addFilterEq("Name", "äpfel").filter().delAllKeys();
+        Assertions.assertEquals(2, apples.nrow());
+        Assertions.assertEquals(7, apples.locInt(-1, "Id"));
+        Assertions.assertEquals(7, new DataFrame().clone(df).addFilterNeq("Name", "pear").filter().nrow());
+        Assertions.assertEquals(4, new DataFrame().clone(df).addFilterEq("Name", new String[]{"pear", "fig", null}).filter().nrow());
+        Assertions.assertEquals(6, new DataFrame().clone(df).addFilterNeq("Name", new String[]{"pear", null}).filter().nrow());
+
+        String[] expected = names.clone();
+        Arrays.sort(expected, Comparator.nullsFirst(Comparator.naturalOrder()));
+        DataFrame sorted = new DataFrame().clone(df).setOrderKey("Name").order().delAllKeys();
+        for (int i = 0; i < expected.length; i++) {
+            Assertions.assertEquals(expected[i], sorted.locStr(i, "Name"));
+        }
+        Assertions.assertTrue(df.getCol("Name").isCompressed());
+        df.setStr(0, "Name", "plum");
+        Assertions.assertFalse(df.getCol("Name").isCompressed());
+        Assertions.assertEquals("plum", df.locStr(0, "Name"));
+    }
 }